@@ -37,6 +37,10 @@ public class LlmConfig {
     public final static String SKILL_DIRECTORY      = "skills";
     public final static String COMMAND_DIRECTORY    = "commands";
     public final static String AGENT_DIRECTORY      = "agents";
+    /** Search indexes, rebuilt if deleted. */
+    public final static String INDEX_DIRECTORY      = "index";
+    /** Caches like the fetched web pages, may be deleted. */
+    public final static String CACHE_DIRECTORY      = "cache";
 
     @Default
     @NonNull
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import org.sterl.llmpeon.shared.FilePager;
+
 import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +21,7 @@ public class DiskFileContextItem implements ContextItem {
     public String render() {
         try {
             if (Files.isRegularFile(path)) {
+                if (FilePager.isLarge(path)) return FilePager.summary(path);
                 return Files.readString(path);
             } else {
                 log.debug("Context file not present, skipping: {}", path);
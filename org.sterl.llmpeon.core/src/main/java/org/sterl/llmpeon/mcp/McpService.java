@@ -5,9 +5,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
@@ -28,10 +30,14 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class McpService implements AutoCloseable {
 
+    /** MCP tool annotation key, see https://modelcontextprotocol.io/specification/2025-06-18/server/tools */
+    private static final String READ_ONLY_HINT = "readOnlyHint";
+
     private final List<McpServerConfig> servers;
     private final List<McpClient> clients = new ArrayList<>();
     private final Map<String, McpClient> toolToClient = new HashMap<>();
     private final List<ToolSpecification> toolSpecs = new ArrayList<>();
+    private final Set<String> readOnlyTools = new HashSet<>();
 
     public McpService(List<McpServerConfig> servers) {
         this.servers = servers != null ? servers : List.of();
@@ -79,6 +85,7 @@ public class McpService implements AutoCloseable {
                 for (var spec : tools) {
                     toolSpecs.add(spec);
                     toolToClient.put(spec.name(), client);
+                    if (isReadOnlyHint(spec)) readOnlyTools.add(spec.name());
                     log.info("Connected MCP " + server.name() + " tool " + spec.name());
                 }
             } catch (Exception e) {
@@ -177,6 +184,19 @@ public class McpService implements AutoCloseable {
         return toolToClient.containsKey(toolName);
     }
 
+    /**
+     * Returns true if the MCP server annotated this tool with {@code readOnlyHint=true}, which
+     * allows the tool loop to run it concurrently with other read-only calls.
+     */
+    public boolean isReadOnlyTool(String toolName) {
+        return readOnlyTools.contains(toolName);
+    }
+
+    private static boolean isReadOnlyHint(ToolSpecification spec) {
+        var metadata = spec.metadata();
+        return metadata != null && Boolean.TRUE.equals(metadata.get(READ_ONLY_HINT));
+    }
+
     /** Closes all client connections and clears the tool registry. */
     public void disconnect() {
         for (var client : clients) {
@@ -187,6 +207,7 @@ public class McpService implements AutoCloseable {
         clients.clear();
         toolToClient.clear();
         toolSpecs.clear();
+        readOnlyTools.clear();
     }
 
     @Override
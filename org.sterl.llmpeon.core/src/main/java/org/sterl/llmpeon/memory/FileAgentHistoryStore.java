@@ -1,41 +1,327 @@
 package org.sterl.llmpeon.memory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ChatMessageDeserializer;
 import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Append-only JSONL history of one agent.
+ * <p>
+ * Messages are written through one {@link FileChannel} which stays open while the agent is active;
+ * each call is a single write, the {@code force} to disk is batched by a background sync (group commit)
+ * and the channel is closed again after {@link #CLOSE_IDLE_MILLIS}. A merged user message is written
+ * as a small {@link #POP} record followed by the new message instead of rewriting the file. The
+ * records made obsolete that way are counted and the file is compacted in the background as soon as
+ * they exceed {@link #COMPACT_WASTE_RATIO} of it.
+ * <p>
+ * Larger histories are compacted into a GZIP {@link #checkpoint(List) checkpoint} next to the log;
+ * the log then only holds the tail since, starting with a {@link #CHECKPOINT} record naming the
+ * checkpoint it continues. A log without this record is complete on its own — the order of the
+ * writes keeps either the old or the new state readable after a crash.
+ */
 @Slf4j
 public class FileAgentHistoryStore {
 
+    /** Control record {@code #pop <n>}: drops the last n messages written before it. */
+    static final String POP = "#pop ";
+    /** Control record {@code #checkpoint <id>}: header of a checkpoint and first line of its log. */
+    static final String CHECKPOINT = "#checkpoint ";
+    static final String CHECKPOINT_SUFFIX = ".checkpoint.gz";
+    static final String LINE_END = System.lineSeparator();
+    static final long COMPACT_MIN_BYTES = 256 * 1024;
+    static final double COMPACT_WASTE_RATIO = 0.5;
+    /** Rewrites below this size stay plain JSONL. */
+    static final long CHECKPOINT_MIN_BYTES = 64 * 1024;
+    /** Log size after which the history is compacted into a new checkpoint. */
+    static final long CHECKPOINT_LOG_BYTES = 1024 * 1024;
+    static final long FORCE_DELAY_MILLIS = 1_000;
+    static final long CLOSE_IDLE_MILLIS = 60_000;
+    private static final int READ_BUFFER = 64 * 1024;
+
+    /** Raw message record, deserialized only if it survives all {@link #POP} records. */
+    private record Record(String json, int size) {}
+
+    /** New content of the history, written to temp files but not yet {@link #install(Rewrite) installed}. */
+    private record Rewrite(Path checkpointTmp, Path logTmp, String checkpointId, List<Integer> recordSizes, long logBytes) {
+        void delete() {
+            if (checkpointTmp != null) deleteIfExists(checkpointTmp);
+            deleteIfExists(logTmp);
+        }
+    }
+
     private final Path historyFile;
+    private final Path checkpointFile;
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Guarded by {@link #lock}, {@code null} until the next write. */
+    private FileChannel channel;
+    /** Guarded by {@link #lock}: the checkpoint the log continues, {@code null} if the log is complete. */
+    private String checkpointId;
+    /** Guarded by {@link #lock}: byte size in the log of each live message record, {@code 0} if in the checkpoint. */
+    private final List<Integer> recordSizes = new ArrayList<>();
+    /** Guarded by {@link #lock}: size of the log. */
+    private long fileBytes = 0;
+    /** Guarded by {@link #lock}: bytes of popped messages and control records. */
+    private long wasteBytes = 0;
+    /** Guarded by {@link #lock}: written but not yet forced to disk. */
+    private boolean dirty = false;
+    /** Guarded by {@link #lock}. */
+    private long lastWriteNanos = 0;
+    /** Guarded by {@link #lock}: counts the replacements of the log, a compaction started before one is dropped. */
+    private long rewrites = 0;
+    private final AtomicBoolean syncRunning = new AtomicBoolean();
+    private final AtomicBoolean compacting = new AtomicBoolean();
 
     public FileAgentHistoryStore(Path historyFile) {
         this.historyFile = historyFile;
+        this.checkpointFile = historyFile.resolveSibling(historyFile.getFileName() + CHECKPOINT_SUFFIX);
     }
 
+    /**
+     * Streams the checkpoint and the log once and applies the {@link #POP} records on the raw lines,
+     * so only the surviving records are deserialized. A corrupt record is skipped and a torn last
+     * record — a write cut off by a crash — is truncated, the rest of the history is kept. If a skipped
+     * record was one half of a tool call, the other half is dropped too.
+     */
     public List<ChatMessage> load() {
-        if (!Files.isRegularFile(historyFile)) return List.of();
-
-        var messages = new ArrayList<ChatMessage>();
+        lock.lock();
         try {
-            for (String line : Files.readAllLines(historyFile)) {
-                if (!line.isBlank()) messages.add(ChatMessageDeserializer.messageFromJson(line));
+            var records = readAll();
+            var messages = new ArrayList<ChatMessage>(records.size());
+            var skipped = false;
+            for (var record : records) {
+                try {
+                    messages.add(ChatMessageDeserializer.messageFromJson(record.json()));
+                    recordSizes.add(record.size());
+                } catch (RuntimeException e) {
+                    log.warn("Skipping corrupt record in history {}: {}", historyFile.getFileName(), e.getMessage());
+                    wasteBytes += record.size();
+                    skipped = true;
+                }
             }
-            return messages;
-        } catch (Exception e) {
-            log.error("Failed to load history {}; deleting corrupt file", historyFile.getFileName(), e);
-            deleteIfExists(historyFile);
+            return skipped ? dropUnpairedToolMessages(messages) : messages;
+        } catch (IOException e) {
+            log.error("Failed to load history {}", historyFile.getFileName(), e);
+            resetStats();
             return List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Guarded by {@link #lock}: drops tool results without their request and requests without all of
+     * their results, the providers reject both.
+     */
+    private List<ChatMessage> dropUnpairedToolMessages(List<ChatMessage> messages) {
+        var keep = new boolean[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof AiMessage ai && ai.hasToolExecutionRequests()) {
+                var requested = new HashSet<String>();
+                ai.toolExecutionRequests().forEach(r -> requested.add(r.id()));
+                var answered = new HashSet<String>();
+                int end = i + 1;
+                for (; end < messages.size() && messages.get(end) instanceof ToolExecutionResultMessage result; end++) {
+                    keep[end] = requested.contains(result.id());
+                    answered.add(result.id());
+                }
+                keep[i] = answered.containsAll(requested);
+                if (!keep[i]) Arrays.fill(keep, i + 1, end, false);
+                i = end - 1;
+            } else {
+                keep[i] = !(messages.get(i) instanceof ToolExecutionResultMessage);
+            }
+        }
+
+        var result = new ArrayList<ChatMessage>(messages.size());
+        var sizes = new ArrayList<Integer>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            if (keep[i]) {
+                result.add(messages.get(i));
+                sizes.add(recordSizes.get(i));
+            } else {
+                log.warn("Dropping {} without its tool call partner from history {}",
+                        messages.get(i).type(), historyFile.getFileName());
+                wasteBytes += recordSizes.get(i);
+            }
+        }
+        recordSizes.clear();
+        recordSizes.addAll(sizes);
+        return result;
+    }
+
+    /** Guarded by {@link #lock}: reads the live records, sets the stats except {@link #recordSizes}. */
+    private List<Record> readAll() throws IOException {
+        closeChannel();
+        resetStats();
+        checkpointId = null;
+        ++rewrites;
+        var records = new ArrayList<Record>();
+        var hasLog = Files.isRegularFile(historyFile);
+        var continues = hasLog ? readLogCheckpoint() : null;
+
+        if (Files.isRegularFile(checkpointFile)) {
+            if (hasLog && continues == null) {
+                // a complete log written after the checkpoint, which was not deleted anymore
+                Files.deleteIfExists(checkpointFile);
+            } else {
+                checkpointId = readCheckpoint(records);
+            }
+        }
+
+        if (hasLog) {
+            if (continues != null && checkpointId != null && !continues.equals(checkpointId)) {
+                // the log of an older checkpoint, already contained in the current one
+                log.warn("Dropping stale history log {}", historyFile.getFileName());
+                writeAtomically(historyFile, toBytes(List.of(CHECKPOINT + checkpointId)));
+                fileBytes = Files.size(historyFile);
+            } else {
+                if (checkpointId == null) checkpointId = continues;
+                readLog(records);
+            }
+        }
+        return records;
+    }
+
+    /** @return the id of the checkpoint named in the first line of the log, or {@code null} */
+    private String readLogCheckpoint() throws IOException {
+        try (var reader = Files.newBufferedReader(historyFile, StandardCharsets.UTF_8)) {
+            var first = reader.readLine();
+            return first != null && first.startsWith(CHECKPOINT) ? first.substring(CHECKPOINT.length()).strip() : null;
+        }
+    }
+
+    /** @return the id of the checkpoint, its records are added with size {@code 0} */
+    private String readCheckpoint(List<Record> records) throws IOException {
+        var id = new String[1];
+        try (var in = new GZIPInputStream(Files.newInputStream(checkpointFile), READ_BUFFER)) {
+            var rest = readLines(in, Long.MAX_VALUE, (text, size) -> {
+                if (text.startsWith(CHECKPOINT)) id[0] = text.substring(CHECKPOINT.length()).strip();
+                else if (!text.isBlank()) records.add(new Record(text, 0));
+            });
+            if (rest.size() > 0) throw new IOException("Checkpoint " + checkpointFile.getFileName() + " is incomplete");
+        }
+        if (id[0] == null) throw new IOException("Checkpoint " + checkpointFile.getFileName() + " has no id");
+        return id[0];
+    }
+
+    /**
+     * Guarded by {@link #lock}: sets {@link #fileBytes} and {@link #wasteBytes}; terminates a complete
+     * last record without line end.
+     */
+    private void readLog(List<Record> records) throws IOException {
+        ByteArrayOutputStream rest;
+        try (var in = Files.newInputStream(historyFile)) {
+            rest = readLines(in, Long.MAX_VALUE, (text, size) -> addRecord(records, text, size));
+        }
+
+        if (rest.size() > 0) {
+            var last = rest.toString(StandardCharsets.UTF_8).strip();
+            if (isComplete(last)) {
+                // the line end was not written anymore, the next append must not continue this line
+                var lineEnd = ByteBuffer.wrap(LINE_END.getBytes(StandardCharsets.UTF_8));
+                try (var c = FileChannel.open(historyFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    while (lineEnd.hasRemaining()) c.write(lineEnd);
+                }
+                addRecord(records, last, rest.size() + lineEnd.capacity());
+            } else {
+                log.warn("Truncating torn last record of history {}", historyFile.getFileName());
+                try (var c = FileChannel.open(historyFile, StandardOpenOption.WRITE)) {
+                    c.truncate(fileBytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes each line terminated by {@code \n} with its byte size to the consumer.
+     * @param limit bytes to read at most
+     * @return the bytes after the last line end
+     */
+    private static ByteArrayOutputStream readLines(InputStream in, long limit, ObjIntConsumer<String> consumer) throws IOException {
+        var line = new ByteArrayOutputStream();
+        var buffer = new byte[READ_BUFFER];
+        int read;
+        while (limit > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit))) != -1) {
+            limit -= read;
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] != '\n') continue;
+                line.write(buffer, start, i - start);
+                consumer.accept(line.toString(StandardCharsets.UTF_8).stripTrailing(), line.size() + 1);
+                line.reset();
+                start = i + 1;
+            }
+            line.write(buffer, start, read - start);
+        }
+        return line;
+    }
+
+    /** Guarded by {@link #lock}. */
+    private void addRecord(List<Record> records, String text, int size) {
+        fileBytes += size;
+        wasteBytes += applyRecord(records, text, size);
+    }
+
+    /**
+     * Applies one line of the log to the live records.
+     * @return the bytes the line made obsolete
+     */
+    private static long applyRecord(List<Record> records, String text, int size) {
+        if (text.startsWith(CHECKPOINT)) return 0;
+        if (text.isBlank()) return size;
+        if (text.startsWith(POP)) {
+            long waste = size;
+            var count = parseCount(text.substring(POP.length()));
+            for (int i = 0; i < count && !records.isEmpty(); i++) waste += records.removeLast().size();
+            return waste;
+        }
+        records.add(new Record(text, size));
+        return 0;
+    }
+
+    private static int parseCount(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** A record without line end is only kept if it is a full record, otherwise the write was torn. */
+    private static boolean isComplete(String record) {
+        if (record.startsWith("#")) return false;
+        try {
+            ChatMessageDeserializer.messageFromJson(record);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
         }
     }
 
@@ -45,41 +331,422 @@ public class FileAgentHistoryStore {
 
     public void append(List<ChatMessage> messages) throws IOException {
         if (messages == null || messages.isEmpty()) return;
-        Files.createDirectories(historyFile.getParent());
-        Files.writeString(historyFile, toJsonl(messages), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        var out = new ByteArrayOutputStream();
+        var sizes = new ArrayList<Integer>(messages.size());
+        for (var message : messages) sizes.add(writeRecord(out, ChatMessageSerializer.messageToJson(message)));
+
+        lock.lock();
+        try {
+            write(out);
+            recordSizes.addAll(sizes);
+        } finally {
+            lock.unlock();
+        }
+        startSync();
+        compactIfNeeded();
+    }
+
+    /**
+     * Replaces the last written message, e.g. with a merged user message — appends a {@link #POP}
+     * record and the message instead of rewriting the whole file.
+     */
+    public void replaceLast(ChatMessage message) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var popSize = writeRecord(out, POP + 1);
+        var size = writeRecord(out, ChatMessageSerializer.messageToJson(message));
+
+        lock.lock();
+        try {
+            write(out);
+            wasteBytes += popSize + (recordSizes.isEmpty() ? 0 : recordSizes.removeLast());
+            recordSizes.add(size);
+        } finally {
+            lock.unlock();
+        }
+        startSync();
+        compactIfNeeded();
     }
 
+    /** Rewrites the whole history, as {@link #checkpoint(List) checkpoint} if it is large. */
     public void persist(List<ChatMessage> messages) throws IOException {
-        Files.createDirectories(historyFile.getParent());
-        if (messages == null || messages.isEmpty()) {
+        lock.lock();
+        try {
+            rewrite(toJson(messages), false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the messages as compressed checkpoint and starts an empty log continuing it, so a
+     * restore reads one snapshot plus a short tail.
+     */
+    void checkpoint(List<ChatMessage> messages) throws IOException {
+        lock.lock();
+        try {
+            rewrite(toJson(messages), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() throws IOException {
+        lock.lock();
+        try {
+            closeChannel();
+            resetStats();
+            checkpointId = null;
+            ++rewrites;
+            Files.deleteIfExists(checkpointFile);
             Files.deleteIfExists(historyFile);
-            return;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rewrites the history without the popped messages, into a checkpoint if it is large; runs in the
+     * background once the waste ratio or {@link #CHECKPOINT_LOG_BYTES} is crossed, but can be called
+     * directly. Works on the raw records, nothing is deserialized.
+     * <p>
+     * The log is only appended to meanwhile, so the new files are written from a snapshot without
+     * holding the lock; the lock is only taken again to copy the records appended since and to swap
+     * the files. A compaction which overlaps a rewrite or {@link #clear()} is dropped.
+     */
+    public void compact() throws IOException {
+        String id;
+        long logBytes;
+        long version;
+        lock.lock();
+        try {
+            if (wasteBytes == 0 && fileBytes < CHECKPOINT_LOG_BYTES) return;
+            id = checkpointId;
+            logBytes = fileBytes;
+            version = rewrites;
+        } finally {
+            lock.unlock();
         }
 
-        var tmp = Files.createTempFile(historyFile.getParent(), historyFile.getFileName().toString(), ".tmp");
+        List<Record> records;
+        Rewrite rewrite;
         try {
-            Files.writeString(tmp, toJsonl(messages), StandardOpenOption.TRUNCATE_EXISTING);
-            moveReplace(tmp, historyFile);
+            records = readSnapshot(id, logBytes);
+            rewrite = prepare(records.stream().map(Record::json).toList(), false, id);
         } catch (IOException | RuntimeException e) {
-            deleteIfExists(tmp);
+            if (isRewrittenSince(version)) return;
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            if (rewrites != version) {
+                rewrite.delete();
+                return;
+            }
+            var appended = readLog(logBytes, fileBytes);
+            if (appended.length > 0) Files.write(rewrite.logTmp(), appended, StandardOpenOption.APPEND);
+            install(rewrite);
+            // replay the appended records on the compacted ones, a pop may reach into them
+            var live = new ArrayList<Record>(records.size());
+            for (int i = 0; i < records.size(); i++) live.add(new Record(records.get(i).json(), recordSizes.get(i)));
+            readLines(new ByteArrayInputStream(appended), appended.length, (text, size) -> addRecord(live, text, size));
+            recordSizes.clear();
+            live.forEach(r -> recordSizes.add(r.size()));
+            log.debug("Compacted history {} to {} messages", historyFile.getFileName(), live.size());
+        } catch (IOException | RuntimeException e) {
+            rewrite.delete();
             throw e;
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void clear() throws IOException {
-        Files.deleteIfExists(historyFile);
+    /** Reads the live records of the checkpoint and the first {@code logBytes} of the log, without the lock. */
+    private List<Record> readSnapshot(String id, long logBytes) throws IOException {
+        var records = new ArrayList<Record>();
+        if (id != null && Files.isRegularFile(checkpointFile) && !id.equals(readCheckpoint(records))) {
+            throw new IOException("Checkpoint " + checkpointFile.getFileName() + " was replaced");
+        }
+        try (var in = Files.newInputStream(historyFile)) {
+            var rest = readLines(in, logBytes, (text, size) -> applyRecord(records, text, size));
+            if (rest.size() > 0) throw new IOException("History " + historyFile.getFileName() + " ends with a torn record");
+        }
+        return records;
+    }
+
+    /** Guarded by {@link #lock}: the bytes of the log between the two positions. */
+    private byte[] readLog(long from, long to) throws IOException {
+        if (to <= from) return new byte[0];
+        var buffer = ByteBuffer.allocate(Math.toIntExact(to - from));
+        try (var c = FileChannel.open(historyFile, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (c.read(buffer, from + buffer.position()) < 0) {
+                    throw new IOException("History " + historyFile.getFileName() + " is shorter than expected");
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private boolean isRewrittenSince(long version) {
+        lock.lock();
+        try {
+            return rewrites != version;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public Path historyFile() {
         return historyFile;
     }
 
-    private static String toJsonl(List<ChatMessage> messages) {
-        var content = new StringBuilder();
-        for (var message : messages) {
-            content.append(ChatMessageSerializer.messageToJson(message)).append(System.lineSeparator());
+    public Path checkpointFile() {
+        return checkpointFile;
+    }
+
+    /** Guarded by {@link #lock}. */
+    private void rewrite(List<String> records, boolean checkpoint) throws IOException {
+        if (records.isEmpty()) {
+            closeChannel();
+            resetStats();
+            checkpointId = null;
+            ++rewrites;
+            Files.deleteIfExists(checkpointFile);
+            Files.deleteIfExists(historyFile);
+            return;
+        }
+        install(prepare(records, checkpoint, checkpointId));
+    }
+
+    /**
+     * Writes the records into temp files next to the history, as checkpoint if requested or large.
+     * @param previousId the id of the current checkpoint, the new one must differ
+     */
+    private Rewrite prepare(List<String> records, boolean checkpoint, String previousId) throws IOException {
+        Files.createDirectories(historyFile.getParent());
+        long bytes = 0;
+        for (var r : records) bytes += r.length();
+        if (checkpoint || bytes >= CHECKPOINT_MIN_BYTES) {
+            var id = Long.toString(System.currentTimeMillis());
+            if (id.equals(previousId)) id += "-1";
+            var header = new ArrayList<String>(records.size() + 1);
+            header.add(CHECKPOINT + id);
+            header.addAll(records);
+            var checkpointTmp = writeTemp(checkpointFile, gzip(toBytes(header)));
+            try {
+                var tail = toBytes(List.of(CHECKPOINT + id));
+                return new Rewrite(checkpointTmp, writeTemp(historyFile, tail), id,
+                        Collections.nCopies(records.size(), 0), tail.length);
+            } catch (IOException | RuntimeException e) {
+                deleteIfExists(checkpointTmp);
+                throw e;
+            }
+        }
+        var content = new ByteArrayOutputStream();
+        var sizes = new ArrayList<Integer>(records.size());
+        for (var r : records) sizes.add(writeRecord(content, r));
+        return new Rewrite(null, writeTemp(historyFile, content.toByteArray()), null, sizes, content.size());
+    }
+
+    /** Guarded by {@link #lock}: moves the prepared files in place and takes over their stats. */
+    private void install(Rewrite rewrite) throws IOException {
+        closeChannel();
+        resetStats();
+        ++rewrites;
+        try {
+            if (rewrite.checkpointTmp() != null) {
+                // the checkpoint first: until the log names it, the old log stays valid
+                moveReplace(rewrite.checkpointTmp(), checkpointFile);
+                moveReplace(rewrite.logTmp(), historyFile);
+            } else {
+                // the complete log first: it supersedes a checkpoint left behind
+                moveReplace(rewrite.logTmp(), historyFile);
+                Files.deleteIfExists(checkpointFile);
+            }
+        } catch (IOException | RuntimeException e) {
+            rewrite.delete();
+            throw e;
         }
-        return content.toString();
+        checkpointId = rewrite.checkpointId();
+        recordSizes.addAll(rewrite.recordSizes());
+        fileBytes = rewrite.logBytes();
+    }
+
+    private void writeAtomically(Path file, byte[] content) throws IOException {
+        var tmp = writeTemp(file, content);
+        try {
+            moveReplace(tmp, file);
+        } catch (IOException | RuntimeException e) {
+            deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /** @return a temp file next to the file with the content */
+    private static Path writeTemp(Path file, byte[] content) throws IOException {
+        var tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, content, StandardOpenOption.TRUNCATE_EXISTING);
+            return tmp;
+        } catch (IOException | RuntimeException e) {
+            deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /** Writes the batch with one call on the open channel; guarded by {@link #lock}. */
+    private void write(ByteArrayOutputStream out) throws IOException {
+        try {
+            if (channel == null) {
+                Files.createDirectories(historyFile.getParent());
+                channel = FileChannel.open(historyFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                fileBytes = channel.size();
+                if (fileBytes == 0 && checkpointId != null) {
+                    // the log was deleted meanwhile, it must still name its checkpoint
+                    channel.write(ByteBuffer.wrap(toBytes(List.of(CHECKPOINT + checkpointId))));
+                    fileBytes = channel.size();
+                }
+            }
+            var buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            fileBytes += out.size();
+            dirty = true;
+            lastWriteNanos = System.nanoTime();
+        } catch (IOException | RuntimeException e) {
+            closeChannel();
+            throw e;
+        }
+    }
+
+    /**
+     * Background group commit: one {@code force} per {@link #FORCE_DELAY_MILLIS}, closes the idle channel.
+     * A failed {@code force} closes the channel and ends the sync, the next write starts a new one.
+     */
+    private void startSync() {
+        if (!syncRunning.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("peon-history-sync").start(() -> {
+            var failed = false;
+            try {
+                while (sync()) Thread.sleep(FORCE_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                failed = true;
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                log.warn("Failed to sync history {}: {}", historyFile.getFileName(), e.toString());
+            } finally {
+                syncRunning.set(false);
+            }
+            // a write may have reopened the channel after the last check
+            if (!failed && isOpen()) startSync();
+        });
+    }
+
+    /** @return true as long as the channel is open and has to be synced again */
+    private boolean sync() throws IOException {
+        lock.lock();
+        try {
+            if (channel == null) return false;
+            if (dirty) {
+                try {
+                    channel.force(false);
+                } catch (IOException | RuntimeException e) {
+                    // like a failed write: close, don't try to force it again
+                    dirty = false;
+                    closeChannel();
+                    throw e;
+                }
+                dirty = false;
+            } else if (System.nanoTime() - lastWriteNanos > TimeUnit.MILLISECONDS.toNanos(CLOSE_IDLE_MILLIS)) {
+                closeChannel();
+                return false;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isOpen() {
+        lock.lock();
+        try {
+            return channel != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        lock.lock();
+        try {
+            var wasteful = fileBytes >= COMPACT_MIN_BYTES && wasteBytes >= fileBytes * COMPACT_WASTE_RATIO;
+            if (!wasteful && fileBytes < CHECKPOINT_LOG_BYTES) return;
+        } finally {
+            lock.unlock();
+        }
+        if (!compacting.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("peon-history-compact").start(() -> {
+            try {
+                compact();
+            } catch (Exception e) {
+                log.warn("Failed to compact history {}", historyFile.getFileName(), e);
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /** Guarded by {@link #lock}; a failed write must not leave a half open channel behind. */
+    private void closeChannel() {
+        var c = channel;
+        channel = null;
+        if (c == null) return;
+        try {
+            if (dirty) c.force(false);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to sync history {}: {}", historyFile.getFileName(), e.toString());
+        }
+        try {
+            c.close();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to close history {}", historyFile.getFileName(), e);
+        }
+        dirty = false;
+    }
+
+    /** Guarded by {@link #lock}. */
+    private void resetStats() {
+        recordSizes.clear();
+        fileBytes = 0;
+        wasteBytes = 0;
+    }
+
+    private static List<String> toJson(List<ChatMessage> messages) {
+        if (messages == null) return List.of();
+        return messages.stream().map(ChatMessageSerializer::messageToJson).toList();
+    }
+
+    private static byte[] toBytes(List<String> records) {
+        var out = new ByteArrayOutputStream();
+        records.forEach(r -> writeRecord(out, r));
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        var out = new ByteArrayOutputStream(content.length / 4);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    /** @return the byte size of the written record including the line end */
+    private static int writeRecord(ByteArrayOutputStream out, String record) {
+        var bytes = (record + LINE_END).getBytes(StandardCharsets.UTF_8);
+        out.writeBytes(bytes);
+        return bytes.length;
     }
 
     private static void moveReplace(Path source, Path target) throws IOException {
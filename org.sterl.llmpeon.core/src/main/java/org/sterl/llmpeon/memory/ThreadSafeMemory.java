@@ -3,30 +3,66 @@ package org.sterl.llmpeon.memory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.jspecify.annotations.Nullable;
+import org.sterl.llmpeon.shared.AppendOnlyArray;
 import org.sterl.llmpeon.shared.ChatMessageUtil;
 import org.sterl.llmpeon.shared.StringUtil;
+import org.sterl.llmpeon.shared.TokenEstimator;
 
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.response.ChatResponse;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Conversation memory of one agent.
+ * <p>
+ * Reads are lock-free: they work on an immutable snapshot which shares an {@link AppendOnlyArray}
+ * with the writer, so the UI thread and delegate slaves never wait for the running tool loop. All
+ * writes go through one {@link ReentrantLock} and publish a new snapshot. A persisted history is
+ * loaded on a virtual thread, an access before it is done waits for it — the UI checks
+ * {@link #isLoaded()} instead and refreshes {@link #whenLoaded(Runnable) when loaded}.
+ */
 @Slf4j
 public class ThreadSafeMemory {
 
-    private final LinkedList<ChatMessage> memory = new LinkedList<ChatMessage>();
+    /** Published read state; {@code generation} changes whenever stored messages are rewritten. */
+    private record State(List<ChatMessage> messages, long generation) {}
+    /** Result of a substring lookup over the first {@code scanned} messages of a generation. */
+    private record Scan(long generation, int scanned, boolean found) {}
+
+    private static final int MAX_SCANS = 256;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /** Guarded by {@link #writeLock}. */
+    private AppendOnlyArray<ChatMessage> memory = new AppendOnlyArray<>();
+    private volatile State state = new State(List.of(), 0);
     private volatile FileAgentHistoryStore store;
-    @Getter
     private volatile int totalTokenUsed = 0;
+    /** History still loading in the background, {@code null} once installed. */
+    private volatile CompletableFuture<List<ChatMessage>> loading;
+    private volatile TokenEstimator tokenEstimator = TokenEstimator.CHARS_PER_TOKEN;
+    /** Token bookkeeping, guarded by {@link #writeLock}: sum of the per-message estimates. */
+    private long estimatedTokens = 0;
+    /** Estimate of the last message, needed when it is merged. */
+    private int lastEstimate = 0;
+    /** Last real provider usage, or {@code -1} if none since the last rewrite. */
+    private int providerTokens = -1;
+    /** {@link #estimatedTokens} when {@link #providerTokens} was reported. */
+    private long estimateAtUsage = 0;
+    private final Map<String, Scan> userMessageScans = new ConcurrentHashMap<>();
+    private final Map<String, Scan> messageScans = new ConcurrentHashMap<>();
 
     public ThreadSafeMemory() {
         this(null);
@@ -35,12 +71,64 @@ public class ThreadSafeMemory {
     public ThreadSafeMemory(FileAgentHistoryStore store) {
         this.store = store;
         if (store != null) {
-            memory.addAll(store.load());
-            // getTokenCount(null, …) already returns the chars/3 estimate — no second /3
-            totalTokenUsed = ChatMessageUtil.getTokenCount(null, new ArrayList<>(memory));
+            loading = CompletableFuture.supplyAsync(store::load, r -> Thread.ofVirtual().name("peon-history-load").start(r))
+                    .exceptionally(e -> {
+                        log.error("Failed to load history of {}", store.historyFile().getFileName(), e);
+                        return List.of();
+                    });
+            loading.thenRun(this::awaitLoaded);
         }
     }
 
+    /** @return true once the persisted history is installed, reads then never wait */
+    public boolean isLoaded() {
+        var l = loading;
+        return l == null || l.isDone();
+    }
+
+    /**
+     * Runs the action once the persisted history is installed — right away if it already is, otherwise
+     * on the loading thread.
+     */
+    public void whenLoaded(Runnable action) {
+        var l = loading;
+        if (l == null) action.run();
+        else l.thenRun(() -> {
+            awaitLoaded();
+            action.run();
+        });
+    }
+
+    /**
+     * The persisted history is parsed in the background, so creating the agents does not block
+     * startup; a read or write before it is installed waits for it.
+     */
+    private State loaded() {
+        if (loading != null) awaitLoaded();
+        return state;
+    }
+
+    private void awaitLoaded() {
+        var l = loading;
+        if (l == null) return;
+        var messages = l.join();
+        writeLock.lock();
+        try {
+            if (loading == l) {
+                reset(messages);
+                publish(false);
+                loading = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int getTotalTokenUsed() {
+        loaded();
+        return totalTokenUsed;
+    }
+
     /**
      * 1. System-Messages nur am Anfang erlaubt
      * 2. Tool-Messages NUR nach Assistant-Messages MIT tool_calls erlaubt
@@ -49,72 +137,207 @@ public class ThreadSafeMemory {
      * 
      * https://developers.openai.com/api/docs/guides/function-calling
      */
-    public synchronized ThreadSafeMemory add(ChatMessage message) {
-        if (message instanceof UserMessage num 
-                && (!memory.isEmpty() && memory.getLast() instanceof UserMessage lum)) {
-            memory.removeLast();
-            memory.add(ChatMessageUtil.join(lum, num));
-            persist(new ArrayList<>(memory));
-        } else if (message instanceof UserMessage num 
-                && (!memory.isEmpty() && memory.getLast() instanceof ToolExecutionResultMessage tR)) {
-            // https://github.com/sterlp/eclipse-peon-ai/issues/87
-            // this can happen e.g. or rate limits or server errors...
-            log.warn("Detected tool result without AI response! {} - {}", tR.id(), tR.toolName());
-            var repair = AiMessage.from("ok");
-            memory.add(repair);
-            memory.add(num);
-            append(List.of(repair, num));
-        } else {
-            memory.add(message);
-            append(message);
+    public ThreadSafeMemory add(ChatMessage message) {
+        awaitLoaded();
+        writeLock.lock();
+        try {
+            var last = last();
+            if (message instanceof UserMessage num && last instanceof UserMessage lum) {
+                var messages = state.messages();
+                memory = new AppendOnlyArray<>(messages.subList(0, messages.size() - 1));
+                estimatedTokens -= lastEstimate;
+                var joined = ChatMessageUtil.join(lum, num);
+                appendMessage(joined);
+                publish(true);
+                replaceLast(joined);
+            } else if (message instanceof UserMessage num && last instanceof ToolExecutionResultMessage tR) {
+                // https://github.com/sterlp/eclipse-peon-ai/issues/87
+                // this can happen e.g. or rate limits or server errors...
+                log.warn("Detected tool result without AI response! {} - {}", tR.id(), tR.toolName());
+                var repair = AiMessage.from("ok");
+                appendMessage(repair);
+                appendMessage(num);
+                publish(false);
+                append(List.of(repair, num));
+            } else {
+                appendMessage(message);
+                publish(false);
+                append(message);
+            }
+        } finally {
+            writeLock.unlock();
         }
         return this;
     }
+
+    /** Guarded by {@link #writeLock}. */
+    @Nullable
+    private ChatMessage last() {
+        var messages = state.messages();
+        return messages.isEmpty() ? null : messages.getLast();
+    }
+
+    /** Guarded by {@link #writeLock}. */
+    private void appendMessage(ChatMessage message) {
+        memory.add(message);
+        lastEstimate = tokenEstimator.estimate(message);
+        estimatedTokens += lastEstimate;
+    }
+
+    /** Replaces all messages and forgets the provider usage; guarded by {@link #writeLock}. */
+    private void reset(@Nullable Collection<ChatMessage> messages) {
+        memory = new AppendOnlyArray<>();
+        estimatedTokens = 0;
+        lastEstimate = 0;
+        providerTokens = -1;
+        if (messages != null) messages.forEach(this::appendMessage);
+    }
+
+    /** Guarded by {@link #writeLock}. */
+    private void usageReported(ChatResponse response) {
+        var usage = ChatMessageUtil.tokenUsage(response);
+        if (usage != null && usage.totalTokenCount() != null) {
+            providerTokens = usage.totalTokenCount();
+            estimateAtUsage = estimatedTokens;
+        }
+    }
+
+    /** Publishes the written messages to the readers; guarded by {@link #writeLock}. */
+    private void publish(boolean rewritten) {
+        var current = state;
+        if (rewritten) {
+            userMessageScans.clear();
+            messageScans.clear();
+        }
+        state = new State(memory.snapshot(), rewritten ? current.generation() + 1 : current.generation());
+        // real usage plus the estimate of everything added since, or the pure estimate
+        long tokens = providerTokens < 0 ? estimatedTokens
+                : providerTokens + Math.max(0, estimatedTokens - estimateAtUsage);
+        totalTokenUsed = (int) Math.min(Integer.MAX_VALUE, tokens);
+    }
+
+    /**
+     * Tokenizer used whenever the provider reports no usage; re-estimates the current messages.
+     * Default is {@link TokenEstimator#CHARS_PER_TOKEN}.
+     */
+    public void setTokenEstimator(TokenEstimator tokenEstimator) {
+        awaitLoaded();
+        writeLock.lock();
+        try {
+            this.tokenEstimator = tokenEstimator == null ? TokenEstimator.CHARS_PER_TOKEN : tokenEstimator;
+            var usage = providerTokens;
+            reset(state.messages());
+            if (usage >= 0) {
+                // the estimates are not comparable anymore — the last real usage covers all messages
+                providerTokens = usage;
+                estimateAtUsage = estimatedTokens;
+            }
+            publish(false);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Changes whenever already stored messages are rewritten — plain appends keep the generation. */
+    public long getGeneration() {
+        return loaded().generation();
+    }
     
     /** @return true if this memory is backed by a history store (durable), false if RAM-only. */
     public boolean isPersistent() {
         return store != null;
     }
 
-    public synchronized boolean containsUserMessage(String message) {
+    /** Substring search over the {@link UserMessage}s, see {@link #contains(Map, String, Function)}. */
+    public boolean containsUserMessage(String message) {
         if (StringUtil.hasNoValue(message)) return true;
-        return memory.stream()
-            .filter(m -> m instanceof UserMessage)
-            .map(m -> (UserMessage)m)
-            .anyMatch(um -> ChatMessageUtil.toString(um).contains(message));
+        return contains(userMessageScans, message,
+                m -> m instanceof UserMessage ? ChatMessageUtil.toString(m) : null);
     }
     
-    public synchronized boolean containsMessage(String message) {
+    /** Substring search over user and tool result messages, see {@link #contains(Map, String, Function)}. */
+    public boolean containsMessage(String message) {
         if (StringUtil.hasNoValue(message)) return true;
-        return memory.stream()
-            .filter(m -> m instanceof UserMessage || m instanceof ToolExecutionResultMessage)
-            .map(m -> ChatMessageUtil.toString(m, 90000))
-            .anyMatch(um -> um.contains(message));
+        return contains(messageScans, message,
+                m -> m instanceof UserMessage || m instanceof ToolExecutionResultMessage
+                    ? ChatMessageUtil.toString(m, 90000) : null);
+    }
+
+    /**
+     * Incremental substring search: within one {@link #getGeneration() generation} messages are only
+     * appended, so a found query stays found and a missing one only has to be checked against the
+     * messages added since the last lookup. Each message is rendered at most once per query and
+     * generation, which keeps the per-turn context dedup O(1) instead of re-scanning the history.
+     */
+    private boolean contains(Map<String, Scan> scans, String query, Function<ChatMessage, String> toText) {
+        var current = loaded();
+        var messages = current.messages();
+        var scan = scans.get(query);
+        int from = 0;
+        if (scan != null && scan.generation() == current.generation()) {
+            if (scan.found()) return true;
+            from = scan.scanned();
+        }
+
+        var found = false;
+        for (int i = from; i < messages.size() && !found; i++) {
+            var text = toText.apply(messages.get(i));
+            found = text != null && text.contains(query);
+        }
+        if (scans.size() >= MAX_SCANS) scans.clear();
+        scans.put(query, new Scan(current.generation(), messages.size(), found));
+        return found;
     }
     
-    public synchronized List<ChatMessage> getCopy() {
-        return new ArrayList<>(memory);
+    public List<ChatMessage> getCopy() {
+        return new ArrayList<>(loaded().messages());
     }
     
-    public synchronized void addMemoryTo(Collection<ChatMessage> list) {
-        list.addAll(memory);
+    public void addMemoryTo(Collection<ChatMessage> list) {
+        list.addAll(loaded().messages());
     }
 
-    public synchronized int size() {
-        return memory.size();
+    /**
+     * Passes all messages from index {@code from} on to the consumer, but only if the memory is still
+     * of the given {@link #getGeneration() generation}. Lets callers mirror the memory by appending
+     * only the new messages.
+     *
+     * @return the current generation — if it differs from the given one nothing was passed
+     */
+    public long forEachSince(long generation, int from, Consumer<ChatMessage> consumer) {
+        var current = loaded();
+        if (generation != current.generation()) return current.generation();
+        var messages = current.messages();
+        for (int i = from; i < messages.size(); i++) consumer.accept(messages.get(i));
+        return generation;
+    }
+
+    public int size() {
+        return loaded().messages().size();
     }
     
-    public synchronized void clear() {
-        memory.clear();
-        totalTokenUsed = 0;
-        clearStore();
+    public void clear() {
+        awaitLoaded();
+        writeLock.lock();
+        try {
+            reset(null);
+            publish(true);
+            clearStore();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public synchronized void replaceAll(Collection<ChatMessage> messages) {
-        memory.clear();
-        if (messages != null) memory.addAll(messages);
-        totalTokenUsed = 0;
-        persist(new ArrayList<>(memory));
+    public void replaceAll(Collection<ChatMessage> messages) {
+        awaitLoaded();
+        writeLock.lock();
+        try {
+            reset(messages);
+            publish(true);
+            persist(state.messages());
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     public void printMessages() {
@@ -122,8 +345,8 @@ public class ThreadSafeMemory {
         log.info("Memory message types: {}", flow);
     }
 
-    public synchronized String messageFlow() {
-        String flow = memory.stream()
+    public String messageFlow() {
+        String flow = loaded().messages().stream()
                 .map(this::messageType)
                 .collect(Collectors.joining("->"));
         return flow;
@@ -135,42 +358,56 @@ public class ThreadSafeMemory {
         return cm.type().name();
     }
 
-    public synchronized void addResult(ChatResponse response, List<ToolExecutionResultMessage> toolResult) {
-        var appended = new ArrayList<ChatMessage>();
-        var aiMessage = response.aiMessage();
-        memory.add(aiMessage);
-        memory.addAll(toolResult);
-        appended.add(aiMessage);
-        appended.addAll(toolResult);
-        totalTokenUsed = ChatMessageUtil.getTokenCount(response, memory);
-        append(appended);
+    public void addResult(ChatResponse response, List<ToolExecutionResultMessage> toolResult) {
+        awaitLoaded();
+        writeLock.lock();
+        try {
+            var appended = new ArrayList<ChatMessage>();
+            var aiMessage = response.aiMessage();
+            appendMessage(aiMessage);
+            usageReported(response);
+            toolResult.forEach(this::appendMessage);
+            publish(false);
+            appended.add(aiMessage);
+            appended.addAll(toolResult);
+            append(appended);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public synchronized void addResult(ChatResponse response) {
-        var message = response.aiMessage();
-        memory.add(message);
-        totalTokenUsed = ChatMessageUtil.getTokenCount(response, memory);
-        append(message);
+    public void addResult(ChatResponse response) {
+        awaitLoaded();
+        writeLock.lock();
+        try {
+            var message = response.aiMessage();
+            appendMessage(message);
+            usageReported(response);
+            publish(false);
+            append(message);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public synchronized void forEach(Consumer<ChatMessage> consumer) {
-        this.memory.forEach(consumer);
+    /** Iterates a snapshot — messages added meanwhile are not visited. */
+    public void forEach(Consumer<ChatMessage> consumer) {
+        loaded().messages().forEach(consumer);
     }
 
     @Nullable
-    public synchronized <T extends ChatMessage> T getLastOf(Class<T> type) {
-        var it = memory.listIterator(memory.size());
-        while (it.hasPrevious()) {
-            ChatMessage m = it.previous();
-            if (type.isInstance(m)) {
-                return (T)m;
-            }
+    @SuppressWarnings("unchecked")
+    public <T extends ChatMessage> T getLastOf(Class<T> type) {
+        var messages = loaded().messages();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            var m = messages.get(i);
+            if (type.isInstance(m)) return (T) m;
         }
         return null;
     }
 
-    public synchronized ChatMessage get(int index) {
-        return this.memory.get(index);
+    public ChatMessage get(int index) {
+        return loaded().messages().get(index);
     }
 
     private void append(ChatMessage message) {
@@ -195,6 +432,17 @@ public class ThreadSafeMemory {
         }
     }
 
+    private void replaceLast(ChatMessage message) {
+        var s = store;
+        if (s == null) return;
+        try {
+            s.replaceLast(message);
+        } catch (IOException e) {
+            store = null;
+            throw new RuntimeException("Failed to append chat history", e);
+        }
+    }
+
     private void persist(List<ChatMessage> messages) {
         var s = store;
         if (s == null) return;
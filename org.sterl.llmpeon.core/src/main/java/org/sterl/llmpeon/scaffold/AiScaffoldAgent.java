@@ -9,6 +9,7 @@ import org.sterl.llmpeon.tool.tools.DiskFileReadTool;
 import org.sterl.llmpeon.tool.tools.DiskFileWriteTool;
 import org.sterl.llmpeon.tool.tools.DiskGrepTool;
 import org.sterl.llmpeon.tool.tools.WebFetchTool;
+import org.sterl.llmpeon.tool.tools.WebPageCache;
 
 import dev.langchain4j.model.chat.response.ChatResponse;
 
@@ -39,7 +40,7 @@ public class AiScaffoldAgent extends org.sterl.llmpeon.agent.AbstractAgent {
         toolService.addTool(diskFileReadTool);
         toolService.addTool(diskFileWriteTool);
         toolService.addTool(diskGrepTool);
-        toolService.addTool(new WebFetchTool());
+        toolService.addTool(new WebFetchTool(WebPageCache.of(configDir)));
     }
 
     @Override
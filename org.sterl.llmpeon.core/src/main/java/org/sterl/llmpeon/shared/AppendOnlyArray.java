@@ -0,0 +1,74 @@
+package org.sterl.llmpeon.shared;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Array which only grows at the end. A slot once part of a {@link #snapshot()} is never written
+ * again, so snapshots are immutable list views sharing the array — no copy per read.
+ * <p>
+ * Single writer: guard {@link #add(Object)} with a lock. Snapshots may be read from any thread once
+ * published through a {@code volatile} field or a lock.
+ */
+public final class AppendOnlyArray<T> {
+
+    private Object[] elements;
+    private int size;
+
+    public AppendOnlyArray() {
+        this(16);
+    }
+
+    public AppendOnlyArray(int capacity) {
+        this.elements = new Object[Math.max(1, capacity)];
+    }
+
+    public AppendOnlyArray(Collection<? extends T> values) {
+        this(values == null ? 16 : values.size() + 16);
+        if (values != null) addAll(values);
+    }
+
+    public void add(T value) {
+        if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+        elements[size++] = value;
+    }
+
+    public void addAll(Collection<? extends T> values) {
+        for (var v : values) add(v);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Immutable view of the current elements — later appends are not visible in it. */
+    public List<T> snapshot() {
+        if (size == 0) return List.of();
+        return new Snapshot<>(elements, size);
+    }
+
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] elements;
+        private final int size;
+
+        Snapshot(Object[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return (T) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
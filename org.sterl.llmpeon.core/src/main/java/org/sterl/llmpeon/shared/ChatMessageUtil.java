@@ -34,13 +34,9 @@ public class ChatMessageUtil {
         return tokenUsage;
     }
     private static int estimateTokens(List<ChatMessage> messages) {
-        int chars = 0;
-        for (var msg : messages) chars += charCount(msg);
-        return chars / 3;
-    }
-
-    private static int charCount(ChatMessage msg) {
-        return toString(msg).length();
+        int tokens = 0;
+        for (var msg : messages) tokens += TokenEstimator.CHARS_PER_TOKEN.estimate(msg);
+        return tokens;
     }
 
     public static UserMessage join(UserMessage m1, UserMessage m2) {
@@ -0,0 +1,254 @@
+package org.sterl.llmpeon.shared;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Case-insensitive search of one grep query, compiled once and used for many files.
+ * <p>
+ * Plain ASCII queries — the common case — are searched with Boyer-Moore-Horspool directly on the
+ * bytes of the file, folding the case per byte instead of lowering a copy of the content. In UTF-8
+ * every byte of a multi-byte character is {@code >= 0x80}, so an ASCII query never matches inside
+ * one. Regex and non-ASCII queries run a {@link Pattern} on the decoded content, limited to a number of
+ * steps per char: once a regex backtracks beyond it, it continues on the {@link LinearRegex} if it is
+ * in its subset, otherwise the search fails — a catastrophic regex like {@code (a+)+b} cannot pin a
+ * CPU core. Counts are non-overlapping, like {@link RegexUtils#countOccurrences(String, String)}.
+ * <p>
+ * Matchers are immutable and cached per query, all grep tools share the cache.
+ */
+public final class ContentMatcher {
+
+    private static final int MAX_CACHED = 64;
+    /** Steps per char of the content a {@link Pattern} takes at most before the linear engine takes over. */
+    static final int STEPS_PER_CHAR = 100;
+    /** Steps per char for a regex beyond the linear subset, the search fails after them. */
+    static final int MAX_STEPS_PER_CHAR = 1_000;
+    /** Steps for any content on top, a short file is never worth the switch. */
+    private static final int BASE_STEPS = 1_000_000;
+
+    /** Guarded by itself, least recently used first. */
+    private static final Map<String, ContentMatcher> CACHE = new LinkedHashMap<>(MAX_CACHED, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ContentMatcher> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    /** A regex needs more steps than allowed for one content, e.g. by nested quantifiers. */
+    public static final class TooExpensiveException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        public TooExpensiveException(String message) {
+            super(message);
+        }
+    }
+
+    private static final byte[] LOWER = new byte[256];
+    static {
+        for (int i = 0; i < 256; i++) LOWER[i] = (byte) (i >= 'A' && i <= 'Z' ? i + 32 : i);
+    }
+
+    private final String query;
+    /** Lowered ASCII query for the byte search, {@code null} if a regex is used. */
+    private final byte[] literal;
+    private final int[] shift;
+    /** {@code null} if the query is not in its subset. */
+    private final LinearRegex linear;
+    private final Pattern pattern;
+    /** Set once the pattern backtracked beyond the limit, further contents go to {@link #linear}. */
+    private volatile boolean backtracks;
+
+    private ContentMatcher(String query, byte[] literal, LinearRegex linear, Pattern pattern) {
+        this.query = query;
+        this.literal = literal;
+        this.linear = linear;
+        this.pattern = pattern;
+        this.shift = literal == null ? null : shiftTable(literal);
+    }
+
+    /**
+     * @return the cached matcher of the query
+     * @throws IllegalArgumentException if the query is an invalid regex
+     */
+    public static ContentMatcher of(String query) {
+        ArgsUtil.requireNonBlank(query, "query");
+        ContentMatcher result;
+        synchronized (CACHE) {
+            result = CACHE.get(query);
+        }
+        if (result != null) return result;
+
+        result = compile(query);
+        synchronized (CACHE) {
+            CACHE.put(query, result);
+        }
+        return result;
+    }
+
+    private static ContentMatcher compile(String query) {
+        if (RegexUtils.isRegexPattern(query)) {
+            // validates the regex, LinearRegex expects a valid one
+            var pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
+            return new ContentMatcher(query, null, LinearRegex.compile(query), pattern);
+        }
+        if (query.chars().allMatch(c -> c < 128)) {
+            var bytes = query.getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < bytes.length; i++) bytes[i] = LOWER[bytes[i] & 0xff];
+            return new ContentMatcher(query, bytes, null, null);
+        }
+        return new ContentMatcher(query, null, null,
+                Pattern.compile(Pattern.quote(query), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+    }
+
+    /** Counts the matches in UTF-8 content, between its position and limit. */
+    public int count(ByteBuffer content) {
+        if (literal != null) return countLiteral(content);
+        return count(decode(content));
+    }
+
+    public int count(CharSequence content) {
+        var count = new int[1];
+        forEach(content, start -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Passes the start of each match to the consumer, in order, until it returns {@code false}.
+     *
+     * @throws TooExpensiveException if the regex needs too many steps for the content
+     */
+    public void forEach(CharSequence content, IntPredicate onMatch) {
+        if (literal == null) {
+            regex(content, onMatch);
+            return;
+        }
+        final int m = literal.length;
+        final int last = m - 1;
+        final int end = content.length() - m;
+        int i = 0;
+        while (i <= end) {
+            int j = last;
+            while (j >= 0 && lower(content.charAt(i + j)) == literal[j]) j--;
+            if (j < 0) {
+                if (!onMatch.test(i)) return;
+                i += m;
+            } else {
+                i += shift[lower(content.charAt(i + last)) & 0xff];
+            }
+        }
+    }
+
+    private void regex(CharSequence content, IntPredicate onMatch) {
+        if (backtracks) {
+            linear.forEach(content, onMatch);
+            return;
+        }
+        int reported = 0;
+        try {
+            var m = pattern.matcher(new StepLimit(content, linear == null ? MAX_STEPS_PER_CHAR : STEPS_PER_CHAR));
+            while (m.find()) {
+                ++reported;
+                if (!onMatch.test(m.start())) return;
+            }
+        } catch (TooExpensiveException e) {
+            if (linear == null) throw e;
+            backtracks = true;
+            // both find the same matches, skip the ones already passed on
+            var skip = new int[] {reported};
+            linear.forEach(content, start -> skip[0]-- > 0 || onMatch.test(start));
+        }
+    }
+
+    private int countLiteral(ByteBuffer content) {
+        final int m = literal.length;
+        final int last = m - 1;
+        final int end = content.limit() - m;
+        int count = 0;
+        int i = content.position();
+        while (i <= end) {
+            int j = last;
+            while (j >= 0 && LOWER[content.get(i + j) & 0xff] == literal[j]) j--;
+            if (j < 0) {
+                count++;
+                i += m;
+            } else {
+                i += shift[LOWER[content.get(i + last) & 0xff] & 0xff];
+            }
+        }
+        return count;
+    }
+
+    /** Non-ASCII chars map to a byte no ASCII query contains. */
+    private static byte lower(char c) {
+        return c < 128 ? LOWER[c] : (byte) 0x80;
+    }
+
+    private static int[] shiftTable(byte[] literal) {
+        var shift = new int[256];
+        Arrays.fill(shift, literal.length);
+        for (int i = 0; i < literal.length - 1; i++) {
+            int b = literal[i] & 0xff;
+            shift[b] = literal.length - 1 - i;
+        }
+        return shift;
+    }
+
+    /** Counts the chars a backtracking {@link Pattern} reads and stops it once the limit is used up. */
+    private final class StepLimit implements CharSequence {
+        private final CharSequence content;
+        private long steps;
+
+        StepLimit(CharSequence content, int stepsPerChar) {
+            this.content = content;
+            this.steps = BASE_STEPS + (long) stepsPerChar * content.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--steps < 0) {
+                throw new TooExpensiveException("Regex '" + query + "' needs too many steps for a file of "
+                        + content.length() + " chars, simplify it - e.g. no nested quantifiers like (a+)+");
+            }
+            return content.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return content.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return content.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return content.toString();
+        }
+    }
+
+    /** Decodes without failing on malformed input, like a lenient editor would show it. */
+    private static CharBuffer decode(ByteBuffer content) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(content.duplicate());
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException("REPLACE never throws", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.sterl.llmpeon.shared;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link FileNameIndex} of a directory tree on disk, without ignored files and directories.
+ * <p>
+ * A refresh only checks the modification time of each known directory — adding, removing or
+ * renaming an entry changes it — and lists just the changed directories again, instead of visiting
+ * every file. Changes to ignore files apply to the directories listed after them.
+ */
+public final class DiskFileIndex {
+
+    /** A directory changed this recently may change again within the same time stamp, list it again. */
+    private static final long RACY_MILLIS = 2_000;
+
+    private record Dir(FileTime modified, List<Path> subDirs, List<String> files) {}
+
+    private final FileNameIndex names = new FileNameIndex();
+    /** Guarded by {@code this}. */
+    private final Map<Path, Dir> dirs = new HashMap<>();
+    private Path root;
+    private List<String> defaultIgnores;
+
+    /** Brings the index up to date with the directory tree below root. */
+    public synchronized DiskFileIndex refresh(Path root, List<String> defaultIgnores) {
+        root = root.toAbsolutePath().normalize();
+        if (!root.equals(this.root) || !defaultIgnores.equals(this.defaultIgnores)) {
+            this.root = root;
+            this.defaultIgnores = defaultIgnores;
+            dirs.clear();
+            names.clear();
+        }
+        var ignore = new IgnoreRules(root, defaultIgnores);
+        var seen = new HashSet<Path>();
+        refresh(root, ignore, seen);
+
+        for (var it = dirs.entrySet().iterator(); it.hasNext();) {
+            var e = it.next();
+            if (seen.contains(e.getKey())) continue;
+            e.getValue().files().forEach(names::remove);
+            it.remove();
+        }
+        return this;
+    }
+
+    /** @see FileNameIndex#search(String, int) */
+    public List<String> search(String query, int limit) {
+        return names.search(query, limit);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private void refresh(Path dir, IgnoreRules ignore, Set<Path> seen) {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return; // deleted meanwhile, dropped as not seen
+        }
+        seen.add(dir);
+        var known = dirs.get(dir);
+        if (known == null || known.modified() == null || !known.modified().equals(modified)) {
+            if (known != null) known.files().forEach(names::remove);
+            boolean racy = System.currentTimeMillis() - modified.toMillis() < RACY_MILLIS;
+            known = list(dir, racy ? null : modified, ignore);
+            names.addAll(known.files());
+            dirs.put(dir, known);
+        }
+        for (var sub : known.subDirs()) refresh(sub, ignore, seen);
+    }
+
+    private static Dir list(Path dir, FileTime modified, IgnoreRules ignore) {
+        var subDirs = new ArrayList<Path>();
+        var files = new ArrayList<String>();
+        try (var entries = Files.newDirectoryStream(dir)) {
+            for (var entry : entries) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    if (!ignore.isIgnored(entry, true)) subDirs.add(entry);
+                } else if (Files.isRegularFile(entry) && !ignore.isIgnored(entry, false)) {
+                    files.add(entry.toAbsolutePath().toString());
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // unreadable, listed again with the next change
+        }
+        return new Dir(modified, subDirs, files);
+    }
+}
@@ -1,20 +1,23 @@
 package org.sterl.llmpeon.shared;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 //https://github.com/sterlp/eclipse-peon-ai/pull/58
 //https://github.com/sterlp/eclipse-peon-ai/issues/57
 public class FileLines {
 
+    /** The last lines of the content, found from the end without splitting the whole content. */
     public static String tail(String content, int lines) {
-        String[] split = content.split("\n", -1);
-        if (split.length <= lines) {
-            return content;
-        }
-        StringBuilder sb = new StringBuilder();
-        for (int i = split.length - lines; i < split.length; i++) {
-            if (i > split.length - lines) sb.append('\n');
-            sb.append(split[i]);
+        if (lines <= 0) return "";
+        int start = content.length();
+        for (int i = 0; i < lines; i++) {
+            start = content.lastIndexOf('\n', start - 1);
+            if (start < 0) return content;
         }
-        return sb.toString();
+        return content.substring(start + 1);
     }
 
     /**
@@ -73,6 +76,32 @@ public class FileLines {
         return sb.toString();
     }
 
+    /**
+     * Like {@link #extract(String, int, int)}, but reads only the requested lines of the indexed file.
+     * If both bounds are 0, all lines are returned with line numbers.
+     */
+    public static String extract(LineIndex index, int startLine, int endLine) throws IOException {
+        int total = index.lineCount();
+        int s = startLine <= 0 ? 1 : startLine;
+        int e = endLine   <= 0 ? total : Math.min(endLine, total);
+        if (s > e) { int tmp = s; s = e; e = tmp; }
+        // something is messy
+        if (s > total || e > total) { s = 1; e = total; }
+
+        return format(index.read(s, e), s, index.lineEnding());
+    }
+
+    /**
+     * Formats already split lines with line numbers, starting from {@code startLine}.
+     */
+    public static String format(List<String> lines, int startLine, String lineEnding) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            appendLine(sb, startLine + i, lines.get(i), lineEnding);
+        }
+        return sb.toString();
+    }
+
     /**
      * Replaces lines [startLine, endLine] (1-based, inclusive) with {@code replacement}.
      * start &gt; end is swapped. Out-of-range bounds are clamped to the file size.
@@ -124,6 +153,79 @@ public class FileLines {
         return String.join(lineEnding, lines);
     }
 
+    /**
+     * Lists the lines containing a match like {@code grep -n -B before -A after}: matching lines as
+     * {@code "12: line"}, context lines as {@code "11- line"}, non-adjacent groups separated by {@code --}.
+     * Over-long lines are cut.
+     *
+     * @param maxLines matching lines to list, further ones are only counted
+     * @return the listed lines, empty if nothing matched
+     */
+    public static String matches(String content, ContentMatcher matcher, int before, int after, int maxLines) {
+        if (content == null || content.isEmpty()) return "";
+        before = Math.max(0, before);
+        after = Math.max(0, after);
+
+        var starts = lineStarts(content);
+        var matched = new ArrayList<Integer>();
+        var more = new int[1];
+        var lastLine = new int[] {-1};
+        matcher.forEach(content, offset -> {
+            int line = lineOf(starts, offset);
+            if (line == lastLine[0]) return true;
+            lastLine[0] = line;
+            if (matched.size() < maxLines) matched.add(line);
+            else ++more[0];
+            return true;
+        });
+
+        var sb = new StringBuilder();
+        int printed = -1; // last printed line
+        for (int i = 0; i < matched.size(); i++) {
+            int line = matched.get(i);
+            int from = Math.max(printed + 1, line - before);
+            if (printed >= 0 && from > printed + 1) sb.append("--").append('\n');
+            int to = Math.min(starts.length - 1, line + after);
+            // stop the context before the next match, it is printed as match
+            if (i + 1 < matched.size()) to = Math.min(to, matched.get(i + 1) - 1);
+            for (int l = from; l <= to; l++) {
+                appendMatchLine(sb, l + 1, l == line ? ':' : '-', line(content, starts, l));
+            }
+            printed = Math.max(printed, to);
+        }
+        if (more[0] > 0) sb.append("... ").append(more[0]).append(" more matching line(s)").append('\n');
+        return sb.toString();
+    }
+
+    private static final int MAX_LINE_CHARS = 300;
+
+    private static int[] lineStarts(String content) {
+        int count = 1;
+        for (int i = 0; i < content.length(); i++) if (content.charAt(i) == '\n') ++count;
+        var starts = new int[count];
+        for (int i = 0, l = 1; i < content.length(); i++) if (content.charAt(i) == '\n') starts[l++] = i + 1;
+        return starts;
+    }
+
+    private static int lineOf(int[] starts, int offset) {
+        int i = Arrays.binarySearch(starts, offset);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private static String line(String content, int[] starts, int line) {
+        int end = line + 1 < starts.length ? starts[line + 1] - 1 : content.length();
+        if (end > starts[line] && content.charAt(end - 1) == '\r') --end;
+        if (end - starts[line] > MAX_LINE_CHARS) return content.substring(starts[line], starts[line] + MAX_LINE_CHARS) + " ...";
+        return content.substring(starts[line], end);
+    }
+
+    private static void appendMatchLine(StringBuilder sb, int n, char separator, String line) {
+        if      (n <    10) sb.append("   ");
+        else if (n <   100) sb.append("  ");
+        else if (n <  1000) sb.append(' ');
+        sb.append(n).append(separator).append(' ').append(line).append('\n');
+    }
+
     private static void appendLine(StringBuilder sb, int n, String line, String lineEnding) {
         if      (n <    10) sb.append("   ");
         else if (n <   100) sb.append("  ");
@@ -0,0 +1,198 @@
+package org.sterl.llmpeon.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of file paths for the file search tools, queried by wildcard, exact file name or
+ * fuzzy (camel case humps or subsequence of the file name).
+ * <p>
+ * Changes are cheap map updates; the first query after a change sorts a fresh snapshot, which all
+ * following queries scan without locking. Thread-safe.
+ */
+public final class FileNameIndex {
+
+    /**
+     * @param path      as returned to the caller
+     * @param lowerPath normalized with {@code /} and lower case, to match against
+     * @param nameStart index of the file name in both paths
+     */
+    private record Entry(String path, String lowerPath, int nameStart) {
+        String name() {
+            return path.substring(nameStart);
+        }
+    }
+
+    /** Guarded by {@code this}. */
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** Guarded by {@code this}, file name to paths. */
+    private final Map<String, List<Entry>> byName = new HashMap<>();
+    /** Sorted by path, {@code null} after a change. */
+    private volatile Entry[] snapshot = new Entry[0];
+
+    public synchronized void add(String path) {
+        if (entries.containsKey(path)) return;
+        var normalized = FileUtils.normalizePath(path);
+        var entry = new Entry(path, normalized.toLowerCase(), normalized.lastIndexOf('/') + 1);
+        entries.put(path, entry);
+        byName.computeIfAbsent(entry.name(), n -> new ArrayList<>(1)).add(entry);
+        snapshot = null;
+    }
+
+    public synchronized void addAll(Collection<String> paths) {
+        paths.forEach(this::add);
+    }
+
+    public synchronized void remove(String path) {
+        var entry = entries.remove(path);
+        if (entry == null) return;
+        var sameName = byName.get(entry.name());
+        sameName.remove(entry);
+        if (sameName.isEmpty()) byName.remove(entry.name());
+        snapshot = null;
+    }
+
+    /** Removes the directory and everything below it. */
+    public synchronized void removeUnder(String dir) {
+        var prefix = FileUtils.normalizePath(dir).toLowerCase();
+        var below = prefix.endsWith("/") ? prefix : prefix + "/";
+        entries.values().stream()
+            .filter(e -> e.lowerPath().equals(prefix) || e.lowerPath().startsWith(below))
+            .map(Entry::path)
+            .toList()
+            .forEach(this::remove);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        byName.clear();
+        snapshot = null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** @return the paths of all files with exactly this name, sorted */
+    public synchronized List<String> byName(String name) {
+        var result = byName.get(name);
+        if (result == null) return List.of();
+        return result.stream().map(Entry::path).sorted().toList();
+    }
+
+    /**
+     * Finds files whose name or path matches the query like {@link StringMatcher#wildCardMatcher(String)}
+     * — a query without {@code *} or {@code ?} matches anywhere in the path. If nothing matches, a
+     * plain query is matched fuzzy against the file names, best matches first.
+     *
+     * @param limit max results, 0 for all wildcard matches and 50 fuzzy ones
+     */
+    public List<String> search(String query, int limit) {
+        ArgsUtil.requireNonBlank(query, "query");
+        query = FileUtils.normalizePath(query);
+        var entries = snapshot();
+        var matcher = StringMatcher.wildCardMatcher(query);
+        var literal = longestLiteral(query.toLowerCase());
+
+        var result = new ArrayList<String>();
+        for (var e : entries) {
+            // cheap pre-check before the wildcard matcher
+            if (!e.lowerPath().contains(literal)) continue;
+            if (matcher.match(e.lowerPath(), e.nameStart(), e.lowerPath().length()) || matcher.match(e.lowerPath())) {
+                result.add(e.path());
+                if (limit > 0 && result.size() >= limit) break;
+            }
+        }
+        if (result.isEmpty() && query.indexOf('*') < 0 && query.indexOf('?') < 0 && query.indexOf('/') < 0) {
+            return fuzzy(entries, query, limit > 0 ? limit : 50);
+        }
+        return result;
+    }
+
+    private static List<String> fuzzy(Entry[] entries, String query, int limit) {
+        record Hit(Entry entry, int score) {}
+        var lowerQuery = query.toLowerCase();
+        var hits = new ArrayList<Hit>();
+        for (var e : entries) {
+            int score = fuzzyScore(lowerQuery, e.name());
+            if (score >= 0) hits.add(new Hit(e, score));
+        }
+        return hits.stream()
+                .sorted(Comparator.comparingInt(Hit::score).thenComparing(h -> h.entry().path()))
+                .limit(limit)
+                .map(h -> h.entry().path())
+                .toList();
+    }
+
+    /**
+     * Scores how well the lower case query matches the file name, lower is better:
+     * camel case humps like {@code fsr} or {@code fooserrep} for {@code FooServiceRepository.java}
+     * first, then any subsequence of the name; shorter names and fewer skipped chars first.
+     *
+     * @return -1 if the query is no subsequence of the name
+     */
+    static int fuzzyScore(String lowerQuery, String name) {
+        int skipped = match(lowerQuery, name, true);
+        if (skipped >= 0) return skipped * 100 + Math.min(99, name.length());
+        skipped = match(lowerQuery, name, false);
+        if (skipped >= 0) return 100_000 + skipped * 100 + Math.min(99, name.length());
+        return -1;
+    }
+
+    /**
+     * @param humps only accept chars continuing the last match or starting a camel case hump
+     * @return the chars skipped between the first and the last match, -1 if not matching
+     */
+    private static int match(String lowerQuery, String name, boolean humps) {
+        int q = 0;
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < name.length() && q < lowerQuery.length(); i++) {
+            if (Character.toLowerCase(name.charAt(i)) != lowerQuery.charAt(q)) continue;
+            if (humps && i > 0 && i != last + 1 && !isHumpStart(name, i)) continue;
+            if (first < 0) first = i;
+            last = i;
+            q++;
+        }
+        if (q < lowerQuery.length()) return -1;
+        return last - first + 1 - lowerQuery.length();
+    }
+
+    private static boolean isHumpStart(String name, int i) {
+        char c = name.charAt(i);
+        char before = name.charAt(i - 1);
+        return Character.isUpperCase(c) && !Character.isUpperCase(before)
+                || Character.isLetterOrDigit(c) && !Character.isLetterOrDigit(before)
+                || Character.isDigit(c) && !Character.isDigit(before);
+    }
+
+    /** The longest run without wildcards, every match contains it. */
+    private static String longestLiteral(String lowerQuery) {
+        if (lowerQuery.indexOf('\\') >= 0) return ""; // escaped wildcards
+        var longest = "";
+        for (var part : lowerQuery.split("[*?]")) {
+            if (part.length() > longest.length()) longest = part;
+        }
+        return longest;
+    }
+
+    private Entry[] snapshot() {
+        var result = snapshot;
+        if (result == null) {
+            synchronized (this) {
+                result = snapshot;
+                if (result == null) {
+                    result = entries.values().toArray(Entry[]::new);
+                    Arrays.sort(result, Comparator.comparing(Entry::path));
+                    snapshot = result;
+                }
+            }
+        }
+        return result;
+    }
+}
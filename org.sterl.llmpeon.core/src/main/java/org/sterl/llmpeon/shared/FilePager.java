@@ -0,0 +1,139 @@
+package org.sterl.llmpeon.shared;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Pages through large files for the read tools: instead of the whole file the model gets a summary
+ * of head, outline and tail with the line ranges to read next, and reads them page by page.
+ * <p>
+ * All reads go through the {@link LineIndex} and read one page at a time, with over-long lines cut —
+ * the heap used does not grow with the file size.
+ */
+public final class FilePager {
+
+    /** Larger files are paged. */
+    public static final long LARGE_FILE_BYTES = 256 * 1024;
+    /** Max lines returned by one read. */
+    public static final int PAGE_LINES = 500;
+
+    private static final int HEAD_LINES = 30;
+    private static final int TAIL_LINES = 20;
+    private static final int MAX_OUTLINE_LINES = 40;
+    private static final int MAX_PAGE_RANGES = 6;
+    private static final int MAX_LINE_BYTES = 500;
+    /** Declarations, headings and errors, to see where to read on. */
+    private static final Pattern OUTLINE = Pattern.compile(
+            "^\\s*(#{1,6} |((public|protected|private|static|abstract|final|export|default|async)\\s+)*"
+            + "(class|interface|enum|record|def|function|func|fn|module|namespace)\\s)"
+            + "|\\b(ERROR|FATAL|SEVERE)\\b|^\\S+(Exception|Error)\\b");
+
+    private FilePager() {}
+
+    public static boolean isLarge(Path file) {
+        try {
+            return Files.size(file) > LARGE_FILE_BYTES;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads one page of the file: the {@link #summary(Path)} if no or no valid range is given,
+     * otherwise lines [startLine, endLine] with line numbers — at most {@value #PAGE_LINES}, followed
+     * by the range to continue with.
+     */
+    public static String read(Path file, int startLine, int endLine) throws IOException {
+        return read(file, StandardCharsets.UTF_8, startLine, endLine);
+    }
+
+    /** Like {@link #read(Path, int, int)}, for a file in the given charset. */
+    public static String read(Path file, Charset charset, int startLine, int endLine) throws IOException {
+        var index = LineIndex.of(file, charset);
+        int total = index.lineCount();
+        int s = startLine <= 0 ? 1 : startLine;
+        int e = endLine   <= 0 ? total : Math.min(endLine, total);
+        if (s > e) { int tmp = s; s = e; e = tmp; }
+        if (startLine <= 0 && endLine <= 0 || s > total) return summary(file, index);
+
+        int last = Math.min(e, s + PAGE_LINES - 1);
+        var result = FileLines.format(index.read(s, last, MAX_LINE_BYTES), s, "\n");
+        if (last < e) {
+            result += "... " + PAGE_LINES + " lines per read, continue with startLine=" + (last + 1)
+                    + " endLine=" + Math.min(e, last + PAGE_LINES) + "\n";
+        }
+        return result;
+    }
+
+    /**
+     * Head, outline and tail of the file with line numbers, and the page ranges to read.
+     */
+    public static String summary(Path file) throws IOException {
+        return summary(file, StandardCharsets.UTF_8);
+    }
+
+    /** Like {@link #summary(Path)}, for a file in the given charset. */
+    public static String summary(Path file, Charset charset) throws IOException {
+        return summary(file, LineIndex.of(file, charset));
+    }
+
+    private static String summary(Path file, LineIndex index) throws IOException {
+        int total = index.lineCount();
+        int headEnd = Math.min(HEAD_LINES, total);
+        int tailStart = Math.max(headEnd + 1, total - TAIL_LINES + 1);
+
+        var sb = new StringBuilder();
+        sb.append("Large file ").append(file).append(": ").append(index.size() / 1024).append(" KB, ")
+          .append(total).append(" lines - only head, outline and tail are shown.\n")
+          .append("Read it in pages of up to ").append(PAGE_LINES).append(" lines with startLine/endLine: ")
+          .append(pageRanges(total)).append('\n');
+
+        sb.append("--- head ---\n");
+        sb.append(FileLines.format(index.read(1, headEnd, MAX_LINE_BYTES), 1, "\n"));
+        if (tailStart > headEnd + 1) {
+            sb.append("--- outline ---\n");
+            sb.append(outline(index, headEnd + 1, tailStart - 1));
+        }
+        if (tailStart <= total) {
+            sb.append("--- tail ---\n");
+            sb.append(FileLines.format(index.read(tailStart, total, MAX_LINE_BYTES), tailStart, "\n"));
+        }
+        return sb.toString();
+    }
+
+    /** Matching lines between from and to, read page by page. */
+    private static String outline(LineIndex index, int from, int to) throws IOException {
+        var sb = new StringBuilder();
+        int found = 0;
+        for (int page = from; page <= to && found < MAX_OUTLINE_LINES; page += PAGE_LINES) {
+            var lines = index.read(page, Math.min(to, page + PAGE_LINES - 1), MAX_LINE_BYTES);
+            for (int i = 0; i < lines.size() && found < MAX_OUTLINE_LINES; i++) {
+                if (!OUTLINE.matcher(lines.get(i)).find()) continue;
+                sb.append(FileLines.format(List.of(lines.get(i)), page + i, "\n"));
+                ++found;
+            }
+        }
+        if (found == 0) sb.append("(no declarations or errors found)\n");
+        else if (found == MAX_OUTLINE_LINES) sb.append("... outline cut after ").append(found).append(" lines\n");
+        return sb.toString();
+    }
+
+    private static String pageRanges(int total) {
+        var ranges = new ArrayList<String>();
+        int pages = (total + PAGE_LINES - 1) / PAGE_LINES;
+        for (int p = 0; p < pages; p++) {
+            if (p == MAX_PAGE_RANGES - 1 && pages > MAX_PAGE_RANGES) {
+                ranges.add("...");
+                p = pages - 1;
+            }
+            ranges.add((p * PAGE_LINES + 1) + "-" + Math.min(total, (p + 1) * PAGE_LINES));
+        }
+        return String.join(", ", ranges);
+    }
+}
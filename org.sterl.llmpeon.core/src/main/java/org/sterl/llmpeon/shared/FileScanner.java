@@ -0,0 +1,203 @@
+package org.sterl.llmpeon.shared;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Scans many files in parallel on a shared work-stealing pool, used by the grep tools.
+ * <p>
+ * The caller decides per file how to count — e.g. ask an index first, then {@link #read(Path)} the
+ * bytes and run a {@link ContentMatcher} on them. The scan stops reading further files as soon as
+ * {@code maxFiles} matching files are found.
+ */
+public final class FileScanner {
+
+    /** Larger files are skipped, they are hardly source files. */
+    public static final int MAX_FILE_BYTES = 32 * 1024 * 1024;
+    /** A NUL byte in the first block marks a binary file. */
+    private static final int SNIFF_BYTES = 8 * 1024;
+    private static final int CHUNK_BYTES = 64 * 1024;
+    /** Larger read buffers are not kept for the next file. */
+    private static final int KEEP_BUFFER_BYTES = 1024 * 1024;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.clamp(Runtime.getRuntime().availableProcessors(), 1, 8));
+    /** Files of a list counted in parallel before the found ones are checked. */
+    private static final int LIST_CHUNK = 64;
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(CHUNK_BYTES));
+
+    private FileScanner() {}
+
+    public record Match<T>(T file, int count) {}
+
+    @FunctionalInterface
+    public interface Counter<T> {
+        /** @return the matches in the file, 0 to skip it */
+        int count(T file) throws IOException;
+    }
+
+    /**
+     * Counts the matches of the given files in parallel.
+     *
+     * @return at most {@code maxFiles} matching files, in the order of the given list
+     */
+    public static <T> List<Match<T>> scan(List<T> files, Counter<T> counter, int maxFiles) {
+        var counts = new int[files.size()];
+        var found = new AtomicInteger();
+        // chunk by chunk, a later file must not take the place of an earlier one
+        for (int start = 0; start < files.size() && found.get() < maxFiles; start += LIST_CHUNK) {
+            final int from = start;
+            final int to = Math.min(files.size(), from + LIST_CHUNK);
+            POOL.submit(() -> IntStream.range(from, to).parallel().forEach(i -> {
+                counts[i] = countSafe(counter, files.get(i));
+                if (counts[i] > 0) found.incrementAndGet();
+            })).join();
+        }
+
+        var result = new ArrayList<Match<T>>();
+        for (int i = 0; i < counts.length && result.size() < maxFiles; i++) {
+            if (counts[i] > 0) result.add(new Match<>(files.get(i), counts[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Walks the directory and counts the matches of the accepted files in parallel, each directory is a
+     * task of its own. Symbolic links to directories are not followed.
+     *
+     * @param ignore skips files and whole directories, e.g. build output
+     * @return at most {@code maxFiles} matching files, sorted by path
+     */
+    public static List<Match<Path>> scan(Path dir, IgnoreRules ignore, Predicate<Path> fileFilter,
+            Counter<Path> counter, int maxFiles) {
+        var results = new ConcurrentLinkedQueue<Match<Path>>();
+        var found = new AtomicInteger();
+        POOL.invoke(new DirectoryScan(dir, ignore, fileFilter, counter, maxFiles, found, results));
+
+        var result = new ArrayList<>(results);
+        result.sort(Comparator.comparing(m -> m.file().toString()));
+        return result;
+    }
+
+    @SuppressWarnings("serial")
+    private static class DirectoryScan extends RecursiveAction {
+        private final Path dir;
+        private final IgnoreRules ignore;
+        private final Predicate<Path> fileFilter;
+        private final Counter<Path> counter;
+        private final int maxFiles;
+        private final AtomicInteger found;
+        private final Queue<Match<Path>> results;
+
+        DirectoryScan(Path dir, IgnoreRules ignore, Predicate<Path> fileFilter, Counter<Path> counter,
+                int maxFiles, AtomicInteger found, Queue<Match<Path>> results) {
+            this.dir = dir;
+            this.ignore = ignore;
+            this.fileFilter = fileFilter;
+            this.counter = counter;
+            this.maxFiles = maxFiles;
+            this.found = found;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            var subDirs = new ArrayList<DirectoryScan>();
+            try (var entries = Files.newDirectoryStream(dir)) {
+                for (var entry : entries) {
+                    if (found.get() >= maxFiles) break;
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        if (ignore.isIgnored(entry, true)) continue;
+                        var sub = new DirectoryScan(entry, ignore, fileFilter, counter, maxFiles, found, results);
+                        sub.fork();
+                        subDirs.add(sub);
+                    } else if (Files.isRegularFile(entry) && fileFilter.test(entry) && !ignore.isIgnored(entry, false)) {
+                        int count = countSafe(counter, entry);
+                        if (count > 0 && found.incrementAndGet() <= maxFiles) {
+                            results.add(new Match<>(entry, count));
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                // skip unreadable directories
+            }
+            for (var sub : subDirs) sub.join();
+        }
+    }
+
+    private static <T> int countSafe(Counter<T> counter, T file) {
+        try {
+            return counter.count(file);
+        } catch (IOException | UncheckedIOException e) {
+            return 0; // skip unreadable files
+        }
+    }
+
+    /**
+     * Reads the file in chunks into a buffer reused by the calling thread — valid until its next
+     * call. Memory mapping is not used, a mapped file stays locked on Windows until the GC unmaps it.
+     *
+     * @return the content, or {@code null} for binary and too large files
+     */
+    public static ByteBuffer read(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_FILE_BYTES) return null;
+
+            var buffer = BUFFER.get();
+            if (buffer.capacity() <= size) {
+                buffer = ByteBuffer.allocate((int) Math.min(MAX_FILE_BYTES, size + CHUNK_BYTES));
+                if (buffer.capacity() <= KEEP_BUFFER_BYTES) BUFFER.set(buffer);
+            }
+            buffer.clear();
+            boolean sniffed = false;
+            while (buffer.hasRemaining()) {
+                int limit = buffer.limit();
+                buffer.limit(Math.min(limit, buffer.position() + CHUNK_BYTES));
+                int read = channel.read(buffer);
+                buffer.limit(limit);
+                if (read < 0) break;
+                if (!sniffed && (buffer.position() >= SNIFF_BYTES || read == 0)) {
+                    if (isBinary(buffer.duplicate().flip())) return null;
+                    sniffed = true;
+                }
+            }
+            buffer.flip();
+            if (!sniffed && isBinary(buffer)) return null;
+            return buffer;
+        }
+    }
+
+    /** @return true if the first block of the content contains a NUL byte */
+    public static boolean isBinary(ByteBuffer content) {
+        int end = Math.min(content.limit(), content.position() + SNIFF_BYTES);
+        for (int i = content.position(); i < end; i++) {
+            if (content.get(i) == 0) return true;
+        }
+        return false;
+    }
+
+    /** Decodes content returned by {@link #read(Path)}. */
+    public static String toString(ByteBuffer content) {
+        return new String(content.array(), content.arrayOffset() + content.position(), content.remaining(),
+                StandardCharsets.UTF_8);
+    }
+}
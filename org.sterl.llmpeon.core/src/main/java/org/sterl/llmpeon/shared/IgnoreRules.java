@@ -0,0 +1,217 @@
+package org.sterl.llmpeon.shared;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ignore rules of a directory tree, used by the disk tools to skip build output, dependencies and
+ * VCS data while walking.
+ * <p>
+ * The rules are the default patterns followed by the {@code .gitignore} and {@code .peonignore}
+ * files of each directory from the root down to the checked path — the last matching rule wins,
+ * {@code !pattern} includes a path again. Supported is the gitignore syntax: {@code *}, {@code ?},
+ * {@code [a-z]}, {@code **}, a trailing {@code /} for directories only and patterns containing a
+ * {@code /} being relative to the directory of their file.
+ * <p>
+ * The rules of each directory are read and compiled once per instance; thread-safe, create one per
+ * walk to see changed ignore files.
+ */
+@Slf4j
+public final class IgnoreRules {
+
+    public static final String GIT_IGNORE = ".gitignore";
+    public static final String PEON_IGNORE = ".peonignore";
+
+    /** Used if the config dir has no {@value #PEON_IGNORE} replacing them. */
+    public static final List<String> DEFAULT_PATTERNS = List.of(
+            ".git/", ".svn/", ".hg/", ".metadata/", ".gradle/", ".idea/", ".vscode/",
+            "node_modules/", "target/", "build/", "bin/", "out/", "dist/",
+            "__pycache__/", ".venv/", ".pytest_cache/", ".DS_Store");
+
+    private record Rule(Pattern pattern, boolean negate, boolean directoryOnly, boolean anchored) {}
+
+    /** The rules of one directory, the base of anchored patterns. */
+    private record Node(Node parent, Path dir, List<Rule> rules) {}
+
+    private final Path root;
+    private final Node base;
+    private final Map<Path, Node> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * @param root     the topmost directory whose ignore files are read
+     * @param defaults patterns applied in any directory below the root, like a global gitignore
+     */
+    public IgnoreRules(Path root, List<String> defaults) {
+        this.root = root.toAbsolutePath().normalize();
+        this.base = new Node(null, this.root, parse(defaults));
+    }
+
+    /**
+     * The patterns of the {@value #PEON_IGNORE} file in the given config dir, otherwise
+     * {@link #DEFAULT_PATTERNS}.
+     */
+    public static List<String> loadDefaults(Path configDir) {
+        var file = configDir == null ? null : configDir.resolve(PEON_IGNORE);
+        if (file == null || !Files.isRegularFile(file)) return DEFAULT_PATTERNS;
+        try {
+            return Files.readAllLines(file);
+        } catch (IOException e) {
+            log.warn("Using default ignore patterns, failed to read {}: {}", file, e.getMessage());
+            return DEFAULT_PATTERNS;
+        }
+    }
+
+    /**
+     * @param directory if the path is a directory, the type is not read from disk
+     */
+    public boolean isIgnored(Path path, boolean directory) {
+        path = path.toAbsolutePath().normalize();
+        if (path.equals(root) || !path.startsWith(root)) return false;
+
+        var parent = node(path.getParent());
+        var name = path.getFileName().toString();
+        Boolean result = null;
+        // last match wins: deepest node first, its last rule first
+        for (var n = parent; n != null && result == null; n = n.parent()) {
+            var relative = n.dir().relativize(path).toString().replace('\\', '/');
+            for (int i = n.rules().size() - 1; i >= 0; i--) {
+                var rule = n.rules().get(i);
+                if (rule.directoryOnly() && !directory) continue;
+                if (rule.pattern().matcher(rule.anchored() ? relative : name).matches()) {
+                    result = !rule.negate();
+                    break;
+                }
+            }
+        }
+        return result != null && result;
+    }
+
+    /**
+     * Walks the file tree, skipping ignored directories with {@link FileVisitResult#SKIP_SUBTREE}
+     * and ignored files. Symbolic links to directories are not followed.
+     *
+     * @param onFile called for each file not ignored, returns false to stop the walk
+     */
+    public void walk(Path start, Predicate<Path> onFile) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return isIgnored(dir, true) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!attrs.isRegularFile() || isIgnored(file, false)) return FileVisitResult.CONTINUE;
+                return onFile.test(file) ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE; // skip unreadable files
+            }
+        });
+    }
+
+    private Node node(Path dir) {
+        if (dir == null || !dir.startsWith(root)) return base;
+        var result = nodes.get(dir);
+        if (result == null) {
+            // parents first, a recursive computeIfAbsent is not allowed
+            var parent = dir.equals(root) ? base : node(dir.getParent());
+            var rules = new ArrayList<Rule>();
+            rules.addAll(read(dir.resolve(GIT_IGNORE)));
+            rules.addAll(read(dir.resolve(PEON_IGNORE)));
+            result = nodes.computeIfAbsent(dir, d -> new Node(parent, d, List.copyOf(rules)));
+        }
+        return result;
+    }
+
+    private static List<Rule> read(Path file) {
+        if (!Files.isRegularFile(file)) return List.of();
+        try {
+            return parse(Files.readAllLines(file));
+        } catch (IOException | RuntimeException e) {
+            log.debug("Ignoring unreadable {}: {}", file, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static List<Rule> parse(List<String> lines) {
+        var result = new ArrayList<Rule>();
+        for (var line : lines) {
+            var rule = parse(line);
+            if (rule != null) result.add(rule);
+        }
+        return result;
+    }
+
+    private static Rule parse(String line) {
+        if (line == null) return null;
+        var p = line.stripTrailing();
+        if (p.endsWith("\\") && line.length() > p.length()) p += " "; // escaped trailing space
+        if (p.isEmpty() || p.startsWith("#")) return null;
+
+        boolean negate = p.startsWith("!");
+        if (negate || p.startsWith("\\!") || p.startsWith("\\#")) p = p.substring(1);
+        boolean directoryOnly = p.endsWith("/");
+        if (directoryOnly) p = p.substring(0, p.length() - 1);
+        boolean anchored = p.contains("/");
+        if (p.startsWith("/")) p = p.substring(1);
+        if (p.isEmpty()) return null;
+        try {
+            return new Rule(Pattern.compile(toRegex(p)), negate, directoryOnly, anchored);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String toRegex(String glob) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                boolean doubleStar = i + 1 < glob.length() && glob.charAt(i + 1) == '*';
+                if (doubleStar && (i == 0 || glob.charAt(i - 1) == '/')) {
+                    i++;
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                        i++;
+                        sb.append("(?:.*/)?"); // **/ zero or more directories
+                    } else {
+                        sb.append(".*"); // trailing /** everything inside
+                    }
+                } else {
+                    sb.append("[^/]*");
+                }
+            } else if (c == '?') {
+                sb.append("[^/]");
+            } else if (c == '[') {
+                int end = glob.indexOf(']', i + 2);
+                if (end < 0) {
+                    sb.append("\\[");
+                } else {
+                    var set = glob.substring(i + 1, end);
+                    if (set.startsWith("!")) set = "^" + set.substring(1);
+                    sb.append('[').append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = end;
+                }
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                sb.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else {
+                sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return sb.toString();
+    }
+}
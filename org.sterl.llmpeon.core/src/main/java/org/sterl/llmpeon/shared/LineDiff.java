@@ -0,0 +1,176 @@
+package org.sterl.llmpeon.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Line diff after Myers: a minimal edit script in O((N+M)·D) time and O(N+M) space, D being the
+ * number of changed lines.
+ * <p>
+ * Lines are interned to ints first and lines found in one text only are taken out, then the common
+ * prefix and suffix are trimmed and the middle snake splits the rest recursively (divide and
+ * conquer) — no N·M table is allocated.
+ */
+public final class LineDiff {
+
+    private LineDiff() {}
+
+    /**
+     * @return every line of both texts, prefixed with {@code ' '} if unchanged, {@code '-'} if only in
+     *         {@code a} and {@code '+'} if only in {@code b}; removed lines come before added ones
+     */
+    public static List<String> diff(String[] a, String[] b) {
+        var ids = new HashMap<String, Integer>();
+        var x = intern(a, ids);
+        var y = intern(b, ids);
+        var removed = new boolean[x.length];
+        var added = new boolean[y.length];
+
+        // lines only in one text are changed for sure, diff the remaining ones
+        var inX = new boolean[ids.size()];
+        var inY = new boolean[ids.size()];
+        for (int id : x) inX[id] = true;
+        for (int id : y) inY[id] = true;
+        var keptX = keep(x, inY, removed);
+        var keptY = keep(y, inX, added);
+        var kx = values(x, keptX);
+        var ky = values(y, keptY);
+        var keptRemoved = new boolean[kx.length];
+        var keptAdded = new boolean[ky.length];
+        compare(kx, 0, kx.length, ky, 0, ky.length, keptRemoved, keptAdded);
+        for (int i = 0; i < kx.length; i++) removed[keptX[i]] = keptRemoved[i];
+        for (int i = 0; i < ky.length; i++) added[keptY[i]] = keptAdded[i];
+
+        var result = new ArrayList<String>(Math.max(a.length, b.length));
+        int i = 0, j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && removed[i]) {
+                result.add("-" + a[i++]);
+            } else if (j < b.length && added[j]) {
+                result.add("+" + b[j++]);
+            } else {
+                result.add(" " + a[i++]);
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private static int[] intern(String[] lines, HashMap<String, Integer> ids) {
+        var result = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            result[i] = ids.computeIfAbsent(lines[i], l -> ids.size());
+        }
+        return result;
+    }
+
+    /** @return the indexes of the lines found in the other text, the others are marked as changed */
+    private static int[] keep(int[] lines, boolean[] inOther, boolean[] changed) {
+        var result = new int[lines.length];
+        int count = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (inOther[lines[i]]) result[count++] = i;
+            else changed[i] = true;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] values(int[] lines, int[] indexes) {
+        var result = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) result[i] = lines[indexes[i]];
+        return result;
+    }
+
+    /** Marks the changed lines of a[aFrom, aTo) and b[bFrom, bTo). */
+    private static void compare(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo,
+            boolean[] removed, boolean[] added) {
+        while (aFrom < aTo && bFrom < bTo && a[aFrom] == b[bFrom]) { aFrom++; bFrom++; }
+        while (aFrom < aTo && bFrom < bTo && a[aTo - 1] == b[bTo - 1]) { aTo--; bTo--; }
+
+        if (aFrom == aTo) {
+            Arrays.fill(added, bFrom, bTo, true);
+        } else if (bFrom == bTo) {
+            Arrays.fill(removed, aFrom, aTo, true);
+        } else {
+            long split = middleSnake(a, aFrom, aTo, b, bFrom, bTo);
+            if (split < 0) {
+                // nothing in common
+                Arrays.fill(removed, aFrom, aTo, true);
+                Arrays.fill(added, bFrom, bTo, true);
+            } else {
+                int x = aFrom + (int) (split >>> 32);
+                int y = bFrom + (int) split;
+                compare(a, aFrom, x, b, bFrom, y, removed, added);
+                compare(a, x, aTo, b, y, bTo, removed, added);
+            }
+        }
+    }
+
+    /**
+     * Runs the forward and the reverse search until they overlap.
+     *
+     * @return the split point relative to the ranges, x in the upper and y in the lower 32 bits; -1
+     *         if the ranges have nothing in common
+     */
+    private static long middleSnake(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo) {
+        final int n = aTo - aFrom;
+        final int m = bTo - bFrom;
+        final int maxD = (n + m + 1) / 2;
+        final int offset = maxD;
+        final int length = 2 * maxD + 2;
+        // furthest x reached on each diagonal k = x - y, forward and reverse
+        var forward = new int[length];
+        var reverse = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(reverse, -1);
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+
+        final int delta = n - m;
+        // odd delta: the forward search meets the reverse one, even: the other way round
+        final boolean front = (delta & 1) != 0;
+        int kForwardStart = 0, kForwardEnd = 0, kReverseStart = 0, kReverseEnd = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + kForwardStart; k <= d - kForwardEnd; k += 2) {
+                int i = offset + k;
+                int x = k == -d || k != d && forward[i - 1] < forward[i + 1] ? forward[i + 1] : forward[i - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aFrom + x] == b[bFrom + y]) { x++; y++; }
+                forward[i] = x;
+                if (x > n) {
+                    kForwardEnd += 2; // ran off the right
+                } else if (y > m) {
+                    kForwardStart += 2; // ran off the bottom
+                } else if (front) {
+                    int r = offset + delta - k;
+                    if (r >= 0 && r < length && reverse[r] != -1 && x >= n - reverse[r]) {
+                        return (long) x << 32 | y;
+                    }
+                }
+            }
+            for (int k = -d + kReverseStart; k <= d - kReverseEnd; k += 2) {
+                int i = offset + k;
+                int x = k == -d || k != d && reverse[i - 1] < reverse[i + 1] ? reverse[i + 1] : reverse[i - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aTo - x - 1] == b[bTo - y - 1]) { x++; y++; }
+                reverse[i] = x;
+                if (x > n) {
+                    kReverseEnd += 2;
+                } else if (y > m) {
+                    kReverseStart += 2;
+                } else if (!front) {
+                    int f = offset + delta - k;
+                    if (f >= 0 && f < length && forward[f] != -1) {
+                        int fx = forward[f];
+                        int fy = offset + fx - f;
+                        if (fx >= n - x) return (long) fx << 32 | fy;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
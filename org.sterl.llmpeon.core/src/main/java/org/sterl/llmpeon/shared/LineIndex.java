@@ -0,0 +1,204 @@
+package org.sterl.llmpeon.shared;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Start offsets of the lines of a file, to read a range of lines without reading the whole file —
+ * e.g. lines 500-540 of a large log. The lines are decoded as UTF-8 or the given charset, which
+ * must encode line endings as single ASCII bytes like ISO-8859-1 or windows-1252 do.
+ * <p>
+ * The file is scanned once; the index is cached per path and used again as long as modification
+ * time and size are unchanged, whatever charset it is read with. Lines are split like {@link FileLines}: by the dominant line ending,
+ * which is taken from the first {@value #SAMPLE_BYTES} bytes instead of the whole file.
+ */
+public final class LineIndex {
+
+    /** Sample to detect the dominant line ending. */
+    static final int SAMPLE_BYTES = 64 * 1024;
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final int MAX_CACHED = 16;
+
+    /** Guarded by itself, least recently used first. */
+    private static final Map<Path, LineIndex> CACHE = new LinkedHashMap<>(MAX_CACHED, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    private final Path file;
+    private final Charset charset;
+    private final FileTime modified;
+    private final long size;
+    private final String lineEnding;
+    /** Byte offset of each line start, the first line starts at 0. */
+    private final long[] starts;
+
+    private LineIndex(Path file, Charset charset, FileTime modified, long size, String lineEnding, long[] starts) {
+        this.file = file;
+        this.charset = charset;
+        this.modified = modified;
+        this.size = size;
+        this.lineEnding = lineEnding;
+        this.starts = starts;
+    }
+
+    /** The cached index of the UTF-8 file, scanned again if the file changed. */
+    public static LineIndex of(Path file) throws IOException {
+        return of(file, StandardCharsets.UTF_8);
+    }
+
+    /** The cached index of the file, which reads its lines in the given charset. */
+    public static LineIndex of(Path file, Charset charset) throws IOException {
+        file = file.toAbsolutePath().normalize();
+        var modified = Files.getLastModifiedTime(file);
+        var size = Files.size(file);
+        LineIndex result;
+        synchronized (CACHE) {
+            result = CACHE.get(file);
+        }
+        if (result != null && result.size == size && result.modified.equals(modified)) {
+            return result.charset.equals(charset) ? result
+                    : new LineIndex(file, charset, modified, size, result.lineEnding, result.starts);
+        }
+
+        result = scan(file, charset, modified);
+        synchronized (CACHE) {
+            CACHE.put(file, result);
+        }
+        return result;
+    }
+
+    public int lineCount() {
+        return starts.length;
+    }
+
+    /** {@code \r\n} or {@code \n}, see {@link FileUtils#dominantLineEnding(String)}. */
+    public String lineEnding() {
+        return lineEnding;
+    }
+
+    /** Bytes scanned, the file size at the time of the scan. */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Reads lines [from, to], 1-based, inclusive and clamped to the file, without line endings.
+     */
+    public List<String> read(int from, int to) throws IOException {
+        return read(from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #read(int, int)}, but reads at most {@code maxLineBytes} of each line, longer lines
+     * are cut and end with {@code " ..."}. The memory used stays bounded, even for a one-line
+     * minified file.
+     */
+    public List<String> read(int from, int to, int maxLineBytes) throws IOException {
+        from = Math.max(1, from);
+        to = Math.min(lineCount(), to);
+        if (from > to) return List.of();
+
+        var result = new ArrayList<String>(to - from + 1);
+        long start = starts[from - 1];
+        long end = to < lineCount() ? starts[to] : size;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (end - start <= (long) maxLineBytes * (to - from + 1)) {
+                // one read for all lines
+                var bytes = read(channel, start, Math.toIntExact(end - start));
+                for (int line = from; line <= to; line++) {
+                    long lineStart = starts[line - 1] - start;
+                    if (lineStart > bytes.position()) break; // shortened meanwhile
+                    result.add(decode(bytes, (int) lineStart, lineEnd(line) - start, maxLineBytes));
+                }
+            } else {
+                for (int line = from; line <= to; line++) {
+                    long length = lineEnd(line) - starts[line - 1];
+                    var bytes = read(channel, starts[line - 1], (int) Math.min(length, maxLineBytes));
+                    result.add(decode(bytes, 0, length, maxLineBytes));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Byte offset after the last char of the line, before its line ending. */
+    private long lineEnd(int line) {
+        return line < lineCount() ? starts[line] - lineEnding.length() : size;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        var bytes = ByteBuffer.allocate(Math.max(0, length));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) break; // shortened meanwhile
+        }
+        return bytes;
+    }
+
+    private String decode(ByteBuffer bytes, int offset, long end, int maxLineBytes) {
+        boolean cut = end - offset > maxLineBytes;
+        int length = (int) Math.max(0, Math.min(Math.min(end, bytes.position()) - offset, maxLineBytes));
+        var line = new String(bytes.array(), offset, length, charset);
+        return cut ? line + " ..." : line;
+    }
+
+    private static LineIndex scan(Path file, Charset charset, FileTime modified) throws IOException {
+        var buffer = ByteBuffer.allocate(CHUNK_BYTES);
+        var starts = new long[1024];
+        int count = 1;
+        long size = 0;
+        String lineEnding = null;
+        boolean crlf = false;
+        byte previous = 0;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                // fill the buffer, the first one is the line ending sample
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {}
+                if (buffer.position() == 0) break;
+
+                var bytes = buffer.array();
+                int length = buffer.position();
+                if (lineEnding == null) {
+                    lineEnding = dominantLineEnding(bytes, Math.min(length, SAMPLE_BYTES));
+                    crlf = "\r\n".equals(lineEnding);
+                }
+                for (int i = 0; i < length; i++) {
+                    if (bytes[i] == '\n' && (!crlf || (i > 0 ? bytes[i - 1] : previous) == '\r')) {
+                        if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+                        starts[count++] = size + i + 1;
+                    }
+                }
+                previous = bytes[length - 1];
+                size += length;
+            }
+        }
+        return new LineIndex(file, charset, modified, size, lineEnding == null ? "\n" : lineEnding,
+                Arrays.copyOf(starts, count));
+    }
+
+    private static String dominantLineEnding(byte[] bytes, int length) {
+        int crlf = 0, lf = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != '\n') continue;
+            if (i > 0 && bytes[i - 1] == '\r') crlf++;
+            else lf++;
+        }
+        return crlf > lf ? "\r\n" : "\n";
+    }
+}
@@ -0,0 +1,532 @@
+package org.sterl.llmpeon.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Regex engine for the common subset of {@link java.util.regex.Pattern}: literals, {@code .}, simple
+ * character classes, {@code \d \w \s \b \B}, {@code ^ $}, groups, alternation and greedy or lazy
+ * quantifiers — case-insensitive like {@link java.util.regex.Pattern#CASE_INSENSITIVE}.
+ * <p>
+ * The regex is compiled to a program and run as Pike VM: all alternatives advance in lockstep over the
+ * content, so a match costs at most every instruction per char and a pattern like {@code (a+)+b}
+ * cannot backtrack catastrophically. The threads are kept in priority order, which finds the same
+ * matches as {@link java.util.regex.Matcher#find()} — except that no match starts between the two
+ * chars of a surrogate pair, which java.util.regex allows for some patterns. Everything else — back references, lookaround,
+ * possessive quantifiers, loops over empty matches — is left to {@link java.util.regex.Pattern}.
+ */
+final class LinearRegex {
+
+    /** Larger programs are left to java.util.regex, the steps per char grow with the program. */
+    static final int MAX_PROGRAM = 500;
+
+    private static final int CONSUME = 0;
+    private static final int MATCH = 1;
+    private static final int JMP = 2;
+    private static final int SPLIT = 3;
+    private static final int BEGIN = 4;
+    private static final int END = 5;
+    private static final int BOUNDARY = 6;
+    private static final int NOT_BOUNDARY = 7;
+
+    private static final IntPredicate DOT = ch -> ch != '\n' && ch != '\r' && (ch | 1) != '\u2029' && ch != '\u0085';
+    private static final IntPredicate DIGIT = ch -> ch >= '0' && ch <= '9';
+    private static final IntPredicate WORD = LinearRegex::isWord;
+    private static final IntPredicate SPACE = ch -> ch == ' ' || ch == '\t' || ch == '\n' || ch == 0x0B || ch == '\f' || ch == '\r';
+
+    private final int[] op;
+    /** Jump target, first choice of a split. */
+    private final int[] x;
+    /** Second choice of a split. */
+    private final int[] y;
+    private final IntPredicate[] test;
+    /** Lowered ASCII char each match starts with, -1 if unknown. */
+    private final int first;
+
+    private LinearRegex(Program program, int first) {
+        this.op = Arrays.copyOf(program.op, program.size);
+        this.x = Arrays.copyOf(program.x, program.size);
+        this.y = Arrays.copyOf(program.y, program.size);
+        this.test = Arrays.copyOf(program.test, program.size);
+        this.first = first;
+    }
+
+    /**
+     * @param regex a valid regex, see {@link java.util.regex.Pattern#compile(String, int)}
+     * @return {@code null} if the regex is not in the supported subset
+     */
+    static LinearRegex compile(String regex) {
+        if (regex.chars().anyMatch(c -> Character.isSurrogate((char) c))) return null;
+        try {
+            var node = new Parser(regex).parse();
+            var program = new Program();
+            program.emit(node);
+            program.add(MATCH, null);
+            return new LinearRegex(program, firstLiteral(node));
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    /**
+     * Passes the start of each match to the consumer, in order, until it returns {@code false} — the
+     * same matches as repeated {@link java.util.regex.Matcher#find()}, empty ones included.
+     */
+    void forEach(CharSequence content, IntPredicate onMatch) {
+        var vm = new Vm(content);
+        int from = 0;
+        while (from <= content.length()) {
+            long match = vm.find(from);
+            if (match < 0) return;
+            int start = (int) (match >>> 32);
+            int end = (int) match;
+            if (!onMatch.test(start)) return;
+            from = end == start ? end + 1 : end;
+        }
+    }
+
+    /** Threads of one position in priority order, with a mark for each instruction already added. */
+    private static final class Threads {
+        final int[] pc;
+        final int[] start;
+        final int[] seen;
+        int size;
+        int stamp = 1;
+
+        Threads(int length) {
+            pc = new int[length];
+            start = new int[length];
+            seen = new int[length];
+        }
+
+        void clear() {
+            size = 0;
+            ++stamp;
+        }
+    }
+
+    private final class Vm {
+        private final CharSequence s;
+        private final int n;
+        /** A code point takes one or two chars, the threads of the next two positions are kept. */
+        private final Threads[] lists = new Threads[3];
+        private final int[] stack;
+
+        Vm(CharSequence s) {
+            this.s = s;
+            this.n = s.length();
+            for (int i = 0; i < lists.length; i++) lists[i] = new Threads(op.length);
+            stack = new int[2 * op.length + 1];
+        }
+
+        /** @return start of the match in the upper, end in the lower 32 bits; -1 if there is none */
+        long find(int from) {
+            for (var list : lists) list.clear();
+            long result = -1;
+            for (int i = from; i <= n; i++) {
+                var threads = lists[i % 3];
+                if (result < 0) {
+                    if (first >= 0 && threads.size == 0 && idle(i)) {
+                        while (i < n && lowerAscii(s.charAt(i)) != first) i++;
+                        if (i == n) return -1;
+                        // drop the marks of the positions skipped
+                        for (var list : lists) list.clear();
+                        threads = lists[i % 3];
+                    }
+                    // a later start has the lowest priority, none starts inside a surrogate pair
+                    if (i == from || !insidePair(i)) add(threads, 0, i, i);
+                }
+                int cp = i < n ? Character.codePointAt(s, i) : -1;
+                int next = i + Character.charCount(Math.max(cp, 0));
+                for (int t = 0; t < threads.size; t++) {
+                    int pc = threads.pc[t];
+                    if (op[pc] == MATCH) {
+                        // lower priority threads would find a worse match
+                        result = (long) threads.start[t] << 32 | i;
+                        break;
+                    }
+                    if (cp >= 0 && test[pc].test(cp)) add(lists[next % 3], pc + 1, threads.start[t], next);
+                }
+                threads.clear();
+                if (result >= 0 && idle(i)) break;
+            }
+            return result;
+        }
+
+        private boolean insidePair(int i) {
+            return i < n && Character.isLowSurrogate(s.charAt(i)) && Character.isHighSurrogate(s.charAt(i - 1));
+        }
+
+        /** No threads for the positions after i. */
+        private boolean idle(int i) {
+            return lists[(i + 1) % 3].size == 0 && lists[(i + 2) % 3].size == 0;
+        }
+
+        /** Adds the thread and follows jumps, splits and assertions, first choice first. */
+        private void add(Threads list, int pc, int start, int pos) {
+            int sp = 0;
+            stack[sp++] = pc;
+            while (sp > 0) {
+                pc = stack[--sp];
+                if (list.seen[pc] == list.stamp) continue;
+                list.seen[pc] = list.stamp;
+                switch (op[pc]) {
+                    case JMP -> stack[sp++] = x[pc];
+                    case SPLIT -> {
+                        stack[sp++] = y[pc];
+                        stack[sp++] = x[pc];
+                    }
+                    case BEGIN -> { if (pos == 0) stack[sp++] = pc + 1; }
+                    case END -> { if (isEnd(s, pos)) stack[sp++] = pc + 1; }
+                    case BOUNDARY -> { if (isBoundary(s, pos)) stack[sp++] = pc + 1; }
+                    case NOT_BOUNDARY -> { if (!isBoundary(s, pos)) stack[sp++] = pc + 1; }
+                    default -> {
+                        list.pc[list.size] = pc;
+                        list.start[list.size++] = start;
+                    }
+                }
+            }
+        }
+    }
+
+    /** {@code $} without MULTILINE: the end, or before a line terminator at the end. */
+    private static boolean isEnd(CharSequence s, int i) {
+        int n = s.length();
+        if (i < n - 2) return false;
+        if (i == n - 2 && (s.charAt(i) != '\r' || s.charAt(i + 1) != '\n')) return false;
+        if (i < n) {
+            char ch = s.charAt(i);
+            if (ch == '\n') return i == 0 || s.charAt(i - 1) != '\r';
+            return ch == '\r' || ch == '\u0085' || (ch | 1) == '\u2029';
+        }
+        return true;
+    }
+
+    /** Like java.util.regex: a non-spacing mark after a letter or digit counts as word char. */
+    private static boolean isBoundary(CharSequence s, int i) {
+        boolean left = i > 0 && isWordOrMark(s, Character.codePointBefore(s, i), i - 1);
+        boolean right = i < s.length() && isWordOrMark(s, Character.codePointAt(s, i), i);
+        return left ^ right;
+    }
+
+    private static boolean isWordOrMark(CharSequence s, int ch, int at) {
+        if (isWord(ch)) return true;
+        if (Character.getType(ch) != Character.NON_SPACING_MARK) return false;
+        for (int i = at; i >= 0; i--) {
+            int c = Character.codePointAt(s, i);
+            if (Character.isLetterOrDigit(c)) return true;
+            if (Character.getType(c) != Character.NON_SPACING_MARK) return false;
+        }
+        return false;
+    }
+
+    private static boolean isWord(int ch) {
+        return ch < 128 && (ch == '_' || Character.isLetterOrDigit(ch));
+    }
+
+    private static int lowerAscii(int ch) {
+        return ch >= 'A' && ch <= 'Z' ? ch + 32 : ch;
+    }
+
+    private static int upperAscii(int ch) {
+        return ch >= 'a' && ch <= 'z' ? ch - 32 : ch;
+    }
+
+    // -- parsing ---------------------------------------------------------------------------------
+
+    private sealed interface Node permits Chars, Assert, Seq, Alt, Repeat {}
+    /** One code point; literal is the lowered ASCII char of a plain char, otherwise -1. */
+    private record Chars(IntPredicate test, int literal) implements Node {}
+    private record Assert(int op) implements Node {}
+    private record Seq(List<Node> nodes) implements Node {}
+    private record Alt(List<Node> nodes) implements Node {}
+    /** max -1 is unbounded. */
+    private record Repeat(Node node, int min, int max, boolean greedy) implements Node {}
+
+    /** The regex is valid, but beyond the subset. */
+    @SuppressWarnings("serial")
+    private static final class Unsupported extends RuntimeException {
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+
+    private static boolean nullable(Node node) {
+        return switch (node) {
+            case Chars c -> false;
+            case Assert a -> true;
+            case Seq s -> s.nodes().stream().allMatch(LinearRegex::nullable);
+            case Alt a -> a.nodes().stream().anyMatch(LinearRegex::nullable);
+            case Repeat r -> r.min() == 0 || nullable(r.node());
+        };
+    }
+
+    private static int firstLiteral(Node node) {
+        return switch (node) {
+            case Chars c -> c.literal();
+            case Seq s -> s.nodes().isEmpty() ? -1 : firstLiteral(s.nodes().get(0));
+            case Repeat r -> r.min() > 0 ? firstLiteral(r.node()) : -1;
+            default -> -1;
+        };
+    }
+
+    private static Chars literal(int c) {
+        return new Chars(single(c), c < 128 ? lowerAscii(c) : -1);
+    }
+
+    /** ASCII letters match both cases, like CASE_INSENSITIVE without UNICODE_CASE. */
+    private static IntPredicate single(int c) {
+        if (c >= 128) return ch -> ch == c;
+        int lower = lowerAscii(c);
+        int upper = upperAscii(c);
+        return ch -> ch == c || ch == lower || ch == upper;
+    }
+
+    private static IntPredicate range(int from, int to) {
+        return ch -> from <= ch && ch <= to
+                || ch < 128 && (from <= upperAscii(ch) && upperAscii(ch) <= to
+                        || from <= lowerAscii(ch) && lowerAscii(ch) <= to);
+    }
+
+    private static final class Parser {
+        private final String p;
+        private int i;
+
+        Parser(String p) {
+            this.p = p;
+        }
+
+        Node parse() {
+            var result = alternation();
+            if (i < p.length()) throw UNSUPPORTED;
+            return result;
+        }
+
+        private boolean at(char c) {
+            return i < p.length() && p.charAt(i) == c;
+        }
+
+        private char next() {
+            if (i >= p.length()) throw UNSUPPORTED;
+            return p.charAt(i++);
+        }
+
+        private Node alternation() {
+            var nodes = new ArrayList<Node>();
+            nodes.add(sequence());
+            while (at('|')) {
+                ++i;
+                nodes.add(sequence());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Alt(nodes);
+        }
+
+        private Node sequence() {
+            var nodes = new ArrayList<Node>();
+            while (i < p.length() && !at('|') && !at(')')) nodes.add(repeat());
+            return nodes.size() == 1 ? nodes.get(0) : new Seq(nodes);
+        }
+
+        private Node repeat() {
+            var node = atom();
+            int min, max;
+            if (at('*')) { min = 0; max = -1; }
+            else if (at('+')) { min = 1; max = -1; }
+            else if (at('?')) { min = 0; max = 1; }
+            else if (at('{')) {
+                ++i;
+                min = number();
+                max = min;
+                if (at(',')) {
+                    ++i;
+                    max = at('}') ? -1 : number();
+                }
+                if (!at('}')) throw UNSUPPORTED;
+            } else {
+                return node;
+            }
+            ++i;
+            boolean greedy = true;
+            if (at('?')) {
+                greedy = false;
+                ++i;
+            }
+            // possessive and stacked quantifiers, quantified assertions
+            if (i < p.length() && "*+?{".indexOf(p.charAt(i)) >= 0 || node instanceof Assert) throw UNSUPPORTED;
+            // java.util.regex stops a loop after an empty iteration, a Pike VM drops the thread instead
+            if (max != 1 && nullable(node)) throw UNSUPPORTED;
+            return new Repeat(node, min, max, greedy);
+        }
+
+        private int number() {
+            int start = i;
+            while (i < p.length() && Character.isDigit(p.charAt(i))) ++i;
+            if (i == start || i - start > 4) throw UNSUPPORTED;
+            return Integer.parseInt(p, start, i, 10);
+        }
+
+        private Node atom() {
+            char c = next();
+            return switch (c) {
+                case '(' -> {
+                    if (at('?')) {
+                        if (i + 1 >= p.length() || p.charAt(i + 1) != ':') throw UNSUPPORTED;
+                        i += 2;
+                    }
+                    var node = alternation();
+                    if (!at(')')) throw UNSUPPORTED;
+                    ++i;
+                    yield node;
+                }
+                case '[' -> characterClass();
+                case '.' -> new Chars(DOT, -1);
+                case '^' -> new Assert(BEGIN);
+                case '$' -> new Assert(END);
+                case '\\' -> escape();
+                case '*', '+', '?', '{', ')', '|' -> throw UNSUPPORTED;
+                default -> literal(c);
+            };
+        }
+
+        private Node escape() {
+            char c = next();
+            return switch (c) {
+                case 'd' -> new Chars(DIGIT, -1);
+                case 'D' -> new Chars(DIGIT.negate(), -1);
+                case 'w' -> new Chars(WORD, -1);
+                case 'W' -> new Chars(WORD.negate(), -1);
+                case 's' -> new Chars(SPACE, -1);
+                case 'S' -> new Chars(SPACE.negate(), -1);
+                case 'b' -> new Assert(BOUNDARY);
+                case 'B' -> new Assert(NOT_BOUNDARY);
+                default -> literal(escapedChar(c));
+            };
+        }
+
+        /** {@code \t \n \r \f} and escaped ASCII punctuation. */
+        private static int escapedChar(char c) {
+            return switch (c) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 'f' -> '\f';
+                default -> {
+                    if (c >= 128 || Character.isLetterOrDigit(c)) throw UNSUPPORTED;
+                    yield c;
+                }
+            };
+        }
+
+        /** {@code [...]} of chars, ranges and {@code \d \w \s}; no nested classes or intersections. */
+        private Node characterClass() {
+            boolean negate = at('^');
+            if (negate) ++i;
+            if (at(']')) throw UNSUPPORTED;
+            IntPredicate result = ch -> false;
+            while (true) {
+                char c = next();
+                if (c == ']') break;
+                if (c == '[' || c == '&' && at('&')) throw UNSUPPORTED;
+                int from;
+                if (c == '\\') {
+                    char e = next();
+                    var predefined = switch (e) {
+                        case 'd' -> DIGIT;
+                        case 'D' -> DIGIT.negate();
+                        case 'w' -> WORD;
+                        case 'W' -> WORD.negate();
+                        case 's' -> SPACE;
+                        case 'S' -> SPACE.negate();
+                        default -> null;
+                    };
+                    if (predefined != null) {
+                        if (isRange()) throw UNSUPPORTED;
+                        result = result.or(predefined);
+                        continue;
+                    }
+                    from = escapedChar(e);
+                } else {
+                    from = c;
+                }
+                if (isRange()) {
+                    ++i;
+                    char t = next();
+                    if (t == '[') throw UNSUPPORTED;
+                    int to = t == '\\' ? escapedChar(next()) : t;
+                    result = result.or(range(from, to));
+                } else {
+                    result = result.or(single(from));
+                }
+            }
+            return new Chars(negate ? result.negate() : result, -1);
+        }
+
+        private boolean isRange() {
+            return at('-') && i + 1 < p.length() && p.charAt(i + 1) != ']';
+        }
+    }
+
+    // -- program ---------------------------------------------------------------------------------
+
+    private static final class Program {
+        final int[] op = new int[MAX_PROGRAM];
+        final int[] x = new int[MAX_PROGRAM];
+        final int[] y = new int[MAX_PROGRAM];
+        final IntPredicate[] test = new IntPredicate[MAX_PROGRAM];
+        int size;
+
+        int add(int code, IntPredicate predicate) {
+            if (size == MAX_PROGRAM) throw UNSUPPORTED;
+            op[size] = code;
+            test[size] = predicate;
+            return size++;
+        }
+
+        void emit(Node node) {
+            switch (node) {
+                case Chars c -> add(CONSUME, c.test());
+                case Assert a -> add(a.op(), null);
+                case Seq s -> s.nodes().forEach(this::emit);
+                case Alt a -> {
+                    var jumps = new ArrayList<Integer>();
+                    for (int k = 0; k < a.nodes().size(); k++) {
+                        boolean last = k == a.nodes().size() - 1;
+                        int split = last ? -1 : add(SPLIT, null);
+                        if (!last) x[split] = size;
+                        emit(a.nodes().get(k));
+                        if (!last) {
+                            jumps.add(add(JMP, null));
+                            y[split] = size;
+                        }
+                    }
+                    for (int jump : jumps) x[jump] = size;
+                }
+                case Repeat r -> {
+                    for (int k = 0; k < r.min(); k++) emit(r.node());
+                    if (r.max() < 0) {
+                        int loop = add(SPLIT, null);
+                        emit(r.node());
+                        x[add(JMP, null)] = loop;
+                        choose(loop, r.greedy());
+                    } else {
+                        var splits = new ArrayList<Integer>();
+                        for (int k = r.min(); k < r.max(); k++) {
+                            splits.add(add(SPLIT, null));
+                            emit(r.node());
+                        }
+                        for (int split : splits) choose(split, r.greedy());
+                    }
+                }
+            }
+        }
+
+        /** The split either enters the body right after it or continues at the current end. */
+        private void choose(int split, boolean greedy) {
+            x[split] = greedy ? split + 1 : size;
+            y[split] = greedy ? size : split + 1;
+        }
+    }
+}
@@ -2,7 +2,16 @@ package org.sterl.llmpeon.shared;
 
 import java.time.Instant;
 
-public record OnPartialAiResponse(Type type, String value, Instant startedAt) {
+/**
+ * Streamed part of an AI response.
+ *
+ * @param tokens number of streamed chunks merged into this value
+ */
+public record OnPartialAiResponse(Type type, String value, Instant startedAt, int tokens) {
 
     public enum Type { START, THINK, ANSWER, TOOL, END }
+
+    public OnPartialAiResponse(Type type, String value, Instant startedAt) {
+        this(type, value, startedAt, value == null ? 0 : 1);
+    }
 }
@@ -0,0 +1,170 @@
+package org.sterl.llmpeon.shared;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the first and the last lines of a process output, the lines between are only counted —
+ * the memory used stays bounded, however long a build runs.
+ * <p>
+ * The output is split into lines as bytes. Lines of the head are decoded once, lines of the tail
+ * are copied into reused ring slots and only decoded when the output is read, so a dropped line
+ * never becomes a {@code String}. Lines longer than {@value #MAX_LINE_BYTES} bytes are cut and end
+ * with {@code " ..."}. Thread safe: one thread writes, others may read at any time.
+ */
+public final class OutputCapture {
+
+    static final int MAX_LINE_BYTES = 4 * 1024;
+    private static final int BUFFER_BYTES = 8 * 1024;
+
+    private final Charset charset;
+    private final int headSize;
+    private final List<String> head;
+    private final byte[][] ring;
+    private final int[] ringLengths;
+    private final boolean[] ringCut;
+    /** Index of the oldest line in the ring. */
+    private int ringStart;
+    private int ringSize;
+
+    /** The line being written, without its line ending. */
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean lineCut;
+    private long lineCount;
+
+    /**
+     * @param headSize first lines kept
+     * @param tailSize last lines kept
+     */
+    public OutputCapture(int headSize, int tailSize, Charset charset) {
+        if (headSize < 0 || tailSize < 0) {
+            throw new IllegalArgumentException("head and tail size must not be negative, but were "
+                    + headSize + " and " + tailSize);
+        }
+        this.charset = charset;
+        this.headSize = headSize;
+        this.head = new ArrayList<>(Math.min(headSize, 64));
+        this.ring = new byte[tailSize][];
+        this.ringLengths = new int[tailSize];
+        this.ringCut = new boolean[tailSize];
+    }
+
+    /** Reads the stream to its end, a last line without line ending counts too. */
+    public void read(InputStream in) throws IOException {
+        var buffer = new byte[BUFFER_BYTES];
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) write(buffer, 0, read);
+        } finally {
+            finish();
+        }
+    }
+
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\n') {
+                append(bytes, start, i - start);
+                endLine();
+                start = i + 1;
+            }
+        }
+        append(bytes, start, end - start);
+    }
+
+    /** Ends a last line without line ending. */
+    public synchronized void finish() {
+        if (lineLength > 0 || lineCut) endLine();
+    }
+
+    /** Completed lines written so far, kept or not. */
+    public synchronized long lineCount() {
+        return lineCount;
+    }
+
+    /** If nothing was written, not even a part of a line. */
+    public synchronized boolean isEmpty() {
+        return lineCount == 0 && lineLength == 0 && !lineCut;
+    }
+
+    /** The last completed line or {@code null}. */
+    public synchronized String lastLine() {
+        if (ringSize > 0) {
+            int i = (ringStart + ringSize - 1) % ring.length;
+            return decode(ring[i], ringLengths[i], ringCut[i]);
+        }
+        return head.isEmpty() ? null : head.get(head.size() - 1);
+    }
+
+    /**
+     * The kept lines joined by the system line separator, a {@code "... (n lines skipped)"} line
+     * between head and tail if lines were dropped; a line being written comes last.
+     */
+    @Override
+    public synchronized String toString() {
+        var result = new StringBuilder();
+        for (var l : head) appendLine(result, l);
+        long skipped = lineCount - head.size() - ringSize;
+        if (skipped > 0) appendLine(result, "... (" + skipped + " lines skipped)");
+        for (int n = 0; n < ringSize; n++) {
+            int i = (ringStart + n) % ring.length;
+            appendLine(result, decode(ring[i], ringLengths[i], ringCut[i]));
+        }
+        if (lineLength > 0 || lineCut) appendLine(result, decode(line, lineLength, lineCut));
+        return result.toString();
+    }
+
+    private static void appendLine(StringBuilder result, String line) {
+        if (!result.isEmpty()) result.append(System.lineSeparator());
+        result.append(line);
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        int free = MAX_LINE_BYTES - lineLength;
+        if (length > free) {
+            lineCut = true;
+            length = free;
+        }
+        if (length <= 0) return;
+        if (lineLength + length > line.length) {
+            var grown = new byte[Math.min(MAX_LINE_BYTES, Math.max(line.length * 2, lineLength + length))];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        System.arraycopy(bytes, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void endLine() {
+        if (!lineCut && lineLength > 0 && line[lineLength - 1] == '\r') lineLength--;
+        ++lineCount;
+        if (head.size() < headSize) {
+            head.add(decode(line, lineLength, lineCut));
+        } else if (ring.length > 0) {
+            int i;
+            if (ringSize < ring.length) {
+                i = (ringStart + ringSize++) % ring.length;
+            } else {
+                // full, overwrite the oldest line
+                i = ringStart;
+                ringStart = (ringStart + 1) % ring.length;
+            }
+            if (ring[i] == null || ring[i].length < lineLength) ring[i] = new byte[Math.max(lineLength, 64)];
+            System.arraycopy(line, 0, ring[i], 0, lineLength);
+            ringLengths[i] = lineLength;
+            ringCut[i] = lineCut;
+        }
+        lineLength = 0;
+        lineCut = false;
+    }
+
+    private String decode(byte[] bytes, int length, boolean cut) {
+        var result = new String(bytes, 0, length, charset);
+        return cut ? result + " ..." : result;
+    }
+}
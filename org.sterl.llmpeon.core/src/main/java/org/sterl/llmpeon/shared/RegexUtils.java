@@ -2,7 +2,6 @@ package org.sterl.llmpeon.shared;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public final class RegexUtils {
@@ -42,30 +41,13 @@ public final class RegexUtils {
     /**
      * Counts occurrences of a query in content. Uses regex matching if the query
      * contains regex operators, otherwise falls back to literal matching.
+     * An invalid or too expensive regex counts 0. To search many contents use a {@link ContentMatcher}.
      */
     public static int countOccurrences(String content, String query) {
-        if (isRegexPattern(query)) {
-            try {
-                Pattern pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
-                Matcher matcher = pattern.matcher(content);
-                int count = 0;
-                while (matcher.find()) {
-                    count++;
-                }
-                return count;
-            } catch (IllegalArgumentException e) {
-                return 0;
-            }
-        } else {
-            String lowerContent = content.toLowerCase();
-            String lowerQuery = query.toLowerCase();
-            int count = 0;
-            int idx = 0;
-            while ((idx = lowerContent.indexOf(lowerQuery, idx)) != -1) {
-                count++;
-                idx += lowerQuery.length();
-            }
-            return count;
+        try {
+            return ContentMatcher.of(query).count(content);
+        } catch (IllegalArgumentException e) {
+            return 0;
         }
     }
 }
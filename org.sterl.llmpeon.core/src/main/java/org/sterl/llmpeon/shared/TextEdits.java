@@ -0,0 +1,115 @@
+package org.sterl.llmpeon.shared;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.sterl.llmpeon.tool.model.FileEdit;
+
+/**
+ * Applies several edits to a text in one pass. All edits refer to the text as given — line numbers
+ * are not shifted by the edits before — and must not overlap; either all of them apply or none.
+ * <p>
+ * Lines are split by the dominant line ending like {@link FileLines}, new text gets the line ending
+ * of the file.
+ */
+public final class TextEdits {
+
+    /** Replaces the chars [start, end) of the original text. */
+    private record Change(int edit, int start, int end, String text) {}
+
+    private TextEdits() {}
+
+    /**
+     * @return the edited content
+     * @throws IllegalArgumentException naming the first invalid edit, nothing is applied
+     */
+    public static String apply(String filePath, String content, List<FileEdit> edits) {
+        var lineEnding = FileUtils.dominantLineEnding(content);
+        var starts = lineStarts(content, lineEnding);
+        var changes = new ArrayList<Change>();
+        for (int i = 0; i < edits.size(); i++) {
+            try {
+                changes(content, lineEnding, starts, i, edits.get(i), changes);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Edit " + (i + 1) + " of " + filePath + ": " + e.getMessage(), e);
+            }
+        }
+
+        changes.sort(Comparator.comparingInt(Change::start).thenComparingInt(Change::end).thenComparingInt(Change::edit));
+        var sb = new StringBuilder(content.length() + 64);
+        int copied = 0;
+        Change last = null;
+        for (var c : changes) {
+            if (c.start() < copied) {
+                throw new IllegalArgumentException("Edits " + (Math.min(last.edit(), c.edit()) + 1) + " and "
+                        + (Math.max(last.edit(), c.edit()) + 1)
+                        + " of " + filePath + " overlap, combine them into one edit.");
+            }
+            sb.append(content, copied, c.start()).append(c.text());
+            copied = c.end();
+            last = c;
+        }
+        return sb.append(content, copied, content.length()).toString();
+    }
+
+    private static void changes(String content, String lineEnding, int[] starts, int edit, FileEdit e, List<Change> result) {
+        ArgsUtil.requireNonNull(e.newString(), "newString");
+        var text = withLineEnding(e.newString(), lineEnding);
+        int total = starts.length;
+
+        if (e.oldString() != null) {
+            ArgsUtil.requireNonBlank(e.oldString(), "oldString");
+            var old = withLineEnding(e.oldString(), lineEnding);
+            if (old.equals(text)) throw new IllegalArgumentException("oldString and newString are identical - nothing to change");
+            int at = content.indexOf(old);
+            if (at < 0) throw new IllegalArgumentException("oldString not found: " + e.oldString());
+            for (; at >= 0; at = content.indexOf(old, at + old.length())) {
+                result.add(new Change(edit, at, at + old.length(), text));
+            }
+        } else if (e.startLine() != null) {
+            int s = e.startLine();
+            int l = e.endLine() == null ? s : e.endLine();
+            if (s > l) { int tmp = s; s = l; l = tmp; }
+            if (s < 1 || l > total) {
+                throw new IllegalArgumentException("lines " + s + "-" + l + " out of range, the file has " + total + " lines");
+            }
+            int start = starts[s - 1];
+            int end = lineEnd(content, lineEnding, starts, l);
+            if (text.isEmpty()) {
+                // the lines go, with one line ending
+                if (l < total) end = starts[l];
+                else if (s > 1) start = lineEnd(content, lineEnding, starts, s - 1);
+            }
+            result.add(new Change(edit, start, end, text));
+        } else if (e.afterLine() != null) {
+            if (text.isEmpty()) throw new IllegalArgumentException("newString is empty - nothing to insert");
+            int after = e.afterLine();
+            if (content.isEmpty()) result.add(new Change(edit, 0, 0, text));
+            else if (after <= 0) result.add(new Change(edit, 0, 0, text + lineEnding));
+            else if (after >= total) result.add(new Change(edit, content.length(), content.length(), lineEnding + text));
+            else result.add(new Change(edit, starts[after], starts[after], text + lineEnding));
+        } else {
+            throw new IllegalArgumentException("set oldString, startLine or afterLine");
+        }
+    }
+
+    /** Offset after the last char of the 1-based line, before its line ending. */
+    private static int lineEnd(String content, String lineEnding, int[] starts, int line) {
+        return line < starts.length ? starts[line] - lineEnding.length() : content.length();
+    }
+
+    private static int[] lineStarts(String content, String lineEnding) {
+        var result = new ArrayList<Integer>();
+        result.add(0);
+        for (int i = content.indexOf(lineEnding); i >= 0; i = content.indexOf(lineEnding, i + lineEnding.length())) {
+            result.add(i + lineEnding.length());
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String withLineEnding(String text, String lineEnding) {
+        var lf = text.replace("\r\n", "\n");
+        return "\n".equals(lineEnding) ? lf : lf.replace("\n", lineEnding);
+    }
+}
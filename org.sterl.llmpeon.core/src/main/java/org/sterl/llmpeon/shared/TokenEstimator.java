@@ -0,0 +1,21 @@
+package org.sterl.llmpeon.shared;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+/**
+ * Estimates the token count of a text whenever the provider reports no usage — plug in a real
+ * BPE/SentencePiece tokenizer of the used model for better numbers.
+ */
+@FunctionalInterface
+public interface TokenEstimator {
+
+    /** Model independent heuristic: about 3 characters per token. */
+    TokenEstimator CHARS_PER_TOKEN = text -> text == null ? 0 : text.length() / 3;
+
+    int estimate(String text);
+
+    /** Estimates the message as rendered by {@link ChatMessageUtil#toString(ChatMessage)}. */
+    default int estimate(ChatMessage message) {
+        return message == null ? 0 : estimate(ChatMessageUtil.toString(message));
+    }
+}
@@ -0,0 +1,306 @@
+package org.sterl.llmpeon.shared;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Case-insensitive trigram index over text files, used by the grep tools to skip files which cannot
+ * contain the query.
+ * <p>
+ * Each file is stored as a small bloom filter of its trigrams together with a stamp (modification
+ * time, modification stamp) — a few bits per distinct trigram instead of posting lists, so a large
+ * workspace fits into memory. A file whose stamp changed counts as not indexed and is read again.
+ * False positives only cost a scan, the index never hides a match.
+ * <p>
+ * Thread-safe; the index is saved in the background a few seconds after the last change.
+ */
+@Slf4j
+public final class TrigramIndex {
+
+    /** Larger files are not indexed, they are always scanned. */
+    public static final int MAX_INDEXED_CHARS = 4 * 1024 * 1024;
+    private static final int VERSION = 2;
+    private static final long SAVE_DELAY_MILLIS = 5_000;
+
+    private record Entry(long stamp, long[] bits) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Path file;
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    /**
+     * @param file where the index is persisted, {@code null} to keep it in memory only
+     */
+    public TrigramIndex(Path file) {
+        this.file = file;
+    }
+
+    /** Loads the persisted index, or returns an empty one if there is none or it is unreadable. */
+    public static TrigramIndex load(Path file) {
+        var result = new TrigramIndex(file);
+        if (file == null || !Files.isRegularFile(file)) return result;
+        try (var in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != VERSION) return result;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                var key = in.readUTF();
+                var stamp = in.readLong();
+                var bits = new long[in.readInt()];
+                for (int b = 0; b < bits.length; b++) bits[b] = in.readLong();
+                result.entries.put(key, new Entry(stamp, bits));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable trigram index {}: {}", file, e.getMessage());
+            result.entries.clear();
+        }
+        return result;
+    }
+
+    /** @return true if the file is indexed with exactly this stamp */
+    public boolean isCurrent(String key, long stamp) {
+        var e = entries.get(key);
+        return e != null && e.stamp() == stamp;
+    }
+
+    public void add(String key, long stamp, CharSequence content) {
+        if (content.length() > MAX_INDEXED_CHARS) {
+            remove(key);
+            return;
+        }
+        var trigrams = trigramsOf(content, new IntList()).toArray();
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) trigrams[distinct++] = trigrams[i];
+        }
+        // 4-8 bits per distinct trigram and one hash: < 25% false positives per trigram, a query has several
+        int size = Math.clamp(Integer.highestOneBit(Math.max(1, distinct * 4 - 1)) << 1, 256, 1 << 20);
+        var bits = new long[size >>> 6];
+        int mask = size - 1;
+        for (int i = 0; i < distinct; i++) {
+            int h = trigrams[i] & mask;
+            bits[h >>> 6] |= 1L << h;
+        }
+        entries.put(key, new Entry(stamp, bits));
+        scheduleSave();
+    }
+
+    public void remove(String key) {
+        if (entries.remove(key) != null) scheduleSave();
+    }
+
+    public void removeIf(Predicate<String> keyFilter) {
+        if (entries.keySet().removeIf(keyFilter)) scheduleSave();
+    }
+
+    /** @return true if the index is saved to a file */
+    public boolean isPersistent() {
+        return file != null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param trigrams of the query, see {@link #trigrams(String)}
+     * @return false only if the indexed file cannot contain the query
+     */
+    public boolean mayContain(String key, int[] trigrams) {
+        var e = entries.get(key);
+        if (e == null || trigrams.length == 0) return true;
+        var bits = e.bits();
+        int mask = (bits.length << 6) - 1;
+        for (int t : trigrams) {
+            int h = t & mask;
+            if ((bits[h >>> 6] & (1L << h)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Trigrams every match of the query has to contain. A literal query yields all of its trigrams, a
+     * regex only those of its literal runs; an alternation, a group, a nested or escaped character
+     * class or a too short query yields none — no narrowing. The regex detection is the one of {@link RegexUtils#isRegexPattern(String)}.
+     */
+    public static int[] trigrams(String query) {
+        if (query == null) return new int[0];
+        if (!RegexUtils.isRegexPattern(query)) return trigramsOf(query, new IntList()).toArray();
+        // alternatives and (optional) groups are not analyzed
+        if (query.indexOf('|') >= 0 || query.indexOf('(') >= 0) return new int[0];
+
+        var result = new IntList();
+        var run = new StringBuilder();
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '\\' && i + 1 < query.length()) {
+                char next = query.charAt(++i);
+                if (next == 'Q') {
+                    // quoted literal up to \E
+                    int end = query.indexOf("\\E", i + 1);
+                    if (end < 0) end = query.length();
+                    run.append(query, i + 1, end);
+                    i = end + 1;
+                } else if (Character.isLetterOrDigit(next)) {
+                    // character class or escape sequence like \w \d \n \x41, none of its chars is literal
+                    trigramsOf(run, result);
+                    run.setLength(0);
+                    i = skipEscape(query, i);
+                } else {
+                    run.append(next);
+                }
+            } else if (c == '*' || c == '?' || c == '{') {
+                // the preceding char is optional
+                if (!run.isEmpty()) run.setLength(run.length() - 1);
+                trigramsOf(run, result);
+                run.setLength(0);
+                if (c == '{') i = skipTo(query, i, '}');
+            } else if (c == '[') {
+                trigramsOf(run, result);
+                run.setLength(0);
+                int end = skipTo(query, i, ']');
+                // the class may not end at the first ] — [a&&[^b]], [\]], []a] — don't guess its end
+                var members = query.substring(i + 1, end);
+                if (members.indexOf('[') >= 0 || members.indexOf('\\') >= 0
+                        || members.isEmpty() || members.equals("^")) {
+                    return new int[0];
+                }
+                i = end;
+            } else if (".+^$".indexOf(c) >= 0) {
+                trigramsOf(run, result);
+                run.setLength(0);
+            } else {
+                run.append(c);
+            }
+        }
+        trigramsOf(run, result);
+        return result.toArray();
+    }
+
+    /**
+     * @param i index of the char after the backslash
+     * @return index of the last char of the escape sequence, e.g. of both hex digits of {@code \x41}
+     */
+    private static int skipEscape(String query, int i) {
+        char c = query.charAt(i);
+        int n = query.length();
+        if ((c == 'x' || c == 'p' || c == 'P' || c == 'N') && i + 1 < n && query.charAt(i + 1) == '{') {
+            return skipTo(query, i + 1, '}');
+        }
+        if (c == 'k' && i + 1 < n && query.charAt(i + 1) == '<') return skipTo(query, i + 1, '>');
+        return switch (c) {
+            case 'x' -> Math.min(i + 2, n - 1);
+            case 'u' -> Math.min(i + 4, n - 1);
+            case 'c', 'p', 'P' -> Math.min(i + 1, n - 1);
+            case '0' -> {
+                // up to three octal digits
+                int end = i;
+                while (end + 1 < n && end - i < 3 && query.charAt(end + 1) >= '0' && query.charAt(end + 1) <= '7') end++;
+                yield end;
+            }
+            default -> i;
+        };
+    }
+
+    private static int skipTo(String query, int from, char end) {
+        int i = query.indexOf(end, from + 1);
+        return i < 0 ? query.length() : i;
+    }
+
+    private static IntList trigramsOf(CharSequence value, IntList result) {
+        for (int i = 2; i < value.length(); i++) {
+            result.add(hash(value.charAt(i - 2), value.charAt(i - 1), value.charAt(i)));
+        }
+        return result;
+    }
+
+    private static int hash(char a, char b, char c) {
+        long v = ((long) lower(a) << 32) | ((long) lower(b) << 16) | lower(c);
+        v ^= v >>> 33;
+        v *= 0xff51afd7ed558ccdL;
+        v ^= v >>> 33;
+        return (int) v;
+    }
+
+    /** Folds the case like {@code Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE}, e.g. σ, ς and Σ are one char. */
+    private static char lower(char c) {
+        if (c < 128) return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /** Saves the index now; a no-op for an in-memory index. */
+    public void save() throws IOException {
+        if (file == null) return;
+        Files.createDirectories(file.getParent());
+        var tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (var out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))))) {
+                var snapshot = Map.copyOf(entries);
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (var e : snapshot.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue().stamp());
+                    var bits = e.getValue().bits();
+                    out.writeInt(bits.length);
+                    for (long b : bits) out.writeLong(b);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void scheduleSave() {
+        if (file == null || !saveScheduled.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("peon-trigram-save").start(() -> {
+            try {
+                Thread.sleep(SAVE_DELAY_MILLIS);
+                saveScheduled.set(false);
+                save();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to save trigram index {}: {}", file, e.getMessage());
+            } finally {
+                saveScheduled.set(false);
+            }
+        });
+    }
+
+    /** Growable int array, avoids boxing while collecting trigrams. */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
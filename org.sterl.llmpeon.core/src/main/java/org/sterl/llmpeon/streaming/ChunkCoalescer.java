@@ -0,0 +1,134 @@
+package org.sterl.llmpeon.streaming;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.sterl.llmpeon.shared.AiMonitor;
+import org.sterl.llmpeon.shared.OnPartialAiResponse;
+import org.sterl.llmpeon.shared.OnPartialAiResponse.Type;
+
+/**
+ * Collects the streamed chunks of one AI call between two UI frames.
+ * <p>
+ * The network thread only appends to the pending segments; {@link #flush()} hands them to the
+ * {@link AiMonitor}, once per frame. Consecutive chunks of the same type are merged into one
+ * {@link OnPartialAiResponse} which carries the number of merged chunks, so token counts stay exact.
+ * After {@link #close()} chunks are passed on directly.
+ */
+final class ChunkCoalescer {
+
+    private static final class Segment {
+        final Type type;
+        final StringBuilder text = new StringBuilder();
+        String last;
+        int tokens;
+
+        Segment(Type type) {
+            this.type = type;
+        }
+
+        void add(String value) {
+            if (value == null) return;
+            ++tokens;
+            // tool chunks repeat the tool name, only the latest one is of interest
+            if (type == Type.TOOL) last = value;
+            else text.append(value);
+        }
+
+        OnPartialAiResponse toResponse(Instant startedAt) {
+            var value = type == Type.TOOL ? last : text.isEmpty() ? null : text.toString();
+            return new OnPartialAiResponse(type, value, startedAt, tokens);
+        }
+    }
+
+    private final AiMonitor monitor;
+    private final Instant startedAt;
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Keeps the order of the monitor calls between the flushing and a late network thread. */
+    private final ReentrantLock emitLock = new ReentrantLock();
+    /** Guarded by {@link #lock}; swapped with {@link #draining} on each flush. */
+    private List<Segment> pending = new ArrayList<>();
+    private List<Segment> draining = new ArrayList<>();
+    /** Guarded by {@link #lock}. */
+    private boolean closed;
+
+    /**
+     * @param coalesce {@code false} to pass every chunk on directly
+     */
+    ChunkCoalescer(AiMonitor monitor, Instant startedAt, boolean coalesce) {
+        this.monitor = monitor;
+        this.startedAt = startedAt;
+        this.closed = !coalesce;
+    }
+
+    /** Called by the network thread for each chunk. */
+    void add(Type type, String value) {
+        lock.lock();
+        try {
+            if (!closed) {
+                var last = pending.isEmpty() ? null : pending.getLast();
+                if (last == null || last.type != type) {
+                    last = new Segment(type);
+                    pending.add(last);
+                }
+                last.add(value);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        var segment = new Segment(type);
+        segment.add(value);
+        emit(List.of(segment));
+    }
+
+    /** Passes the pending segments on to the monitor — outside of the lock, the network thread never waits for the UI. */
+    void flush() {
+        emitLock.lock();
+        try {
+            List<Segment> segments;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) return;
+                segments = pending;
+                pending = draining;
+                draining = segments;
+            } finally {
+                lock.unlock();
+            }
+            segments.forEach(s -> monitor.onStreamingChunk(s.toResponse(startedAt)));
+            segments.clear();
+        } finally {
+            emitLock.unlock();
+        }
+    }
+
+    /** Flushes and passes all further chunks on directly. */
+    void close() {
+        emitLock.lock();
+        try {
+            flush();
+            lock.lock();
+            try {
+                closed = true;
+            } finally {
+                lock.unlock();
+            }
+            // chunks added between the flush and closing
+            flush();
+        } finally {
+            emitLock.unlock();
+        }
+    }
+
+    private void emit(List<Segment> segments) {
+        emitLock.lock();
+        try {
+            segments.forEach(s -> monitor.onStreamingChunk(s.toResponse(startedAt)));
+        } finally {
+            emitLock.unlock();
+        }
+    }
+}
@@ -32,9 +32,18 @@ import dev.langchain4j.model.chat.response.StreamingHandle;
  * <p>
  * Cancel: every partial callback checks {@link AiMonitor#isCanceled()} and calls
  * {@link StreamingHandle#cancel()} immediately when true.
+ * <p>
+ * Chunks are not passed on per token: the network thread collects them in a {@link ChunkCoalescer}
+ * and the calling thread, which waits for the response anyway, flushes them to
+ * {@link AiMonitor#onStreamingChunk} once per frame.
  */
 public class StreamingBridge implements StreamingChatResponseHandler {
 
+    public static final int DEFAULT_FRAMES_PER_SECOND = 30;
+    private static final long CANCEL_POLL_MILLIS = 1500;
+
+    private final long frameMillis;
+    private final boolean coalesce;
     private Instant startedAt = Instant.now();
 
     // Per-call state — reset at the top of each call()
@@ -43,6 +52,20 @@ public class StreamingBridge implements StreamingChatResponseHandler {
     private volatile AtomicReference<Throwable> errorRef;
     private volatile AtomicReference<StreamingHandle> handleRef;
     private volatile AiMonitor monitor;
+    private volatile ChunkCoalescer chunks;
+
+    public StreamingBridge() {
+        this(DEFAULT_FRAMES_PER_SECOND);
+    }
+
+    /**
+     * @param framesPerSecond how often streamed chunks are passed to the monitor, {@code <= 0} passes
+     *                        every chunk on directly
+     */
+    public StreamingBridge(int framesPerSecond) {
+        this.coalesce = framesPerSecond > 0;
+        this.frameMillis = coalesce ? Math.max(1, 1000 / framesPerSecond) : CANCEL_POLL_MILLIS;
+    }
 
     /**
      * Executes one streaming LLM call and blocks until complete or error.
@@ -59,13 +82,14 @@ public class StreamingBridge implements StreamingChatResponseHandler {
         this.handleRef = new AtomicReference<>();
         this.monitor = AiMonitor.nullSafety(monitor);
         this.monitor.onStreamingChunk(new OnPartialAiResponse(Type.START, null, startedAt));
-
+        this.chunks = new ChunkCoalescer(this.monitor, startedAt, coalesce);
 
         Throwable error = null;
         try {
             model.chat(request, this);
 
-            while (!latch.await(1500, TimeUnit.MILLISECONDS)) {
+            while (!latch.await(frameMillis, TimeUnit.MILLISECONDS)) {
+                chunks.flush();
                 cancelAndRelease(handleRef.get());
             }
         } catch (InterruptedException e) {
@@ -77,6 +101,7 @@ public class StreamingBridge implements StreamingChatResponseHandler {
             error = e;
         } finally {
             latch.countDown();
+            chunks.close();
         }
 
         error = errorRef.get() == null ? error : errorRef.get();
@@ -97,21 +122,21 @@ public class StreamingBridge implements StreamingChatResponseHandler {
     public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
         handleRef.compareAndSet(null, context.streamingHandle());
         if (cancelAndRelease(context.streamingHandle())) return;
-        monitor.onStreamingChunk(new OnPartialAiResponse(Type.ANSWER, partialResponse.text(), startedAt));
+        chunks.add(Type.ANSWER, partialResponse.text());
     }
 
     @Override
     public void onPartialThinking(PartialThinking partialThinking, PartialThinkingContext context) {
         handleRef.compareAndSet(null, context.streamingHandle());
         if (cancelAndRelease(context.streamingHandle())) return;
-        monitor.onStreamingChunk(new OnPartialAiResponse(Type.THINK, partialThinking.text(), startedAt));
+        chunks.add(Type.THINK, partialThinking.text());
     }
 
     @Override
     public void onPartialToolCall(PartialToolCall partialToolCall, PartialToolCallContext context) {
         handleRef.compareAndSet(null, context.streamingHandle());
         if (cancelAndRelease(context.streamingHandle())) return;
-        monitor.onStreamingChunk(new OnPartialAiResponse(Type.TOOL, partialToolCall.name(), startedAt));
+        chunks.add(Type.TOOL, partialToolCall.name());
     }
 
     private boolean cancelAndRelease(StreamingHandle handle) {
@@ -128,7 +153,7 @@ public class StreamingBridge implements StreamingChatResponseHandler {
 
     @Override
     public void onCompleteResponse(ChatResponse completeResponse) {
-        this.monitor.onStreamingChunk(new OnPartialAiResponse(Type.END, null, startedAt));
+        chunks.add(Type.END, null);
         responseRef.set(completeResponse);
         // Single accumulation trigger for the whole app (main loop, search sub-agent, compaction).
         // Only real provider usage — no estimate. See docs/adr/0004-session-token-accounting.md.
@@ -139,7 +164,7 @@ public class StreamingBridge implements StreamingChatResponseHandler {
 
     @Override
     public void onError(Throwable error) {
-        this.monitor.onStreamingChunk(new OnPartialAiResponse(Type.END, null, startedAt));
+        chunks.add(Type.END, null);
         errorRef.set(error);
         latch.countDown();
     }
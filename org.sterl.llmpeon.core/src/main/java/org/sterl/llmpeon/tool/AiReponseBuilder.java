@@ -1,7 +1,10 @@
 package org.sterl.llmpeon.tool;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.sterl.llmpeon.shared.TokenEstimator;
+
 public class AiReponseBuilder {
 
     public static String searchComplete(List<String> results) {
@@ -19,4 +22,39 @@ public class AiReponseBuilder {
         if (suffix != null) result.append(System.lineSeparator()).append(suffix);
         return result.toString();
     }
+
+    /**
+     * Lists the grep results in the given order. Each file comes with its matching lines as long as
+     * they fit into the token budget, then only with its count, the rest is omitted.
+     */
+    public static String searchComplete(List<GrepResult> results, int tokenBudget, String suffix) {
+        var lines = new ArrayList<String>(results.size());
+        int omitted = 0;
+        int budget = tokenBudget;
+        for (var r : results) {
+            var header = r.path() + ": " + r.count() + " occurrence(s)";
+            if (r.lines() != null && !r.lines().isEmpty()) {
+                var full = header + System.lineSeparator() + r.lines().stripTrailing();
+                int cost = TokenEstimator.CHARS_PER_TOKEN.estimate(full);
+                if (cost <= budget) {
+                    lines.add(full);
+                    budget -= cost;
+                    continue;
+                }
+                header += " - lines omitted, token budget reached";
+            }
+            int cost = TokenEstimator.CHARS_PER_TOKEN.estimate(header);
+            if (cost <= budget) {
+                lines.add(header);
+                budget -= cost;
+            } else {
+                ++omitted;
+            }
+        }
+        if (omitted > 0) {
+            var note = "... " + omitted + " more file(s) omitted, token budget reached. Narrow your search.";
+            suffix = suffix == null ? note : suffix + System.lineSeparator() + note;
+        }
+        return searchComplete(lines, suffix);
+    }
 }
@@ -0,0 +1,45 @@
+package org.sterl.llmpeon.tool;
+
+import java.util.Comparator;
+
+/**
+ * One file found by a grep tool.
+ *
+ * @param path  of the file as shown to the model
+ * @param count matches in the file
+ * @param size  of the content in chars, for the match density
+ * @param lines the matching lines with context, see
+ *              {@link org.sterl.llmpeon.shared.FileLines#matches(String, org.sterl.llmpeon.shared.ContentMatcher, int, int, int)},
+ *              {@code null} if only counted
+ */
+public record GrepResult(String path, int count, long size, String lines) {
+
+    /** Matches per KB. */
+    public double density() {
+        return count / Math.max(1.0, size / 1024.0);
+    }
+
+    /**
+     * Files sharing more leading path segments with the preferred path first — e.g. the selected
+     * project — then the files with the denser matches, then by path.
+     *
+     * @param preferredPath may be {@code null}
+     */
+    public static Comparator<GrepResult> ranking(String preferredPath) {
+        var preferred = segments(preferredPath);
+        return Comparator.<GrepResult>comparingInt(r -> -commonSegments(preferred, segments(r.path())))
+                .thenComparing(Comparator.comparingDouble(GrepResult::density).reversed())
+                .thenComparing(GrepResult::path);
+    }
+
+    private static String[] segments(String path) {
+        if (path == null) return new String[0];
+        return path.replace('\\', '/').replaceAll("^/+", "").split("/+");
+    }
+
+    private static int commonSegments(String[] a, String[] b) {
+        int i = 0;
+        while (i < a.length && i < b.length && a[i].equalsIgnoreCase(b[i])) ++i;
+        return i;
+    }
+}
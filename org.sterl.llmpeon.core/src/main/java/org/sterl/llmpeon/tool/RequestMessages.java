@@ -0,0 +1,71 @@
+package org.sterl.llmpeon.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sterl.llmpeon.memory.ThreadSafeMemory;
+import org.sterl.llmpeon.shared.AppendOnlyArray;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+
+/**
+ * The message list of one tool loop: the merged system message followed by the memory.
+ * <p>
+ * The messages are kept in an {@link AppendOnlyArray}, each iteration only appends what was added to
+ * the {@link ThreadSafeMemory} since the last one, and hands out an immutable snapshot of it instead
+ * of a copy. If the memory rewrites its messages (compaction, merged user messages) the
+ * {@link ThreadSafeMemory#getGeneration() generation} changes and the list is rebuilt into a fresh array.
+ */
+class RequestMessages {
+
+    private List<ChatMessage> staticMessages;
+    private List<ChatMessage> prefix = List.of();
+
+    private AppendOnlyArray<ChatMessage> messages = new AppendOnlyArray<>();
+    private long memoryGeneration = -1;
+    private int memorySize = 0;
+
+    /**
+     * @param staticMessages the system messages, merged once as long as the same list instance is passed
+     * @return an immutable snapshot of all messages to send
+     */
+    synchronized List<ChatMessage> messages(List<ChatMessage> staticMessages, ThreadSafeMemory memory) {
+        if (this.staticMessages != staticMessages) {
+            this.staticMessages = staticMessages;
+            this.prefix = toOneSystemMessage(staticMessages);
+            memoryGeneration = -1;
+        }
+
+        long generation;
+        while ((generation = memory.forEachSince(memoryGeneration, memorySize, this::appendFromMemory)) != memoryGeneration) {
+            reset(generation);
+        }
+        return messages.snapshot();
+    }
+
+    private void reset(long generation) {
+        // never overwrite slots of an older snapshot
+        messages = new AppendOnlyArray<>(Math.max(16, messages.size()));
+        memorySize = 0;
+        memoryGeneration = generation;
+        messages.addAll(prefix);
+    }
+
+    private void appendFromMemory(ChatMessage message) {
+        messages.add(message);
+        ++memorySize;
+    }
+
+    /** Merges all SystemMessages into one at the front (compatibility with local LLMs). */
+    static List<ChatMessage> toOneSystemMessage(List<ChatMessage> messages) {
+        var result = new ArrayList<ChatMessage>();
+        var systemText = new StringBuilder();
+        for (var m : messages) {
+            if (m instanceof SystemMessage sm) systemText.append(sm.text()).append("\n");
+            else result.add(m);
+        }
+        if (systemText.length() > 0) result.addFirst(SystemMessage.from(systemText.toString()));
+        return result;
+    }
+}
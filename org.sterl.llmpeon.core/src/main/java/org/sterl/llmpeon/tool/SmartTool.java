@@ -10,6 +10,13 @@ public interface SmartTool {
      * Plan agents should only receive tools where this returns false.
      */
     default boolean isEditTool() { return false; }
+
+    /**
+     * If true, calls of this read-only tool may run concurrently with other parallel-safe calls of
+     * the same model response. The tool must not keep per-call state and must tolerate interrupts.
+     * Ignored for edit tools, which always run serialized in request order.
+     */
+    default boolean isParallelSafe() { return false; }
     
     /**
      * Adds a Monitor for the observation of the tool
@@ -1,6 +1,7 @@
 package org.sterl.llmpeon.tool;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 
 import org.jspecify.annotations.Nullable;
@@ -96,6 +97,11 @@ public class ToolLoopRequest {
     @Getter
     public List<String> standingOrders = List.of();
 
+    /** Tools block cached by {@link ToolService} for this loop — never copied by {@code toBuilder()}. */
+    final AtomicReference<ToolService.ToolSpecs> toolSpecs = new AtomicReference<>();
+    /** Message list appended per loop iteration — never copied by {@code toBuilder()}. */
+    final RequestMessages requestMessages = new RequestMessages();
+
     public void addMessage(ChatMessage message) {
         memory.add(message);
     }
@@ -1,16 +1,28 @@
 package org.sterl.llmpeon.tool;
 
 import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jspecify.annotations.NonNull;
 import org.sterl.llmpeon.exception.ExceptionUtil;
 import org.sterl.llmpeon.mcp.McpServerConfig;
 import org.sterl.llmpeon.mcp.McpService;
+import org.sterl.llmpeon.shared.AiMonitor;
 import org.sterl.llmpeon.shared.StringUtil;
 import org.sterl.llmpeon.tool.component.SmartToolExecutor;
 import org.sterl.llmpeon.tool.model.ToSimpleMessage;
@@ -19,14 +31,13 @@ import org.sterl.llmpeon.tool.tools.CompactSessionTool;
 import org.sterl.llmpeon.tool.tools.SearchAgentTool;
 import org.sterl.llmpeon.tool.tools.ShellTool;
 import org.sterl.llmpeon.tool.tools.WebFetchTool;
+import org.sterl.llmpeon.tool.tools.WebPageCache;
 
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.agent.tool.ToolSpecifications;
 import dev.langchain4j.data.message.AiMessage;
-import dev.langchain4j.data.message.ChatMessage;
-import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.request.ChatRequest;
@@ -43,6 +54,9 @@ import lombok.extern.slf4j.Slf4j;
 public class ToolService {
 
     private static final int MAX_STUCK_ITERATIONS = 10;
+    private static final int DEFAULT_MAX_PARALLEL_TOOLS = 4;
+    private static final long CANCEL_POLL_MILLIS = 200;
+    private static final ThreadFactory TOOL_THREADS = Thread.ofVirtual().name("peon-tool-", 0).factory();
     private final Map<String, SmartToolExecutor> toolExecutors = new ConcurrentHashMap<>();
     
     private static final String COMPACT_HINT =
@@ -57,6 +71,10 @@ public class ToolService {
 
     private McpService mcpService;
     private List<ToolSpecification> mcpToolSpecs = List.of();
+    private volatile int maxParallelTools = DEFAULT_MAX_PARALLEL_TOOLS;
+    /** {@link #toolExecutors} ordered by name, rebuilt on each registry change. */
+    private volatile List<SmartToolExecutor> sortedExecutors = List.of();
+    private final AtomicLong registryVersion = new AtomicLong();
 
     public ToolService() {
         this(true);
@@ -66,16 +84,25 @@ public class ToolService {
      * @param withDefaults if true, auto-registers WebFetchTool, SearchAgentTool, ShellTool, CompactSessionTool
      */
     public ToolService(boolean withDefaults) {
+        this(withDefaults, null);
+    }
+
+    /**
+     * @param withDefaults if true, auto-registers WebFetchTool, SearchAgentTool, ShellTool, CompactSessionTool
+     * @param configDir the Peon config dir the web pages are cached in, {@code null} to cache them in memory
+     */
+    public ToolService(boolean withDefaults, Path configDir) {
         if (withDefaults) {
-            addTool(new WebFetchTool());
+            addTool(new WebFetchTool(WebPageCache.of(configDir)));
             addTool(new SearchAgentTool(this));
             addTool(new ShellTool());
             addTool(new CompactSessionTool());
         }
     }
 
+    /** All built-in tool specs, ordered by tool name. */
     public List<ToolSpecification> toolSpecifications() {
-        return toolExecutors.values().stream()
+        return sortedExecutors.stream()
                 .map(SmartToolExecutor::getSpec)
                 .toList();
     }
@@ -90,9 +117,17 @@ public class ToolService {
         return mcpToolSpecs.stream().map(ToolSpecification::name).toList();
     }
 
+    /**
+     * The tools block of the given request — filtered once per registry version and cached in the
+     * request, so every loop iteration sends the identical, stably ordered list (KV cache).
+     */
     List<ToolSpecification> toolSpecifications(ToolLoopRequest req) {
+        var version = registryVersion.get();
+        var cached = req.toolSpecs.get();
+        if (cached != null && cached.version() == version) return cached.specs();
+
         var result = new ArrayList<ToolSpecification>();
-        toolExecutors.values().stream()
+        sortedExecutors.stream()
                 .filter(req.toolFilter)
                 .map(SmartToolExecutor::getSpec)
                 .forEach(result::add);
@@ -100,7 +135,21 @@ public class ToolService {
         mcpToolSpecs.stream()
                 .filter(spec -> req.toolNameFilter.test(spec.name()))
                 .forEach(result::add);
-        return result;
+
+        var specs = List.copyOf(result);
+        req.toolSpecs.set(new ToolSpecs(version, specs));
+        return specs;
+    }
+
+    /** Filtered tool specs of one registry version. */
+    record ToolSpecs(long version, List<ToolSpecification> specs) {}
+
+    /** Call after every change of the built-in or MCP tools — invalidates all cached {@link ToolSpecs}. */
+    private synchronized void registryChanged() {
+        sortedExecutors = toolExecutors.values().stream()
+                .sorted(Comparator.comparing(e -> e.getSpec().name()))
+                .toList();
+        registryVersion.incrementAndGet();
     }
 
     public SmartToolExecutor getExecutor(String toolName) {
@@ -124,8 +173,7 @@ public class ToolService {
         int stuck = 0;
 
         do {
-            var messages = new ArrayList<ChatMessage>(toOneSystemMessage(req.staticMessages));
-            req.getMemory().addMemoryTo(messages);
+            var messages = req.requestMessages.messages(req.staticMessages, req.getMemory());
 
             var agentConfig = req.getAgentConfig();
             var builder = ChatRequest.builder()
@@ -191,40 +239,115 @@ public class ToolService {
         }
     }
 
+    /**
+     * Runs the tool calls of one response. Consecutive {@link #isParallelSafe(ToolExecutionRequest) parallel-safe}
+     * calls are fanned out onto a bounded pool, every other call acts as a barrier and runs alone —
+     * the results are always returned in request order to keep the history deterministic.
+     */
     private List<ToolExecutionResultMessage> runAllTools(ChatResponse response, ToolLoopRequest req) {
-        var toolResults = new ArrayList<ToolExecutionResultMessage>();
-
-        for (var tr : response.aiMessage().toolExecutionRequests()) {
-            try {
-                var trResult = execute(tr, req);
-                toolResults.add(trResult);
-            } catch (Exception e) {
-                if (ExceptionUtil.isCanceled(e)) throw e;
-                log.error("Tool {} with args {} failed", tr.name(), tr.arguments(), e);
-                req.getMonitor().onProblem(tr.name() + " failed: " + e.getMessage() + " details logged.");
-                toolResults.add(ToolExecutionResultMessage.from(tr.id(), tr.name(),
-                        "Tool failed - check why and inform user " + StringUtil.getStackTrace(e)));
+        var requests = response.aiMessage().toolExecutionRequests();
+        var toolResults = new ArrayList<ToolExecutionResultMessage>(requests.size());
+        var batch = new ArrayList<ToolExecutionRequest>();
+
+        for (var tr : requests) {
+            if (maxParallelTools > 1 && isParallelSafe(tr)) {
+                batch.add(tr);
+            } else {
+                runParallel(batch, req, toolResults);
+                batch.clear();
+                toolResults.add(runTool(tr, req, true));
             }
         }
+        runParallel(batch, req, toolResults);
 
         return toolResults;
     }
-    
-    /** Merges all SystemMessages into one at the front (compatibility with local LLMs). */
-    private static List<ChatMessage> toOneSystemMessage(List<ChatMessage> messages) {
-        var result = new ArrayList<ChatMessage>();
-        var systemText = new StringBuilder();
-        for (var m : messages) {
-            if (m instanceof SystemMessage sm) systemText.append(sm.text()).append("\n");
-            else result.add(m);
+
+    private void runParallel(List<ToolExecutionRequest> batch, ToolLoopRequest req,
+            List<ToolExecutionResultMessage> toolResults) {
+        if (batch.isEmpty()) return;
+        if (batch.size() == 1) {
+            toolResults.add(runTool(batch.getFirst(), req, true));
+            return;
         }
-        if (systemText.length() > 0) result.addFirst(SystemMessage.from(systemText.toString()));
-        return result;
+
+        // tools keep the request in a field — bind each instance once for all of its concurrent calls
+        var tools = batch.stream()
+                .map(tr -> toolExecutors.get(tr.name()))
+                .filter(Objects::nonNull)
+                .map(SmartToolExecutor::getTool)
+                .distinct()
+                .toList();
+        tools.forEach(t -> t.withToolRequest(req));
+
+        var pool = Executors.newFixedThreadPool(Math.min(maxParallelTools, batch.size()), TOOL_THREADS);
+        try {
+            var futures = batch.stream()
+                    .map(tr -> pool.submit(() -> runTool(tr, req, false)))
+                    .toList();
+            for (var f : futures) toolResults.add(await(f, req.getMonitor()));
+        } finally {
+            pool.shutdownNow(); // interrupts all in-flight calls on cancel or error
+            tools.forEach(t -> t.withToolRequest(null));
+        }
+    }
+
+    private static ToolExecutionResultMessage await(Future<ToolExecutionResultMessage> future, AiMonitor monitor) {
+        try {
+            while (true) {
+                if (monitor.isCanceled()) throw new CancellationException("Tool execution canceled");
+                try {
+                    return future.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // check the cancel flag again
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for tool results");
+        }
+    }
+
+    private ToolExecutionResultMessage runTool(ToolExecutionRequest tr, ToolLoopRequest req, boolean bind) {
+        try {
+            return execute(tr, req, bind);
+        } catch (Exception e) {
+            if (ExceptionUtil.isCanceled(e)) throw e;
+            log.error("Tool {} with args {} failed", tr.name(), tr.arguments(), e);
+            req.getMonitor().onProblem(tr.name() + " failed: " + e.getMessage() + " details logged.");
+            return ToolExecutionResultMessage.from(tr.id(), tr.name(),
+                    "Tool failed - check why and inform user " + StringUtil.getStackTrace(e));
+        }
+    }
+
+    /** Read-only built-in tools which opted in, or MCP tools the server marked as read-only. */
+    private boolean isParallelSafe(ToolExecutionRequest tr) {
+        var executor = toolExecutors.get(tr.name());
+        if (executor != null) return !executor.getTool().isEditTool() && executor.getTool().isParallelSafe();
+        var mcp = mcpService;
+        return mcp != null && mcp.isReadOnlyTool(tr.name());
+    }
+
+    /** Max concurrent read-only tool calls per model response. */
+    public int getMaxParallelTools() {
+        return maxParallelTools;
     }
 
+    /** @param maxParallelTools max concurrent read-only tool calls per model response, {@code 1} runs all tools sequentially */
+    public void setMaxParallelTools(int maxParallelTools) {
+        this.maxParallelTools = Math.max(1, maxParallelTools);
+    }
+    
     public static record ToolResult(boolean clearMemory, ToolExecutionResultMessage message) {}
 
     public ToolExecutionResultMessage execute(ToolExecutionRequest tr, ToolLoopRequest req) {
+        return execute(tr, req, true);
+    }
+
+    private ToolExecutionResultMessage execute(ToolExecutionRequest tr, ToolLoopRequest req, boolean bind) {
         var executor = toolExecutors.get(tr.name());
         var monitor = req.getMonitor();
         String result;
@@ -238,7 +361,7 @@ public class ToolService {
             result = "Error: unknown tool '" + tr.name() + "' check spelling";
             monitor.onProblem(result);
         } else {
-            result = executor.run(tr, req);
+            result = bind ? executor.run(tr, req) : executor.invoke(tr, req);
         }
         return ToolExecutionResultMessage.from(tr.id(), tr.name(), result);
     }
@@ -254,7 +377,8 @@ public class ToolService {
         var service = new McpService(servers);
         service.connect(); // throws on failure
         this.mcpService = service;
-        this.mcpToolSpecs = service.getToolSpecifications();
+        this.mcpToolSpecs = List.copyOf(service.getToolSpecifications());
+        registryChanged();
     }
 
     /** Disconnects the active MCP service and removes its tools from the tool loop. */
@@ -264,6 +388,7 @@ public class ToolService {
             mcpService.disconnect();
             mcpService = null;
         }
+        registryChanged();
     }
 
     /**
@@ -289,6 +414,7 @@ public class ToolService {
                 }
             }
         }
+        registryChanged();
         return result;
     }
 
@@ -306,6 +432,7 @@ public class ToolService {
                 log.debug("removed tool " + spec.name());
             }
         }
+        registryChanged();
     }
 
     @SuppressWarnings("unchecked")
@@ -37,6 +37,18 @@ public class SmartToolExecutor {
     public String run(ToolExecutionRequest request, ToolLoopRequest req) {
         try {
             tool.withToolRequest(req);
+            return invoke(request, req);
+        } finally {
+            tool.withToolRequest(null);
+        }
+    }
+
+    /**
+     * Executes the tool without binding the {@link ToolLoopRequest} — the caller has to bind it via
+     * {@link SmartTool#withToolRequest(ToolLoopRequest)} once for all concurrent calls of this tool.
+     */
+    public String invoke(ToolExecutionRequest request, ToolLoopRequest req) {
+        try {
             return executor.execute(request, request.id());
         } catch (IllegalArgumentException e) {
             var msg = e.getMessage();
@@ -53,8 +65,6 @@ public class SmartToolExecutor {
             if (ExceptionUtil.isCanceled(e)) throw e; // cancellation wrapped in another exception
             if (e instanceof RuntimeException ex) throw ex;
             throw new RuntimeException(e);
-        } finally {
-            tool.withToolRequest(null);
         }
     }
     private void reportProblem(ToolExecutionRequest request,
@@ -0,0 +1,34 @@
+package org.sterl.llmpeon.tool.model;
+
+import dev.langchain4j.model.output.structured.Description;
+
+/**
+ * One edit of a batch: set either {@code oldString}, {@code startLine} or {@code afterLine}, see
+ * {@link org.sterl.llmpeon.shared.TextEdits}.
+ */
+public record FileEdit(
+        @Description("file to edit")
+        String filePath,
+        @Description("exact string to replace, for a string edit")
+        String oldString,
+        @Description("first line to replace (1-based), for a line edit")
+        Integer startLine,
+        @Description("last line to replace (1-based), default startLine")
+        Integer endLine,
+        @Description("line to insert after (1-based), 0 prepends, beyond the last line appends; for an insert")
+        Integer afterLine,
+        @Description("the replacement or the text to insert, may span multiple lines")
+        String newString) {
+
+    public static FileEdit replace(String filePath, String oldString, String newString) {
+        return new FileEdit(filePath, oldString, null, null, null, newString);
+    }
+
+    public static FileEdit replaceLines(String filePath, int startLine, int endLine, String newString) {
+        return new FileEdit(filePath, null, startLine, endLine, null, newString);
+    }
+
+    public static FileEdit insert(String filePath, int afterLine, String newString) {
+        return new FileEdit(filePath, null, null, null, afterLine, newString);
+    }
+}
@@ -4,11 +4,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.sterl.llmpeon.shared.ArgsUtil;
+import org.sterl.llmpeon.shared.DiskFileIndex;
 import org.sterl.llmpeon.shared.FileLines;
+import org.sterl.llmpeon.shared.FilePager;
 import org.sterl.llmpeon.shared.FileUtils;
-import org.sterl.llmpeon.shared.StringMatcher;
+import org.sterl.llmpeon.shared.IgnoreRules;
+import org.sterl.llmpeon.shared.LineIndex;
 import org.sterl.llmpeon.tool.AiReponseBuilder;
 
 import dev.langchain4j.agent.tool.P;
@@ -17,6 +21,9 @@ import dev.langchain4j.agent.tool.Tool;
 public class DiskFileReadTool extends AbstractTool {
 
     private Path workingDir;
+    private volatile List<String> defaultIgnores = IgnoreRules.DEFAULT_PATTERNS;
+    /** File names below the working dir, refreshed with each search. */
+    private final DiskFileIndex fileIndex = new DiskFileIndex();
 
     public DiskFileReadTool(Path workingDir) {
         setWorkingDir(workingDir);
@@ -29,6 +36,9 @@ public class DiskFileReadTool extends AbstractTool {
     @Override
     public boolean isEditTool() { return false; }
 
+    @Override
+    public boolean isParallelSafe() { return true; }
+
     public void setWorkingDir(Path workingDir) {
         this.workingDir = workingDir.toAbsolutePath().normalize();
     }
@@ -42,7 +52,16 @@ public class DiskFileReadTool extends AbstractTool {
         return workingDir;
     }
 
-    @Tool("Read a file from disk (not Eclipse workspace). startLine/endLine for partial reads.")
+    /**
+     * Patterns ignored in addition to the {@code .gitignore} and {@code .peonignore} files, see
+     * {@link IgnoreRules#loadDefaults(Path)}.
+     */
+    public void setDefaultIgnores(List<String> defaultIgnores) {
+        this.defaultIgnores = defaultIgnores == null ? IgnoreRules.DEFAULT_PATTERNS : List.copyOf(defaultIgnores);
+    }
+
+    @Tool("Read a file from disk (not Eclipse workspace). startLine/endLine for partial reads. "
+            + "Large files return a summary first, then read them in pages.")
     public String diskReadFile(
             @P(name = "filePath") String filePath,
             @P(description = "first line to read (1-based). 0 = start of file.", required = false, name = "startLine") 
@@ -63,14 +82,17 @@ public class DiskFileReadTool extends AbstractTool {
             var lines = "";
             if (startLine > 0 && endLine > 0) lines = " from " + startLine + " to " + endLine;
             onTool("Reading " + lines + " file " + filePath);
-            String content = Files.readString(resolved);
-            return FileLines.extract(content, startLine, endLine);
+            if (FilePager.isLarge(resolved)) return FilePager.read(resolved, startLine, endLine);
+            if (startLine <= 0 && endLine <= 0) return Files.readString(resolved);
+            // only the requested lines, the file is indexed once
+            return FileLines.extract(LineIndex.of(resolved), startLine, endLine);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read " + filePath, e);
         }
     }
 
-    @Tool("Find files by name pattern (*, ?), recursive in working directory. limit caps results.")
+    @Tool("Find files by name pattern (*, ?), recursive in working directory. limit caps results. "
+            + "Without hits a plain name is matched fuzzy, e.g. FSR finds FooServiceRepository.java.")
     public String diskSearchFiles(
             @P(description = "file name query - only *, ? wildcard is supported.", name = "query") String query,
             @P(description = "Optional: max results to return. 0 = unlimited. Default 50.", name = "limit") Integer limit) {
@@ -78,17 +100,7 @@ public class DiskFileReadTool extends AbstractTool {
         if (limit == null) limit = 50;
         ArgsUtil.requireNonBlank(query, "query");
 
-        var matcher = StringMatcher.wildCardMatcher(FileUtils.normalizePath(query));
-        var matches = new ArrayList<String>();
-        try (var walk = Files.walk(workingDir)) {
-            var stream = walk.filter(Files::isRegularFile)
-                .filter(p -> matcher.match(p.getFileName().toString()) 
-                        || matcher.match(FileUtils.normalizePath(p.toAbsolutePath().toString())));
-            if (limit > 0) stream = stream.limit(limit);
-            stream.forEach(p -> matches.add(p.toAbsolutePath().toString()));
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to search in " + workingDir, e);
-        }
+        var matches = fileIndex.refresh(workingDir, defaultIgnores).search(query, limit);
 
         onTool("Found " + matches.size() + " files in " + workingDir + " for '" + query + "'.");
         String suffix = null;
@@ -3,11 +3,16 @@ package org.sterl.llmpeon.tool.tools;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import org.sterl.llmpeon.shared.AiMonitor.AiFileUpdate;
 import org.sterl.llmpeon.shared.ArgsUtil;
 import org.sterl.llmpeon.shared.FileLines;
 import org.sterl.llmpeon.shared.FileUtils;
+import org.sterl.llmpeon.shared.TextEdits;
+import org.sterl.llmpeon.tool.model.FileEdit;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
@@ -147,6 +152,58 @@ public class DiskFileWriteTool extends AbstractTool {
         }
     }
 
+    @Tool("Apply several edits to one or more files at once - all or nothing, each file is read and written once. "
+            + "Per edit set filePath, newString and one of: oldString (exact string), startLine/endLine (replace lines) "
+            + "or afterLine (insert). Line numbers refer to the files before this call.")
+    public String diskEditFiles(@P(name = "edits") List<FileEdit> edits) {
+        if (edits == null || edits.isEmpty()) throw new IllegalArgumentException("edits is required");
+
+        var byFile = new LinkedHashMap<Path, List<FileEdit>>();
+        for (var edit : edits) {
+            ArgsUtil.requireNonBlank(edit.filePath(), "filePath");
+            Path resolved = resolve(edit.filePath());
+            if (resolved == null || !Files.isRegularFile(resolved)) {
+                throw new IllegalArgumentException(
+                        "File not found: " + edit.filePath() + ". Use searchDiskFiles to find the correct path.");
+            }
+            byFile.computeIfAbsent(resolved, p -> new ArrayList<>()).add(edit);
+        }
+
+        // validate and apply all edits in memory before anything is written
+        var updates = new ArrayList<AiFileUpdate>();
+        for (var e : byFile.entrySet()) {
+            var file = workingDir.relativize(e.getKey()).toString();
+            try {
+                var content = Files.readString(e.getKey());
+                updates.add(new AiFileUpdate(file, content, TextEdits.apply(file, content, e.getValue())));
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to read " + file, ex);
+            }
+        }
+
+        var written = new ArrayList<AiFileUpdate>();
+        try {
+            for (var u : updates) {
+                written.add(u);
+                Files.writeString(workingDir.resolve(u.file()), u.newContent());
+            }
+        } catch (IOException e) {
+            for (var u : written) {
+                try {
+                    Files.writeString(workingDir.resolve(u.file()), u.oldContent());
+                } catch (IOException restore) {
+                    e.addSuppressed(restore);
+                }
+            }
+            throw new RuntimeException("Failed to write " + written.getLast().file() + ", all files restored", e);
+        }
+
+        updates.forEach(monitor::onFileUpdate);
+        var result = "Applied " + edits.size() + " edit(s) to " + updates.size() + " file(s).";
+        onTool(result);
+        return result;
+    }
+
     @Tool("Rename or move a file or directory. Creates target parent folders.")
     public void diskRenameResource(
             @P(name = "sourcePath") String sourcePath,
@@ -1,22 +1,45 @@
 package org.sterl.llmpeon.tool.tools;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.sterl.llmpeon.shared.ArgsUtil;
-import org.sterl.llmpeon.shared.RegexUtils;
+import org.sterl.llmpeon.shared.ContentMatcher;
+import org.sterl.llmpeon.shared.FileLines;
+import org.sterl.llmpeon.shared.FileScanner;
+import org.sterl.llmpeon.shared.IgnoreRules;
 import org.sterl.llmpeon.shared.StringUtil;
+import org.sterl.llmpeon.shared.TrigramIndex;
 import org.sterl.llmpeon.tool.AiReponseBuilder;
+import org.sterl.llmpeon.tool.GrepResult;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 public class DiskGrepTool extends AbstractTool {
 
+    public static final String INDEX_FILE = "disk.trigrams";
+    /** Matching lines listed per file, further ones are only counted. */
+    static final int MAX_LINES_PER_FILE = 20;
+    static final int MAX_CONTEXT_LINES = 10;
+    /** Estimated tokens of one result, see {@link AiReponseBuilder#searchComplete(List, int, String)}. */
+    static final int TOKEN_BUDGET = 4_000;
+
     private Path workingDir;
+    /** Skips files which cannot contain the query; in memory until {@link #setIndexDir(Path)}. */
+    private volatile TrigramIndex index = new TrigramIndex(null);
+    private final AtomicBoolean warmingUp = new AtomicBoolean();
+    private volatile List<String> defaultIgnores = IgnoreRules.DEFAULT_PATTERNS;
 
     public DiskGrepTool(Path workingDir) {
         this.workingDir = workingDir.toAbsolutePath().normalize();
@@ -33,50 +56,135 @@ public class DiskGrepTool extends AbstractTool {
     
     public void setWorkingDir(Path workingDir) {
         this.workingDir = workingDir.toAbsolutePath().normalize();
+        warmUp();
+    }
+
+    /**
+     * Persists the trigram index in the given directory, e.g. below the Peon config dir, and indexes
+     * the working dir in the background.
+     */
+    public void setIndexDir(Path indexDir) {
+        this.index = TrigramIndex.load(indexDir == null ? null : indexDir.resolve(INDEX_FILE));
+        warmUp();
+    }
+
+    /**
+     * Patterns ignored in addition to the {@code .gitignore} and {@code .peonignore} files, see
+     * {@link IgnoreRules#loadDefaults(Path)}.
+     */
+    public void setDefaultIgnores(List<String> defaultIgnores) {
+        this.defaultIgnores = defaultIgnores == null ? IgnoreRules.DEFAULT_PATTERNS : List.copyOf(defaultIgnores);
+    }
+
+    private IgnoreRules ignoreRules(Path searchDir) {
+        return new IgnoreRules(searchDir.startsWith(workingDir) ? workingDir : searchDir, defaultIgnores);
+    }
+
+    /** Indexes all text files of the working dir in the background which are not yet indexed. */
+    private void warmUp() {
+        var dir = workingDir;
+        var i = index;
+        if (!i.isPersistent() || !warmingUp.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("peon-disk-index").start(() -> {
+            try {
+                ignoreRules(dir).walk(dir, file -> {
+                    if (!isTextFile(file)) return true;
+                    try {
+                        var key = file.toString();
+                        var stamp = stampOf(file);
+                        if (i.isCurrent(key, stamp)) return true;
+                        var content = FileScanner.read(file);
+                        if (content != null) i.add(key, stamp, FileScanner.toString(content));
+                    } catch (IOException | RuntimeException e) {
+                        // not readable as text, scanned on demand
+                    }
+                    return true;
+                });
+            } catch (IOException | UncheckedIOException e) {
+                log.debug("Background indexing of {} stopped: {}", dir, e.getMessage());
+            } finally {
+                warmingUp.set(false);
+            }
+        });
     }
 
     @Override
     public boolean isEditTool() { return false; }
 
-    @Tool("Search file contents on disk for text or regex. Scope to directory and extension.")
+    @Override
+    public boolean isParallelSafe() { return true; }
+
+    public String diskGrepFiles(String query, String path, String extension) {
+        return diskGrepFiles(query, path, extension, null, null, null);
+    }
+
+    @Tool("Search file contents on disk for text or regex. Scope to directory and extension. "
+            + "Lists files by relevance, optionally with the matching lines.")
     public String diskGrepFiles(
             @P(description = "text or regex to match in file contents", name = "query") String query,
             @P(description = "directory path to search in, defaults to working dir", required = false, name = "path") String path,
-            @P(description = "file extension, e.g. .java", required = false, name = "extension") String extension) {
+            @P(description = "file extension, e.g. .java", required = false, name = "extension") String extension,
+            @P(description = "true to list the matching lines with line numbers", required = false, name = "showLines") Boolean showLines,
+            @P(description = "context lines before each matching line, like grep -B", required = false, name = "before") Integer before,
+            @P(description = "context lines after each matching line, like grep -A", required = false, name = "after") Integer after) {
 
         ArgsUtil.requireNonBlank(query, "query");
+        boolean lines = Boolean.TRUE.equals(showLines) || before != null || after != null;
+        int linesBefore = Math.clamp(ArgsUtil.getOrDefault(before, 0), 0, MAX_CONTEXT_LINES);
+        int linesAfter = Math.clamp(ArgsUtil.getOrDefault(after, 0), 0, MAX_CONTEXT_LINES);
 
         Path searchDir = (path == null || path.isBlank()) ? workingDir : workingDir.resolve(path).normalize();
         if (!Files.isDirectory(searchDir)) {
             throw new IllegalArgumentException("Directory not found: " + path);
         }
 
-        var matches = new LinkedHashMap<String, Integer>();
         final int MAX_FILES = 100;
+        ContentMatcher matcher;
+        try {
+            matcher = ContentMatcher.of(query);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid regex '" + query + "': " + e.getMessage());
+        }
+        var index = this.index;
+        var trigrams = TrigramIndex.trigrams(query);
+        var seen = ConcurrentHashMap.<String>newKeySet();
+        var results = new ConcurrentHashMap<Path, GrepResult>();
+
+        Predicate<Path> filter;
+        if (StringUtil.hasValue(extension)) {
+            String ext = extension.trim().toLowerCase();
+            filter = p -> p.getFileName().toString().toLowerCase().endsWith(ext);
+        } else {
+            filter = DiskGrepTool::isTextFile;
+        }
 
-        try (var walk = Files.walk(searchDir)) {
-            var stream = walk.filter(Files::isRegularFile);
-            if (StringUtil.hasValue(extension)) {
-                String ext = extension.trim().toLowerCase();
-                stream = stream.filter(p -> p.getFileName().toString().toLowerCase().endsWith(ext));
-            } else {
-                stream = stream.filter(p -> isTextFile(p));
-            }
-
-            stream.forEach(file -> {
-                if (matches.size() >= MAX_FILES) return;
-                try {
-                    String content = Files.readString(file);
-                    int count = RegexUtils.countOccurrences(content, query);
-                    if (count > 0) {
-                        matches.put(file.toAbsolutePath().toString(), count);
-                    }
-                } catch (IOException | IllegalArgumentException e) {
-                    // skip unreadable files
+        var matches = FileScanner.scan(searchDir, ignoreRules(searchDir), filter, file -> {
+            var key = file.toString();
+            var stamp = stampOf(file);
+            seen.add(key);
+            boolean current = index.isCurrent(key, stamp);
+            if (current && !index.mayContain(key, trigrams)) return 0;
+            var content = FileScanner.read(file);
+            if (content == null) return 0;
+            String text = current ? null : FileScanner.toString(content);
+            if (text != null) index.add(key, stamp, text);
+            int count = matcher.count(content);
+            if (count > 0) {
+                String matchingLines = null;
+                if (lines) {
+                    if (text == null) text = FileScanner.toString(content);
+                    matchingLines = FileLines.matches(text, matcher, linesBefore, linesAfter, MAX_LINES_PER_FILE);
                 }
-            });
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to search in " + searchDir, e);
+                results.put(file, new GrepResult(file.toAbsolutePath().toString(), count, content.remaining(), matchingLines));
+            }
+            return count;
+        }, MAX_FILES);
+
+        if (matches.size() < MAX_FILES && StringUtil.hasNoValue(extension)) {
+            // the whole dir was walked: forget deleted files, but not those of a sibling like /a/foobar
+            var separator = searchDir.getFileSystem().getSeparator();
+            var prefix = searchDir.toString().endsWith(separator) ? searchDir.toString() : searchDir + separator;
+            index.removeIf(k -> k.startsWith(prefix) && !seen.contains(k));
         }
 
         onTool("Grep '" + query + "' type '" + StringUtil.getOrDefault(extension, "*")
@@ -86,9 +194,10 @@ public class DiskGrepTool extends AbstractTool {
         if (matches.size() >= MAX_FILES) {
             suffix = "... result capped at " + MAX_FILES + " files. Narrow your search path.";
         }
-        return AiReponseBuilder.searchComplete(matches.entrySet().stream()
-                .map(e -> e.getKey() + ": " + e.getValue() + "occurrence(s)").toList(), 
-                suffix);
+        return AiReponseBuilder.searchComplete(matches.stream()
+                .map(m -> results.get(m.file()))
+                .sorted(GrepResult.ranking(workingDir.toString()))
+                .toList(), TOKEN_BUDGET, suffix);
     }
 
     private static final Set<String> TEXT_EXTENSIONS = Set.of(
@@ -97,6 +206,12 @@ public class DiskGrepTool extends AbstractTool {
             "gradle", "kt", "groovy", "scala", "py", "rb", "php", "c", "h",
             "cpp", "hpp", "rs", "go", "swift", "cfg", "ini", "toml", "csv");
 
+    /** Changes with each write of the file. */
+    private static long stampOf(Path file) throws IOException {
+        var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.lastModifiedTime().toMillis() * 31 + attributes.size();
+    }
+
     private static boolean isTextFile(Path file) {
         String name = file.getFileName().toString().toLowerCase();
         int dot = name.lastIndexOf('.');
@@ -0,0 +1,78 @@
+package org.sterl.llmpeon.tool.tools;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most a number of async tasks per host at once, the others wait in submit order. Nothing
+ * blocks: a task is started by the one finishing before it.
+ */
+class HostLimiter {
+
+    private final int maxPerHost;
+    /** Guarded by this. */
+    private final Map<String, Integer> running = new HashMap<>();
+    /** Guarded by this. */
+    private final Map<String, Queue<Runnable>> waiting = new HashMap<>();
+
+    HostLimiter(int maxPerHost) {
+        if (maxPerHost < 1) throw new IllegalArgumentException("maxPerHost must be positive, but was " + maxPerHost);
+        this.maxPerHost = maxPerHost;
+    }
+
+    /**
+     * @param host the host, {@code null} counts as one host
+     * @param task started now or once a running task of the host is done
+     * @return completes like the future of the task
+     */
+    <T> CompletableFuture<T> submit(String host, Supplier<CompletableFuture<T>> task) {
+        var result = new CompletableFuture<T>();
+        Runnable start = () -> {
+            if (result.isDone()) { // cancelled while waiting
+                release(host);
+                return;
+            }
+            CompletableFuture<T> started;
+            try {
+                started = task.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            started.whenComplete((value, e) -> {
+                release(host);
+                if (e != null) result.completeExceptionally(e);
+                else result.complete(value);
+            });
+        };
+
+        boolean now;
+        synchronized (this) {
+            int count = running.getOrDefault(host, 0);
+            now = count < maxPerHost;
+            if (now) running.put(host, count + 1);
+            else waiting.computeIfAbsent(host, h -> new ArrayDeque<>()).add(start);
+        }
+        if (now) start.run();
+        return result;
+    }
+
+    /** Hands the slot of a finished task to the next waiting one of the host. */
+    private void release(String host) {
+        Runnable next;
+        synchronized (this) {
+            var queue = waiting.get(host);
+            next = queue == null ? null : queue.poll();
+            if (queue != null && queue.isEmpty()) waiting.remove(host);
+            if (next == null) {
+                int count = running.get(host) - 1;
+                if (count == 0) running.remove(host);
+                else running.put(host, count);
+            }
+        }
+        if (next != null) next.run();
+    }
+}
@@ -1,24 +1,27 @@
 
 package org.sterl.llmpeon.tool.tools;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.sterl.llmpeon.shared.ArgsUtil;
+import org.sterl.llmpeon.shared.OutputCapture;
+import org.sterl.llmpeon.shared.StringUtil;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 
 /**
  * Executes shell commands (e.g. maven, git, npm) with timeout support.
+ * <p>
+ * Only the first and the last lines of the output are kept, see {@link OutputCapture}; a long
+ * running command reports its progress with the last output line every
+ * {@value #PROGRESS_INTERVAL_S} seconds.
  */
 public class ShellTool extends AbstractTool {
 
@@ -30,6 +33,10 @@ public class ShellTool extends AbstractTool {
     private static final int DEFAULT_TIMEOUT_S = 60;
     private static final int MAX_OUTPUT_LENGTH = 3000;
     private static final int DEFAULT_TAIL_LINES = 50;
+    /** The head gets a fifth of the lines, at most this many. */
+    private static final int MAX_HEAD_LINES = 10;
+    private static final int PROGRESS_INTERVAL_S = 5;
+    private static final int PROGRESS_LINE_LENGTH = 200;
 
     private static volatile UserToolEnvironment userToolEnvironment;
 
@@ -62,7 +69,7 @@ public class ShellTool extends AbstractTool {
             String workingDirectory,
             @P(description = "timeout in seconds, default=" + DEFAULT_TIMEOUT_S, required = false, name = "timeout") 
             Integer timeout,
-            @P(description = "max tail lines, default=" + DEFAULT_TAIL_LINES + " (-1 for all/max); use this instead of `| tail -50`", required = false, name = "tailLines") 
+            @P(description = "max output lines, the first few and the tail, default=" + DEFAULT_TAIL_LINES + ", 0 or less for the max of " + MAX_OUTPUT_LENGTH + "; use this instead of `| tail -50`", required = false, name = "tailLines") 
             Integer tailLines) {
 
         ArgsUtil.requireNonBlank(command, "command");
@@ -98,9 +105,10 @@ public class ShellTool extends AbstractTool {
             shellCommand = new String[] { "/bin/bash", "-l", "-c", command };
         }
 
-        // Shared with the reader thread; only read after reader.join() to
-        // guarantee visibility (join() establishes a happens-before edge).
-        List<String> lines = new LinkedList<>();
+        int maxLines = tailLines <= 0 || tailLines > MAX_OUTPUT_LENGTH ? MAX_OUTPUT_LENGTH : tailLines;
+        int headLines = Math.min(MAX_HEAD_LINES, maxLines / 5);
+        // written by the reader thread, synchronized
+        var output = new OutputCapture(headLines, maxLines - headLines, Charset.defaultCharset());
         try {
             onTool("Running: `" + command + "` in " + effectiveDir);
 
@@ -112,20 +120,15 @@ public class ShellTool extends AbstractTool {
             pb.redirectErrorStream(true); // merge stderr into stdout
             var process = pb.start();
 
-            Thread reader = new Thread(() -> {
-                try (var br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        lines.add(line);
-                    }
+            Thread reader = Thread.ofVirtual().name("peon-shell-output").start(() -> {
+                try (var in = process.getInputStream()) {
+                    output.read(in);
                 } catch (IOException e) {
                     // stream closed
                 }
             });
-            reader.setDaemon(true);
-            reader.start();
 
-            boolean completed = process.waitFor(timeout, TimeUnit.SECONDS);
+            boolean completed = waitFor(process, timeout, command, output);
             if (!completed) {
                 process.destroyForcibly();
                 process.descendants().forEach(ProcessHandle::destroy); // kill grandchildren too
@@ -135,40 +138,64 @@ public class ShellTool extends AbstractTool {
                 }
 
                 String partial;
-                if (lines.isEmpty() && commandUsesShellTail(command)) {
+                if (output.isEmpty() && commandUsesShellTail(command)) {
                     partial = "No output captured - the command pipes through `tail`/`head`, which buffers "
                         + "everything internally and only flushes on normal completion. Killing the process "
                         + "on timeout discarded that buffer. Use the `tailLines` parameter instead of "
                         + "`| tail -N` so output is available even on timeout. Consider a longer timeout.";
                 } else {
-                    partial = tailLines(lines, tailLines);
+                    partial = output.toString();
                 }
-                onTool("Command timed out (exit killed) - " + (lines.isEmpty() ? "no output" : lines.size() + " lines captured"));
+                onTool("Command timed out (exit killed) - " + (output.isEmpty() ? "no output" : output.lineCount() + " lines captured"));
                 return "Command timed out after " + timeout + "s. Partial output:\n" + partial;
             }
 
             reader.join(2000);
             int exitCode = process.exitValue();
 
-            String resultStr = tailLines(lines, tailLines);
+            String resultStr = output.toString();
             if (exitCode != 0) {
                 resultStr += System.lineSeparator() + "Exit code: " + exitCode;
             }
             onTool("Command finished (exit " + exitCode + ") reading " 
-                    + Math.min(lines.size(), tailLines) + " lines ...");
+                    + Math.min(output.lineCount(), maxLines) + " lines ...");
             return resultStr;
 
         } catch (IOException e) {
             onProblem("Failed to run: " + command + " " + e.getMessage());
             return "Error executing command: " + e.getMessage()
                 + System.lineSeparator() + "Output so far:" + System.lineSeparator()
-                + tailLines(lines, tailLines);
+                + output;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             onTool("Stopped " + command);
             return "Command interrupted: " + e.getMessage()
                 + System.lineSeparator() + "Output so far:" + System.lineSeparator()
-                + tailLines(lines, tailLines);
+                + output;
+        }
+    }
+
+    /**
+     * Waits for the process, reports the progress every {@value #PROGRESS_INTERVAL_S} seconds.
+     *
+     * @return {@code false} on timeout
+     */
+    private boolean waitFor(Process process, int timeoutSeconds, String command, OutputCapture output)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (true) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return false;
+            if (process.waitFor(Math.min(left, TimeUnit.SECONDS.toNanos(PROGRESS_INTERVAL_S)), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            if (deadline - System.nanoTime() <= 0) return false;
+
+            var elapsed = StringUtil.humanElapsed(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            var lastLine = output.lastLine();
+            onTool("Running `" + command + "` " + elapsed + ", " + output.lineCount() + " lines"
+                    + (lastLine == null ? "" : ": " + StringUtil.trimToLength(lastLine.strip(), PROGRESS_LINE_LENGTH)));
         }
     }
 
@@ -215,21 +242,4 @@ public class ShellTool extends AbstractTool {
     }
 
     private record UserToolEnvironment(String pathPrefix, String javaHome) {}
-
-
-    private static String tailLines(List<String> lines, Integer maxLines) {
-        if (maxLines == null) maxLines = MAX_OUTPUT_LENGTH;
-        if (maxLines > MAX_OUTPUT_LENGTH) maxLines = MAX_OUTPUT_LENGTH;
-
-        if (maxLines <= 0 || lines.size() <= maxLines) {
-            return String.join(System.lineSeparator(), lines);
-        }
-        int skipped = lines.size() - maxLines;
-        var sb = new StringBuilder();
-        sb.append("... (").append(skipped).append(" lines skipped)").append(System.lineSeparator());
-        for (int i = skipped; i < lines.size(); i++) {
-            sb.append(lines.get(i)).append(System.lineSeparator());
-        }
-        return sb.toString();
-    }
 }
@@ -1,42 +1,94 @@
 package org.sterl.llmpeon.tool.tools;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.sterl.llmpeon.shared.ArgsUtil;
-
-import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
+import org.sterl.llmpeon.shared.StringUtil;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 
 /**
  * Simple tool to fetch a website and convert its content to Markdown.
+ * <p>
+ * The body is streamed and read up to {@link #setMaxBytes(int) max bytes}, binaries are not read at
+ * all; HTML is reduced to its main content by the {@link WebPageConverter}. The Markdown returned is
+ * cut to a {@link #setMaxTokens(int) token budget}.
+ * <p>
+ * Pages are cached with their Markdown in a {@link WebPageCache}: a fresh page is returned without
+ * a request, a stale one is revalidated with {@code If-None-Match} / {@code If-Modified-Since}.
+ * <p>
+ * All instances share one HTTP/2 client, so connections are reused, and run at most
+ * {@value #MAX_PER_HOST} requests per host at once — {@link #webFetchAllAsMarkdown(List)} fetches
+ * several URLs concurrently.
  */
 public class WebFetchTool extends AbstractTool {
 
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
     private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
-    private static final Pattern CHARSET_PATTERN = Pattern.compile("charset=([^;\\s]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CHARSET_PATTERN = Pattern.compile("charset=\"?([^;\\s\"]+)", Pattern.CASE_INSENSITIVE);
+    public static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+    public static final int DEFAULT_MAX_TOKENS = 20_000;
+    /** Bytes read of an error response, chars of it returned. */
+    private static final int ERROR_BYTES = 8 * 1024;
+    private static final int ERROR_CHARS = 500;
+    static final int MAX_PER_HOST = 4;
+    static final int MAX_URLS = 10;
+    /** Token budget of each page of a batch at least, the max tokens are split between the pages. */
+    private static final int MIN_TOKENS_PER_URL = 2_000;
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.ALWAYS)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private static final HostLimiter HOST_LIMITER = new HostLimiter(MAX_PER_HOST);
+    /** Reads and converts the bodies, the HTTP client threads must not block. */
+    private static final Executor READER = r -> Thread.ofVirtual().name("peon-web-fetch").start(r);
 
-    private final HttpClient httpClient;
-    private final FlexmarkHtmlConverter htmlToMarkdownConverter;
+    private final WebPageConverter converter = new WebPageConverter();
+    private final WebPageCache cache;
+    private volatile int maxBytes = DEFAULT_MAX_BYTES;
+    private volatile int maxTokens = DEFAULT_MAX_TOKENS;
 
     public WebFetchTool() {
-        this.httpClient = HttpClient.newBuilder()
-                .followRedirects(HttpClient.Redirect.ALWAYS)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-        this.htmlToMarkdownConverter = FlexmarkHtmlConverter.builder().build();
+        this(WebPageCache.shared());
+    }
+
+    public WebFetchTool(WebPageCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean isParallelSafe() { return true; }
+
+    /** Bytes of a body read at most, the rest of the page is cut. */
+    public void setMaxBytes(int maxBytes) {
+        if (maxBytes < 1) throw new IllegalArgumentException("maxBytes must be positive, but was " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /** Estimated tokens of the returned Markdown at most, see {@link WebPageConverter#truncate(String, int)}. */
+    public void setMaxTokens(int maxTokens) {
+        if (maxTokens < 1) throw new IllegalArgumentException("maxTokens must be positive, but was " + maxTokens);
+        this.maxTokens = maxTokens;
     }
 
     /**
@@ -46,30 +98,144 @@ public class WebFetchTool extends AbstractTool {
      * @throws IOException if a network error occurs
      * @throws InterruptedException if the request is interrupted
      */
-    @Tool("Fetch a URL and convert HTML to Markdown. Handles redirects and charset.")
+    @Tool("Fetch a URL and return its main content, HTML as Markdown, text and JSON as is. "
+            + "Binary content is skipped, long pages are truncated.")
     public String webFetchAsMarkdown(@P(name = "url") String url) throws IOException, InterruptedException {
         ArgsUtil.requireNonBlank(url, "url");
+        var result = fetchAsync(url, maxTokens);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            var cause = unwrap(e);
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Failed to fetch " + url, cause);
+        }
+    }
+
+    /**
+     * Fetches the URLs concurrently, each page gets an equal share of the token budget.
+     *
+     * @return the pages in the order of the URLs, a failed URL with its error
+     */
+    @Tool("Fetch several URLs at once (max " + MAX_URLS + ") and return the main content of each page, "
+            + "in the given order. Prefer this over several webFetchAsMarkdown calls.")
+    public String webFetchAllAsMarkdown(@P(name = "urls") List<String> urls) throws InterruptedException {
+        if (urls == null || urls.isEmpty()) throw new IllegalArgumentException("urls is required");
+        if (urls.size() > MAX_URLS) {
+            throw new IllegalArgumentException("At most " + MAX_URLS + " URLs per call, but got " + urls.size());
+        }
+        urls.forEach(u -> ArgsUtil.requireNonBlank(u, "url"));
+
+        int tokens = Math.max(MIN_TOKENS_PER_URL, maxTokens / urls.size());
+        var pages = new ArrayList<CompletableFuture<String>>(urls.size());
+        for (var url : urls) {
+            try {
+                pages.add(fetchAsync(url, tokens));
+            } catch (RuntimeException e) {
+                pages.add(CompletableFuture.failedFuture(e));
+            }
+        }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        var result = new StringBuilder();
+        for (int i = 0; i < urls.size(); i++) {
+            if (i > 0) result.append("\n\n");
+            result.append("## ").append(i + 1).append(". ").append(urls.get(i)).append("\n\n");
+            try {
+                result.append(pages.get(i).get());
+            } catch (InterruptedException e) {
+                pages.forEach(p -> p.cancel(true));
+                throw e;
+            } catch (ExecutionException e) {
+                var cause = unwrap(e);
+                onProblem("Failed to fetch " + urls.get(i) + " - " + cause.getMessage());
+                result.append("Failed to fetch ").append(urls.get(i)).append(": ").append(cause);
+            }
+        }
+        return result.toString();
+    }
+
+    private CompletableFuture<String> fetchAsync(String url, int tokens) {
+        var cached = cache.get(url);
+        if (cached != null && cached.isFresh(cache.clock())) {
+            onTool("Reading " + url + " (cached)");
+            return CompletableFuture.completedFuture(WebPageConverter.truncate(cached.markdown(), tokens));
+        }
+
+        var uri = URI.create(url);
+        var builder = HttpRequest.newBuilder()
+                .uri(uri)
                 .timeout(DEFAULT_TIMEOUT)
                 .header("User-Agent", USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
-                .GET()
-                .build();
-
-        HttpResponse<byte[]> response = this.httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-        Charset charset = extractCharset(response).orElse(StandardCharsets.UTF_8);
-        String htmlContent = new String(response.body(), charset);
-        
-        if (response.statusCode() >= 400) {
-            onProblem("Failed to fetch " + url + " - " + response.statusCode());
-            return "Failed to fetch " + url + ". HTTP status code: " + response.statusCode()
-                + " Response: " + htmlContent;
+                .GET();
+        if (cached != null) {
+            if (cached.etag() != null) builder.header("If-None-Match", cached.etag());
+            if (cached.lastModified() != null) builder.header("If-Modified-Since", cached.lastModified());
+        }
+        var request = builder.build();
+
+        return HOST_LIMITER.submit(uri.getHost(), () -> HTTP_CLIENT
+                .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync(response -> {
+                    try {
+                        return read(url, cached, response, tokens);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, READER));
+    }
+
+    private String read(String url, WebPageCache.Page cached, HttpResponse<InputStream> response, int tokens)
+            throws IOException {
+        try (var body = response.body()) {
+            if (cached != null && response.statusCode() == 304) {
+                onTool("Reading " + url + " (not modified)");
+                return WebPageConverter.truncate(cache.revalidated(cached, response.headers()).markdown(), tokens);
+            }
+
+            var contentType = response.headers().firstValue("Content-Type").orElse(null);
+            var kind = WebPageConverter.kindOf(contentType);
+            if (kind == WebPageConverter.Kind.BINARY) {
+                onProblem("Skipped " + url + " - " + contentType);
+                return "Skipped " + url + ", HTTP status code: " + response.statusCode()
+                    + ". The content type " + contentType + " is not text.";
+            }
+
+            boolean failed = response.statusCode() >= 400;
+            int limit = failed ? ERROR_BYTES : maxBytes;
+            var bytes = body.readNBytes(limit);
+            boolean cut = bytes.length == limit && body.read() >= 0;
+            if (kind == null) kind = WebPageConverter.sniff(bytes, bytes.length);
+            if (kind == WebPageConverter.Kind.BINARY) {
+                onProblem("Skipped " + url + " - binary content");
+                return "Skipped " + url + ", HTTP status code: " + response.statusCode()
+                    + ". The content is not text.";
+            }
+            var content = converter.convert(bytes, bytes.length, kind, extractCharset(response).orElse(null), url);
+
+            if (failed) {
+                onProblem("Failed to fetch " + url + " - " + response.statusCode());
+                return "Failed to fetch " + url + ". HTTP status code: " + response.statusCode()
+                    + " Response: " + StringUtil.trimToLength(content, ERROR_CHARS);
+            }
+
+            onTool("Reading " + url);
+            if (cut) content += "\n\n... page cut after " + limit + " bytes.";
+            if (response.statusCode() == 200) cache.put(url, response.headers(), content);
+            return WebPageConverter.truncate(content, tokens);
         }
+    }
 
-        onTool("Reading " + url);
-        return this.htmlToMarkdownConverter.convert(htmlContent);
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof ExecutionException || e instanceof CompletionException
+                || e instanceof UncheckedIOException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
     }
 
     private Optional<Charset> extractCharset(HttpResponse<?> response) {
@@ -0,0 +1,314 @@
+package org.sterl.llmpeon.tool.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.sterl.llmpeon.ai.LlmConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Private HTTP cache of fetched pages, keyed by URL, which keeps the Markdown the page was
+ * converted to — a fresh hit needs neither a request nor a conversion.
+ * <p>
+ * Freshness follows {@code Cache-Control} ({@code max-age}, {@code no-cache}, {@code no-store}),
+ * {@code Expires} and, if neither is sent, 10% of the time since {@code Last-Modified}. A stale
+ * entry with an {@code ETag} or {@code Last-Modified} is revalidated with a conditional GET, a
+ * {@code 304} only refreshes it. The {@value #MAX_CACHED} most recently used pages are kept in
+ * memory, up to {@value #MAX_FILES} on disk.
+ */
+@Slf4j
+public class WebPageCache {
+
+    private static final int VERSION = 1;
+    private static final int MAX_CACHED = 64;
+    private static final int MAX_FILES = 512;
+    /** Upper bound of the {@code Last-Modified} heuristic. */
+    private static final Duration MAX_HEURISTIC_AGE = Duration.ofDays(1);
+
+    /** Sub directory of {@link LlmConfig#CACHE_DIRECTORY}. */
+    static final String DIRECTORY = "web";
+    private static final WebPageCache MEMORY_ONLY = new WebPageCache(null, Clock.systemUTC());
+    private static final Map<Path, WebPageCache> BY_CONFIG_DIR = new ConcurrentHashMap<>();
+
+    private final Path dir;
+    private final Clock clock;
+    /** Guarded by itself, least recently used first. */
+    private final Map<String, Page> pages = new LinkedHashMap<>(MAX_CACHED, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    /**
+     * A cached page.
+     *
+     * @param expires epoch millis until the page is fresh, {@code 0} to always revalidate
+     * @param etag the {@code ETag} or {@code null}
+     * @param lastModified the {@code Last-Modified} header as sent or {@code null}
+     */
+    public record Page(String url, long expires, String etag, String lastModified, String markdown) {
+
+        public boolean isFresh(Clock clock) {
+            return clock.millis() < expires;
+        }
+
+        /** If the page can be revalidated with a conditional GET. */
+        public boolean hasValidator() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * @param dir the directory of the cache files, {@code null} for a memory-only cache
+     */
+    public WebPageCache(Path dir, Clock clock) {
+        this.dir = dir;
+        this.clock = clock;
+    }
+
+    /** The memory-only cache of the web tools created without a config dir. */
+    public static WebPageCache shared() {
+        return MEMORY_ONLY;
+    }
+
+    /**
+     * The cache of all web tools of the config dir, in {@code <configDir>/cache/web}.
+     * @param configDir the Peon config dir, {@code null} for the {@link #shared()} memory-only cache
+     */
+    public static WebPageCache of(Path configDir) {
+        if (configDir == null) return MEMORY_ONLY;
+        return BY_CONFIG_DIR.computeIfAbsent(configDir.toAbsolutePath().normalize(), d -> new WebPageCache(
+                d.resolve(LlmConfig.CACHE_DIRECTORY).resolve(DIRECTORY), Clock.systemUTC()));
+    }
+
+    public Clock clock() {
+        return clock;
+    }
+
+    /** The cached page, fresh or stale, or {@code null}. */
+    public Page get(String url) {
+        Page result;
+        synchronized (pages) {
+            result = pages.get(url);
+        }
+        if (result != null || dir == null) return result;
+
+        result = load(url);
+        if (result != null) {
+            synchronized (pages) {
+                pages.putIfAbsent(url, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Caches the converted page of a {@code 200} response, if its headers allow it.
+     *
+     * @return the cached page or {@code null} if the response must not be cached
+     */
+    public Page put(String url, HttpHeaders headers, String markdown) {
+        var cacheControl = cacheControl(headers);
+        if (cacheControl.contains("no-store")) return null;
+
+        var etag = headers.firstValue("ETag").orElse(null);
+        var lastModified = headers.firstValue("Last-Modified").orElse(null);
+        var page = new Page(url, expires(headers, cacheControl), etag, lastModified, markdown);
+        if (!page.isFresh(clock) && !page.hasValidator()) return null;
+
+        store(page);
+        return page;
+    }
+
+    /**
+     * Refreshes a page after a {@code 304 Not Modified}, the new headers replace the stored ones.
+     */
+    public Page revalidated(Page page, HttpHeaders headers) {
+        var cacheControl = cacheControl(headers);
+        if (cacheControl.contains("no-store")) {
+            remove(page.url());
+            return page;
+        }
+        var result = new Page(page.url(), expires(headers, cacheControl),
+                headers.firstValue("ETag").orElse(page.etag()),
+                headers.firstValue("Last-Modified").orElse(page.lastModified()),
+                page.markdown());
+        store(result);
+        return result;
+    }
+
+    public void remove(String url) {
+        synchronized (pages) {
+            pages.remove(url);
+        }
+        if (dir == null) return;
+        try {
+            Files.deleteIfExists(fileOf(url));
+        } catch (IOException e) {
+            log.debug("Failed to remove cached page {}: {}", url, e.getMessage());
+        }
+    }
+
+    private void store(Page page) {
+        synchronized (pages) {
+            pages.put(page.url(), page);
+        }
+        if (dir != null) save(page);
+    }
+
+    private static String cacheControl(HttpHeaders headers) {
+        return String.join(",", headers.allValues("Cache-Control")).toLowerCase(Locale.ROOT);
+    }
+
+    private long expires(HttpHeaders headers, String cacheControl) {
+        long now = clock.millis();
+        if (cacheControl.contains("no-cache")) return 0;
+
+        for (var directive : cacheControl.split(",")) {
+            directive = directive.trim();
+            if (directive.startsWith("max-age=")) {
+                try {
+                    long maxAge = Long.parseLong(directive.substring(8).replace("\"", "").trim());
+                    long age = headers.firstValueAsLong("Age").orElse(0);
+                    return now + Math.max(0, maxAge - age) * 1000;
+                } catch (NumberFormatException e) {
+                    return 0; // invalid, stale
+                }
+            }
+        }
+
+        var expires = headers.firstValue("Expires");
+        if (expires.isPresent()) {
+            var time = parseDate(expires.get());
+            return time == null ? 0 : time;
+        }
+
+        var lastModified = headers.firstValue("Last-Modified").map(WebPageCache::parseDate).orElse(null);
+        if (lastModified != null && lastModified < now) {
+            return now + Math.min((now - lastModified) / 10, MAX_HEURISTIC_AGE.toMillis());
+        }
+        return 0;
+    }
+
+    private static Long parseDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private Path fileOf(String url) {
+        try {
+            var hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(hash, 0, 16) + ".page");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Page load(String url) {
+        var file = fileOf(url);
+        try (var in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != VERSION || !url.equals(in.readUTF())) return null;
+            long expires = in.readLong();
+            var etag = readNullable(in);
+            var lastModified = readNullable(in);
+            var markdown = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+            return new Page(url, expires, etag, lastModified, markdown);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Ignoring unreadable cached page {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(Page page) {
+        var file = fileOf(page.url());
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (var out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))))) {
+                var markdown = page.markdown().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(VERSION);
+                out.writeUTF(page.url());
+                out.writeLong(page.expires());
+                writeNullable(out, page.etag());
+                writeNullable(out, page.lastModified());
+                out.writeInt(markdown.length);
+                out.write(markdown);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            prune();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to cache page {}: {}", page.url(), e.getMessage());
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    log.debug("Failed to delete {}: {}", tmp, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Deletes the least recently written pages above {@value #MAX_FILES}. */
+    private void prune() throws IOException {
+        try (var files = Files.list(dir)) {
+            var all = files.filter(f -> f.getFileName().toString().endsWith(".page")).toList();
+            if (all.size() <= MAX_FILES) return;
+            all.stream()
+                .sorted(Comparator.comparingLong(WebPageCache::modified))
+                .limit(all.size() - MAX_FILES)
+                .forEach(f -> f.toFile().delete());
+        }
+    }
+
+    private static long modified(Path file) {
+        return file.toFile().lastModified();
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+}
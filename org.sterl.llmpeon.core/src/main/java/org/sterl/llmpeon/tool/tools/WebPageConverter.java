@@ -0,0 +1,104 @@
+package org.sterl.llmpeon.tool.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.sterl.llmpeon.shared.TokenEstimator;
+
+import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
+
+/**
+ * Turns a fetched body into text for the model: HTML is reduced to its main content and converted
+ * to Markdown, other text is returned as is and binaries are not read at all.
+ * <p>
+ * The main content is the {@code <main>} or {@code <article>} of the page, else the body without
+ * header and footer; scripts, styles, navigation and forms are removed before the conversion.
+ */
+public class WebPageConverter {
+
+    public enum Kind { HTML, TEXT, BINARY }
+
+    private static final Set<String> TEXT_TYPES = Set.of("application/json", "application/xml",
+            "application/javascript", "application/x-javascript", "application/ecmascript",
+            "application/x-yaml", "application/yaml", "application/toml", "application/x-sh",
+            "application/x-ndjson", "application/sql", "application/graphql");
+    /** Never content, removed wherever they are. */
+    private static final String NOISE = "script, style, noscript, template, svg, canvas, iframe, object, embed, "
+            + "nav, aside, form, button, dialog, [role=navigation], [role=search], [role=complementary], "
+            + "[aria-hidden=true], [hidden]";
+    /** Page chrome, only removed if the page has no main content element. */
+    private static final String CHROME = "header, footer, [role=banner], [role=contentinfo]";
+
+    private final FlexmarkHtmlConverter htmlToMarkdownConverter = FlexmarkHtmlConverter.builder().build();
+
+    /**
+     * @param contentType the {@code Content-Type} header or {@code null}
+     * @return the kind of the content, {@code null} if unknown — sniff the body then
+     */
+    public static Kind kindOf(String contentType) {
+        if (contentType == null || contentType.isBlank()) return null;
+        var mime = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        if (mime.equals("text/html") || mime.equals("application/xhtml+xml")) return Kind.HTML;
+        if (mime.startsWith("text/") || TEXT_TYPES.contains(mime)
+                || mime.endsWith("+json") || mime.endsWith("+xml")) {
+            return Kind.TEXT;
+        }
+        return Kind.BINARY;
+    }
+
+    /** Guesses the kind of a body without content type by its first bytes. */
+    public static Kind sniff(byte[] body, int length) {
+        int i = 0;
+        // UTF-8 BOM
+        if (length >= 3 && body[0] == (byte) 0xEF && body[1] == (byte) 0xBB && body[2] == (byte) 0xBF) i = 3;
+        while (i < length && Character.isWhitespace(body[i])) i++;
+        if (i < length && body[i] == '<') return Kind.HTML;
+        for (int j = i; j < Math.min(length, i + 1024); j++) {
+            if (body[j] == 0) return Kind.BINARY;
+        }
+        return Kind.TEXT;
+    }
+
+    /**
+     * @param body the first {@code length} bytes of the body
+     * @param charset the charset of the {@code Content-Type} header, {@code null} to detect it
+     * @return Markdown for HTML, the decoded text otherwise
+     */
+    public String convert(byte[] body, int length, Kind kind, Charset charset, String url) throws IOException {
+        if (kind == Kind.HTML) {
+            var document = Jsoup.parse(new ByteArrayInputStream(body, 0, length),
+                    charset == null ? null : charset.name(), url);
+            var content = mainContent(document.body());
+            content.select(NOISE).remove();
+            if (content == document.body()) content.select(CHROME).remove();
+            return htmlToMarkdownConverter.convert(content.outerHtml()).strip();
+        }
+        return new String(body, 0, length, charset == null ? StandardCharsets.UTF_8 : charset);
+    }
+
+    /** Cuts the text to the token budget, at a line end if possible. */
+    public static String truncate(String text, int maxTokens) {
+        int tokens = TokenEstimator.CHARS_PER_TOKEN.estimate(text);
+        if (tokens <= maxTokens) return text;
+
+        int length = Math.min(text.length(), maxTokens * 3);
+        int lineEnd = text.lastIndexOf('\n', length);
+        if (lineEnd > length / 2) length = lineEnd;
+        return text.substring(0, length) + "\n\n... truncated, about " + maxTokens + " of " + tokens
+            + " tokens shown. Fetch a more specific page for the rest.";
+    }
+
+    private static Element mainContent(Element body) {
+        var main = body.selectFirst("main, [role=main]");
+        if (main != null) return main;
+        var articles = body.select("article");
+        if (articles.size() == 1) return articles.first();
+        return body;
+    }
+}
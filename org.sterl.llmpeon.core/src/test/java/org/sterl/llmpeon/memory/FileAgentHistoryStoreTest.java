@@ -4,10 +4,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,7 @@ import org.sterl.llmpeon.shared.ChatMessageUtil;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
 
@@ -67,7 +71,7 @@ class FileAgentHistoryStoreTest extends AbstractMemoryFileTest {
     }
 
     @Test
-    void userMessageMergePersistsJsonlWithoutStalePreMergeLine() throws IOException {
+    void userMessageMergeAppendsPopRecordInsteadOfRewriting() throws IOException {
         // GIVEN
         var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
         store.persist(List.of(AiMessage.from("A"), UserMessage.from("U1")));
@@ -77,13 +81,66 @@ class FileAgentHistoryStoreTest extends AbstractMemoryFileTest {
         memory.add(UserMessage.from("U2"));
 
         // THEN
-        assertThat(Files.readAllLines(store.historyFile())).hasSize(2);
+        var lines = Files.readAllLines(store.historyFile());
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(2)).isEqualTo("#pop 1");
         var loaded = store.load();
         assertThat(loaded).hasSize(2);
         assertThat(((AiMessage) loaded.get(0)).text()).isEqualTo("A");
         assertThat(ChatMessageUtil.toString(loaded.get(1))).contains("U1", "U2");
     }
 
+    @Test
+    void compactDropsPoppedMessagesAndKeepsAppending() throws IOException {
+        // GIVEN
+        var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
+        store.append(List.of(AiMessage.from("A"), UserMessage.from("U1")));
+        store.replaceLast(UserMessage.from("U1 U2"));
+
+        // WHEN
+        store.compact();
+        store.append(AiMessage.from("B"));
+
+        // THEN
+        assertThat(Files.readAllLines(store.historyFile())).hasSize(3).noneMatch(l -> l.startsWith("#pop"));
+        var loaded = new FileAgentHistoryStore(store.historyFile()).load();
+        assertThat(loaded).hasSize(3);
+        assertThat(ChatMessageUtil.toString(loaded.get(1))).contains("U1 U2");
+        assertThat(((AiMessage) loaded.get(2)).text()).isEqualTo("B");
+    }
+
+    @Test
+    void compactKeepsMessagesAppendedMeanwhile() throws Exception {
+        // GIVEN
+        var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
+        for (int i = 0; i < 100; i++) {
+            store.append(UserMessage.from("draft " + i));
+            store.replaceLast(UserMessage.from("U" + i));
+        }
+        var running = new AtomicBoolean(true);
+        var compactions = Thread.ofVirtual().start(() -> {
+            try {
+                while (running.get()) store.compact();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // WHEN
+        for (int i = 0; i < 100; i++) {
+            store.append(AiMessage.from("draft " + i));
+            store.replaceLast(AiMessage.from("A" + i));
+        }
+        running.set(false);
+        compactions.join();
+
+        // THEN
+        var loaded = new FileAgentHistoryStore(store.historyFile()).load();
+        assertThat(loaded).hasSize(200);
+        assertThat(ChatMessageUtil.toString(loaded.get(99))).contains("U99");
+        for (int i = 0; i < 100; i++) assertThat(((AiMessage) loaded.get(100 + i)).text()).isEqualTo("A" + i);
+    }
+
     @Test
     void trailingToolRepairAppendsOnlyNewRepairMessages() throws IOException {
         // GIVEN
@@ -124,18 +181,121 @@ class FileAgentHistoryStoreTest extends AbstractMemoryFileTest {
     }
 
     @Test
-    void corruptHistoryIsDeletedAndReturnsEmptyHistory() throws IOException {
+    void checkpointIsRestoredWithTheTailAppendedAfterIt() throws IOException {
         // GIVEN
         var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
-        Files.createDirectories(store.historyFile().getParent());
-        Files.writeString(store.historyFile(), "not-json");
+        store.checkpoint(List.of(UserMessage.from("summary"), AiMessage.from("done")));
+        store.append(UserMessage.from("U1"));
+        store.replaceLast(UserMessage.from("U1 U2"));
+
+        // WHEN
+        var loaded = new FileAgentHistoryStore(store.historyFile()).load();
+
+        // THEN
+        assertThat(Files.isRegularFile(store.checkpointFile())).isTrue();
+        var tail = Files.readAllLines(store.historyFile());
+        assertThat(tail).hasSize(4);
+        assertThat(tail.get(0)).startsWith("#checkpoint ");
+        assertThat(loaded).hasSize(3);
+        assertThat(((AiMessage) loaded.get(1)).text()).isEqualTo("done");
+        assertThat(ChatMessageUtil.toString(loaded.get(2))).contains("U1 U2");
+    }
+
+    @Test
+    void completeLogSupersedesCheckpointLeftBehind() throws IOException {
+        // GIVEN — a crash after the new log was written, before the old checkpoint was deleted
+        var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
+        store.checkpoint(List.of(UserMessage.from("old")));
+        var checkpoint = Files.readAllBytes(store.checkpointFile());
+        store.persist(List.of(UserMessage.from("new")));
+        Files.write(store.checkpointFile(), checkpoint);
+
+        // WHEN
+        var loaded = new FileAgentHistoryStore(store.historyFile()).load();
+
+        // THEN
+        assertThat(loaded).hasSize(1);
+        assertThat(ChatMessageUtil.toString(loaded.get(0))).contains("new");
+        assertThat(Files.exists(store.checkpointFile())).isFalse();
+    }
+
+    @Test
+    void tornLastRecordIsTruncatedAndHistoryKept() throws IOException {
+        // GIVEN
+        var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
+        store.persist(List.of(UserMessage.from("hello"), AiMessage.from("world")));
+        var complete = Files.size(store.historyFile());
+        Files.writeString(store.historyFile(), "{\"text\":\"cut of", StandardOpenOption.APPEND);
+
+        // WHEN
+        var loaded = store.load();
+
+        // THEN
+        assertThat(loaded).hasSize(2);
+        assertThat(Files.size(store.historyFile())).isEqualTo(complete);
+        // AND
+        store.append(AiMessage.from("next"));
+        assertThat(new FileAgentHistoryStore(store.historyFile()).load()).hasSize(3);
+    }
+
+    @Test
+    void completeLastRecordWithoutLineEndIsTerminatedBeforeTheNextAppend() throws IOException {
+        // GIVEN
+        var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
+        store.persist(List.of(UserMessage.from("hello"), AiMessage.from("world")));
+        Files.writeString(store.historyFile(), ChatMessageSerializer.messageToJson(UserMessage.from("no line end")),
+                StandardOpenOption.APPEND);
 
         // WHEN
         var loaded = store.load();
+        store.append(AiMessage.from("next"));
+
+        // THEN
+        assertThat(loaded).hasSize(3);
+        var reloaded = new FileAgentHistoryStore(store.historyFile());
+        assertThat(reloaded.load()).hasSize(4).endsWith(AiMessage.from("next"));
+        // AND
+        reloaded.replaceLast(AiMessage.from("replaced"));
+        reloaded.compact();
+        assertThat(new FileAgentHistoryStore(store.historyFile()).load()).hasSize(4).endsWith(AiMessage.from("replaced"));
+    }
+
+    @Test
+    void corruptRecordIsSkipped() throws IOException {
+        // GIVEN
+        var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
+        store.append(UserMessage.from("hello"));
+        Files.writeString(store.historyFile(), "not-json" + System.lineSeparator(), StandardOpenOption.APPEND);
+        store.append(AiMessage.from("world"));
+
+        // WHEN
+        var loaded = new FileAgentHistoryStore(store.historyFile()).load();
+
+        // THEN
+        assertThat(loaded).hasSize(2);
+        assertThat(((AiMessage) loaded.get(1)).text()).isEqualTo("world");
+    }
+
+    @Test
+    void toolMessagesOfSkippedRecordsAreDropped() throws IOException {
+        // GIVEN — the result of the first and the request of the second tool call are corrupt
+        var store = new FileAgentHistoryStore(configDir.resolve("state/Peon-Dev-history.jsonl"));
+        store.append(UserMessage.from("call tool"));
+        store.append(AiMessage.from(ToolExecutionRequest.builder().id("1").name("lookup").arguments("{}").build()));
+        Files.writeString(store.historyFile(), "not-json" + System.lineSeparator(), StandardOpenOption.APPEND);
+        store.append(UserMessage.from("again"));
+        Files.writeString(store.historyFile(), "not-json" + System.lineSeparator(), StandardOpenOption.APPEND);
+        store.append(ToolExecutionResultMessage.from("2", "lookup", "result"));
+        store.append(AiMessage.from("done"));
+
+        // WHEN
+        var loaded = new FileAgentHistoryStore(store.historyFile()).load();
 
         // THEN
-        assertThat(loaded).isEmpty();
-        assertThat(Files.exists(store.historyFile())).isFalse();
+        var memory = new ThreadSafeMemory();
+        memory.replaceAll(loaded);
+        assertThat(memory.messageFlow()).isEqualTo("USER->USER->AI");
+        assertThat(((AiMessage) loaded.get(2)).text()).isEqualTo("done");
     }
 
     @Test
@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.sterl.llmpeon.AbstractMemoryFileTest;
@@ -15,6 +17,7 @@ import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
 
 class ThreadSafeMemoryTest extends AbstractMemoryFileTest {
 
@@ -98,7 +101,7 @@ class ThreadSafeMemoryTest extends AbstractMemoryFileTest {
         subject.add(UserMessage.from("U2"));
 
         // THEN
-        assertThat(store.operations).containsExactly("append:AI", "append:USER", "persist:2");
+        assertThat(store.operations).containsExactly("append:AI", "append:USER", "replaceLast:USER");
 
         // WHEN
         var toolResult = ToolExecutionResultMessage.from("1", "tool", "result");
@@ -106,7 +109,7 @@ class ThreadSafeMemoryTest extends AbstractMemoryFileTest {
 
         // THEN
         assertThat(store.operations).containsExactly(
-                "append:AI", "append:USER", "persist:2", "appendList:2");
+                "append:AI", "append:USER", "replaceLast:USER", "appendList:2");
 
         // WHEN
         subject.clear();
@@ -131,6 +134,33 @@ class ThreadSafeMemoryTest extends AbstractMemoryFileTest {
         assertThat(subject.messageFlow()).isEqualTo("USER->USER");
     }
 
+    @Test
+    void containsChecksOnlyNewMessagesAndForgetsRewrittenOnes() {
+        // GIVEN
+        var subject = new ThreadSafeMemory();
+        subject.add(UserMessage.from("key:\n---\nfile content"));
+
+        // WHEN + THEN — found by substring, repeated lookups answer from the index
+        assertThat(subject.containsUserMessage("key:")).isTrue();
+        assertThat(subject.containsUserMessage("key:")).isTrue();
+        assertThat(subject.containsMessage("tool output")).isFalse();
+
+        // WHEN — a later tool result contains it
+        subject.add(AiMessage.from(ToolExecutionRequest.builder().id("1").name("read").build()));
+        subject.add(ToolExecutionResultMessage.from("1", "read", "the tool output"));
+
+        // THEN
+        assertThat(subject.containsMessage("tool output")).isTrue();
+        assertThat(subject.containsUserMessage("tool output")).isFalse();
+
+        // WHEN — compacted
+        subject.replaceAll(List.of(UserMessage.from("summary")));
+
+        // THEN
+        assertThat(subject.containsUserMessage("key:")).isFalse();
+        assertThat(subject.containsMessage("tool output")).isFalse();
+    }
+
     @Test
     void constructorEstimatesTokenCountFromLoadedMessages() {
         // GIVEN
@@ -151,6 +181,69 @@ class ThreadSafeMemoryTest extends AbstractMemoryFileTest {
         assertThat(subject.getTotalTokenUsed()).isGreaterThan(0).isBetween(8300, 8400);
     }
 
+    @Test
+    void isLoadedDoesNotWaitForTheHistory() throws Exception {
+        // GIVEN
+        var release = new CountDownLatch(1);
+        var store = new RecordingStoreWithMessages() {
+            @Override
+            public List<ChatMessage> load() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of(UserMessage.from("restored"));
+            }
+        };
+        var subject = new ThreadSafeMemory(store);
+        var loaded = new CountDownLatch(1);
+
+        // WHEN
+        subject.whenLoaded(loaded::countDown);
+
+        // THEN
+        assertThat(subject.isLoaded()).isFalse();
+        assertThat(loaded.getCount()).isEqualTo(1L);
+
+        // WHEN
+        release.countDown();
+
+        // THEN
+        assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subject.isLoaded()).isTrue();
+        assertThat(subject.size()).isEqualTo(1);
+    }
+
+    @Test
+    void tokenCountAddsEstimatesOfMessagesAfterTheRealUsage() {
+        // GIVEN — one token per character
+        var subject = new ThreadSafeMemory();
+        subject.setTokenEstimator(String::length);
+        subject.add(UserMessage.from("question"));
+
+        // WHEN — the provider reports real usage, followed by a tool result
+        var toolRequest = AiMessage.from(ToolExecutionRequest.builder().id("1").name("read").build());
+        var toolResult = ToolExecutionResultMessage.from("1", "read", "0123456789");
+        subject.addResult(ChatResponse.builder().aiMessage(toolRequest)
+                .tokenUsage(new TokenUsage(900, 100, 1000)).build(), List.of(toolResult));
+
+        // THEN — the real usage plus the estimate of the tool result
+        assertThat(subject.getTotalTokenUsed()).isEqualTo(1000 + ChatMessageUtil.toString(toolResult).length());
+
+        // WHEN — compacted
+        subject.replaceAll(List.of(UserMessage.from("summary")));
+
+        // THEN — pure estimate again
+        assertThat(subject.getTotalTokenUsed()).isEqualTo(ChatMessageUtil.toString(UserMessage.from("summary")).length());
+
+        // WHEN
+        subject.clear();
+
+        // THEN
+        assertThat(subject.getTotalTokenUsed()).isZero();
+    }
+
     private static class RecordingStore extends FileAgentHistoryStore {
         final List<String> operations = new ArrayList<>();
 
@@ -168,6 +261,11 @@ class ThreadSafeMemoryTest extends AbstractMemoryFileTest {
             operations.add("appendList:" + messages.size());
         }
 
+        @Override
+        public void replaceLast(ChatMessage message) {
+            operations.add("replaceLast:" + message.type().name());
+        }
+
         @Override
         public void persist(List<ChatMessage> snapshot) {
             operations.add("persist:" + snapshot.size());
@@ -0,0 +1,34 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class AppendOnlyArrayTest {
+
+    @Test
+    void snapshot_does_not_see_later_appends() {
+        // GIVEN
+        var subject = new AppendOnlyArray<String>(1);
+        subject.add("a");
+        var first = subject.snapshot();
+
+        // WHEN — grows beyond the initial capacity
+        subject.addAll(List.of("b", "c"));
+
+        // THEN
+        assertThat(first).containsExactly("a");
+        assertThat(subject.snapshot()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void snapshot_is_immutable() {
+        var subject = new AppendOnlyArray<String>(List.of("a"));
+
+        assertThatThrownBy(() -> subject.snapshot().add("b")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> subject.snapshot().get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
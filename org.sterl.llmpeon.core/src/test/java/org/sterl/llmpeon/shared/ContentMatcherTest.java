@@ -0,0 +1,100 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class ContentMatcherTest {
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void literalIsCaseInsensitiveOnBytes() {
+        // GIVEN
+        var content = "public class Foo\nPUBLIC CLASS Bar\nprivate Class Baz";
+
+        // WHEN
+        var subject = ContentMatcher.of("class");
+
+        // THEN
+        assertThat(subject.count(utf8(content))).isEqualTo(3);
+        assertThat(subject.count(content)).isEqualTo(3);
+        assertThat(ContentMatcher.of("Qux").count(utf8(content))).isZero();
+    }
+
+    @Test
+    void literalMatchesDoNotOverlap() {
+        assertThat(ContentMatcher.of("aa").count(utf8("aaaaa"))).isEqualTo(2);
+        assertThat(ContentMatcher.of("aa").count("aaaaa")).isEqualTo(2);
+    }
+
+    @Test
+    void literalSkipsMultiByteCharacters() {
+        // GIVEN
+        var content = "Größe größe GRÖSSE gross";
+
+        // WHEN / THEN
+        assertThat(ContentMatcher.of("gr").count(utf8(content))).isEqualTo(4);
+        assertThat(ContentMatcher.of("sse").count(utf8(content))).isEqualTo(1);
+        // AND non ASCII queries fall back to unicode case folding
+        assertThat(ContentMatcher.of("GRÖ").count(utf8(content))).isEqualTo(3);
+    }
+
+    @Test
+    void regexOnBytes() {
+        // GIVEN
+        var content = "public class FooTool\npublic class BarService\nprivate class BazTool";
+
+        // WHEN / THEN
+        assertThat(ContentMatcher.of("class.*Tool").count(utf8(content))).isEqualTo(2);
+        assertThat(ContentMatcher.of("FooTool|BazTool").count(utf8(content))).isEqualTo(2);
+    }
+
+    @Test
+    void countsOnlyBetweenPositionAndLimit() {
+        // GIVEN
+        var content = utf8("foo foo foo");
+        content.position(1).limit(8);
+
+        // WHEN / THEN
+        assertThat(ContentMatcher.of("foo").count(content)).isEqualTo(1);
+    }
+
+    @Test
+    void matcherIsCachedPerQuery() {
+        assertThat(ContentMatcher.of("class.*Tool")).isSameAs(ContentMatcher.of("class.*Tool"));
+    }
+
+    @Test
+    void catastrophicRegexContinuesLinear() {
+        // GIVEN backtracking would take 2^40 steps
+        var content = "b b " + "a".repeat(40) + " b";
+
+        // WHEN
+        var subject = ContentMatcher.of("b|(a+)+c");
+
+        // THEN
+        assertThat(subject.count(content)).isEqualTo(3);
+        assertThat(subject.count(utf8(content))).isEqualTo(3);
+    }
+
+    @Test
+    void tooExpensiveRegexFails() {
+        // back references are beyond the linear engine
+        assertThatThrownBy(() -> ContentMatcher.of("(a+)+\\1c").count("a".repeat(40)))
+            .isInstanceOf(ContentMatcher.TooExpensiveException.class)
+            .hasMessageContaining("simplify it");
+        assertThat(RegexUtils.countOccurrences("a".repeat(40), "(a+)+\\1c")).isZero();
+    }
+
+    @Test
+    void invalidRegexIsRejected() {
+        assertThatThrownBy(() -> ContentMatcher.of("[invalid|")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
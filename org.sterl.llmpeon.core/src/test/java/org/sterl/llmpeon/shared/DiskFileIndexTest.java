@@ -0,0 +1,95 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskFileIndexTest {
+
+    @TempDir
+    Path dir;
+
+    final DiskFileIndex subject = new DiskFileIndex();
+
+    private DiskFileIndex refresh() {
+        return subject.refresh(dir, IgnoreRules.DEFAULT_PATTERNS);
+    }
+
+    @Test
+    void refreshAddsNewAndDropsDeletedFiles() throws IOException {
+        // GIVEN
+        var foo = Files.writeString(Files.createDirectories(dir.resolve("a")).resolve("Foo.java"), "");
+        var bar = Files.writeString(Files.createDirectories(dir.resolve("b")).resolve("Bar.java"), "");
+        refresh();
+        assertThat(subject.search("Bar.java", 0)).containsExactly(bar.toString());
+
+        // WHEN
+        var baz = Files.writeString(dir.resolve("a/Baz.java"), "");
+        Files.delete(bar);
+        Files.delete(dir.resolve("b"));
+        refresh();
+
+        // THEN
+        assertThat(subject.size()).isEqualTo(2);
+        assertThat(subject.search("Ba*.java", 0)).containsExactly(baz.toString());
+        assertThat(subject.search("Foo.java", 0)).containsExactly(foo.toString());
+    }
+
+    @Test
+    void directoryWithUnchangedTimeIsNotListedAgain() throws IOException {
+        // GIVEN a directory last changed an hour ago
+        var sub = Files.createDirectories(dir.resolve("sub"));
+        Files.writeString(sub.resolve("Foo.java"), "");
+        var hourAgo = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        Files.setLastModifiedTime(sub, hourAgo);
+        refresh();
+
+        // WHEN a file is added, but the directory keeps its time
+        var added = Files.writeString(sub.resolve("Added.java"), "");
+        Files.setLastModifiedTime(sub, hourAgo);
+        refresh();
+
+        // THEN only the known files are indexed
+        assertThat(subject.search("Added.java", 0)).isEmpty();
+        // AND once the time changes, the directory is listed again
+        Files.setLastModifiedTime(sub, FileTime.from(Instant.now().minus(30, ChronoUnit.MINUTES)));
+        assertThat(refresh().search("Added.java", 0)).containsExactly(added.toString());
+    }
+
+    @Test
+    void recentlyChangedDirectoryIsListedEachTime() throws IOException {
+        // GIVEN a directory changed within the time stamp resolution
+        var sub = Files.createDirectories(dir.resolve("sub"));
+        var now = FileTime.from(Instant.now());
+        Files.setLastModifiedTime(sub, now);
+        refresh();
+
+        // WHEN
+        var added = Files.writeString(sub.resolve("Added.java"), "");
+        Files.setLastModifiedTime(sub, now);
+
+        // THEN
+        assertThat(refresh().search("Added.java", 0)).containsExactly(added.toString());
+    }
+
+    @Test
+    void ignoredDirectoriesAreNotIndexed() throws IOException {
+        // GIVEN
+        Files.writeString(Files.createDirectories(dir.resolve("node_modules/lib")).resolve("index.js"), "");
+        var app = Files.writeString(dir.resolve("app.js"), "");
+
+        // WHEN
+        refresh();
+
+        // THEN
+        assertThat(subject.search("*.js", 0)).containsExactly(app.toString());
+    }
+}
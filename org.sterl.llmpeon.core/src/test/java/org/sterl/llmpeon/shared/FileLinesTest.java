@@ -107,4 +107,25 @@ class FileLinesTest {
     void testTailLongerThanRequested() {
         assertEquals("c\nd\ne", FileLines.tail("a\nb\nc\nd\ne", 3));
     }
+
+    @Test
+    void testMatchesWithContext() {
+        String content = "a\nfoo\nb\nc\nd\ne\nFOO bar foo\nf";
+        String result = FileLines.matches(content, ContentMatcher.of("foo"), 1, 1, 10);
+        assertEquals("   1- a\n   2: foo\n   3- b\n--\n   6- e\n   7: FOO bar foo\n   8- f\n", result);
+    }
+
+    @Test
+    void testMatchesMergesOverlappingContext() {
+        String content = "foo\nfoo\nx\r\nfoo";
+        String result = FileLines.matches(content, ContentMatcher.of("foo"), 2, 2, 10);
+        assertEquals("   1: foo\n   2: foo\n   3- x\n   4: foo\n", result);
+    }
+
+    @Test
+    void testMatchesCapsMatchingLines() {
+        String content = "foo\nfoo foo\nfoo\nfoo";
+        String result = FileLines.matches(content, ContentMatcher.of("foo"), 0, 0, 2);
+        assertEquals("   1: foo\n   2: foo foo\n... 2 more matching line(s)\n", result);
+    }
 }
@@ -0,0 +1,56 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FileNameIndexTest {
+
+    final FileNameIndex subject = new FileNameIndex();
+
+    @Test
+    void wildcardMatchesNameOrPath() {
+        // GIVEN
+        subject.addAll(List.of("/p/src/FooController.java", "/p/src/FooService.java", "/p/docs/README.md"));
+
+        // WHEN / THEN
+        assertThat(subject.search("Foo*", 0)).containsExactly("/p/src/FooController.java", "/p/src/FooService.java");
+        assertThat(subject.search("*.md", 0)).containsExactly("/p/docs/README.md");
+        assertThat(subject.search("docs", 0)).containsExactly("/p/docs/README.md");
+        assertThat(subject.search("**/src/*Service.java", 0)).containsExactly("/p/src/FooService.java");
+        assertThat(subject.search("*.java", 1)).hasSize(1);
+    }
+
+    @Test
+    void plainQueryFallsBackToFuzzy() {
+        // GIVEN
+        subject.addAll(List.of("/p/FooServiceRepository.java", "/p/FastStringReader.java", "/p/Other.java"));
+
+        // WHEN / THEN
+        assertThat(subject.search("FSR", 0)).containsExactly("/p/FastStringReader.java", "/p/FooServiceRepository.java");
+        assertThat(subject.search("fooserrep", 0)).containsExactly("/p/FooServiceRepository.java");
+        assertThat(subject.search("xyz", 0)).isEmpty();
+    }
+
+    @Test
+    void camelHumpsRankBeforeSubsequences() {
+        assertThat(FileNameIndex.fuzzyScore("fsr", "FooServiceRepository.java"))
+            .isLessThan(FileNameIndex.fuzzyScore("fsr", "fastsrc.java"));
+        assertThat(FileNameIndex.fuzzyScore("abc", "Foo.java")).isNegative();
+    }
+
+    @Test
+    void removeUnderDropsADirectory() {
+        // GIVEN
+        subject.addAll(List.of("/p/a/Foo.java", "/p/ab/Foo.java", "/q/Foo.java"));
+
+        // WHEN
+        subject.removeUnder("/p/a");
+
+        // THEN
+        assertThat(subject.byName("Foo.java")).containsExactly("/p/ab/Foo.java", "/q/Foo.java");
+        assertThat(subject.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,89 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.AbstractMemoryFileTest;
+
+class FilePagerTest extends AbstractMemoryFileTest {
+
+    private static Path largeLog(String name) throws IOException {
+        var sb = new StringBuilder();
+        for (int i = 1; i <= 20_000; i++) {
+            if (i == 5_000) sb.append("12:00:00 ERROR connection lost\n");
+            else sb.append("12:00:00 INFO processing item ").append(i).append('\n');
+        }
+        return Files.writeString(tmp.resolve(name), sb);
+    }
+
+    @Test
+    void summaryOfLargeFile() throws IOException {
+        // GIVEN
+        var file = largeLog("summary.log");
+        assertThat(FilePager.isLarge(file)).isTrue();
+
+        // WHEN
+        var result = FilePager.read(file, 0, 0);
+
+        // THEN
+        assertThat(result).startsWith("Large file " + file);
+        assertThat(result).contains("20001 lines");
+        assertThat(result).contains("1-500, 501-1000, 1001-1500, 1501-2000, 2001-2500, ..., 20001-20001");
+        assertThat(result).contains("   1: 12:00:00 INFO processing item 1\n");
+        assertThat(result).contains("5000: 12:00:00 ERROR connection lost\n");
+        assertThat(result).contains("20000: 12:00:00 INFO processing item 20000\n");
+        assertThat(result).doesNotContain("processing item 10000\n");
+    }
+
+    @Test
+    void readsOnePageAtMost() throws IOException {
+        // GIVEN
+        var file = largeLog("page.log");
+
+        // WHEN
+        var result = FilePager.read(file, 1001, 3000);
+
+        // THEN
+        assertThat(result).startsWith("1001: 12:00:00 INFO processing item 1001\n");
+        assertThat(result).contains("1500: 12:00:00 INFO processing item 1500\n");
+        assertThat(result).doesNotContain("processing item 1501");
+        assertThat(result).endsWith("continue with startLine=1501 endLine=2000\n");
+    }
+
+    @Test
+    void cutsLongLines() throws IOException {
+        // GIVEN a minified file
+        var file = Files.writeString(tmp.resolve("min.js"), "x".repeat(1024 * 1024));
+
+        // WHEN
+        var result = FilePager.read(file, 0, 0);
+
+        // THEN
+        assertThat(result).contains("   1: " + "x".repeat(500) + " ...\n");
+        assertThat(result.length()).isLessThan(2_000);
+    }
+
+    @Test
+    void readsInTheGivenCharset() throws IOException {
+        // GIVEN a large ISO-8859-1 file
+        var sb = new StringBuilder();
+        for (int i = 1; i <= 30_000; i++) sb.append("Größe ").append(i).append('\n');
+        var file = Files.writeString(tmp.resolve("latin1.txt"), sb, StandardCharsets.ISO_8859_1);
+        assertThat(FilePager.isLarge(file)).isTrue();
+
+        // WHEN
+        var page = FilePager.read(file, StandardCharsets.ISO_8859_1, 2, 2);
+        var summary = FilePager.summary(file, StandardCharsets.ISO_8859_1);
+
+        // THEN
+        assertThat(page).endsWith(" 2: Größe 2\n");
+        assertThat(summary).contains("   1: Größe 1\n");
+        // AND the cached index is still read as UTF-8 by default
+        assertThat(FilePager.read(file, 2, 2)).doesNotContain("Größe");
+    }
+}
@@ -0,0 +1,106 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.AbstractMemoryFileTest;
+
+class FileScannerTest extends AbstractMemoryFileTest {
+
+    private static int count(Path file, ContentMatcher matcher) throws IOException {
+        var content = FileScanner.read(file);
+        return content == null ? 0 : matcher.count(content);
+    }
+
+    private static IgnoreRules ignoreRules(Path dir) {
+        return new IgnoreRules(dir, IgnoreRules.DEFAULT_PATTERNS);
+    }
+
+    @Test
+    void scansAllSubDirectories() throws IOException {
+        // GIVEN
+        var dir = Files.createDirectories(tmp.resolve("scan/a/b"));
+        Files.writeString(dir.resolve("Foo.java"), "class Foo { Foo foo; }");
+        Files.writeString(dir.getParent().resolve("Bar.java"), "class Bar {}");
+        Files.writeString(dir.getParent().getParent().resolve("foo.txt"), "foo");
+        var matcher = ContentMatcher.of("foo");
+
+        // WHEN
+        var matches = FileScanner.scan(tmp.resolve("scan"), ignoreRules(tmp.resolve("scan")), p -> true,
+                f -> count(f, matcher), 100);
+
+        // THEN
+        assertThat(matches).hasSize(2);
+        assertThat(matches.get(0).file()).isEqualTo(dir.resolve("Foo.java"));
+        assertThat(matches.get(0).count()).isEqualTo(3);
+        assertThat(matches.get(1).file().getFileName().toString()).isEqualTo("foo.txt");
+    }
+
+    @Test
+    void ignoredDirectoriesAreNotWalked() throws IOException {
+        // GIVEN
+        var dir = Files.createDirectories(tmp.resolve("project"));
+        Files.writeString(dir.resolve("Foo.java"), "foo");
+        Files.writeString(Files.createDirectories(dir.resolve("target/classes")).resolve("Foo.txt"), "foo");
+        Files.writeString(Files.createDirectories(dir.resolve("generated")).resolve("Foo.java"), "foo");
+        Files.writeString(dir.resolve(IgnoreRules.GIT_IGNORE), "generated/\n");
+        var matcher = ContentMatcher.of("foo");
+        var walked = new ConcurrentLinkedQueue<Path>();
+
+        // WHEN
+        var matches = FileScanner.scan(dir, ignoreRules(dir), p -> walked.add(p), f -> count(f, matcher), 100);
+
+        // THEN
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0).file()).isEqualTo(dir.resolve("Foo.java"));
+        assertThat(walked).noneMatch(p -> p.startsWith(dir.resolve("target")) || p.startsWith(dir.resolve("generated")));
+    }
+
+    @Test
+    void stopsAtMaxFiles() throws IOException {
+        // GIVEN
+        var dir = Files.createDirectories(tmp.resolve("many"));
+        for (int i = 0; i < 50; i++) Files.writeString(dir.resolve("F" + i + ".txt"), "match");
+        var matcher = ContentMatcher.of("match");
+
+        // WHEN
+        var matches = FileScanner.scan(dir, ignoreRules(dir), p -> true, f -> count(f, matcher), 10);
+        var fromList = FileScanner.scan(IntStream.range(0, 50).mapToObj(i -> dir.resolve("F" + i + ".txt")).toList(),
+                f -> count(f, matcher), 10);
+
+        // THEN
+        assertThat(matches).hasSize(10);
+        assertThat(fromList).hasSize(10);
+        assertThat(fromList.get(0).file()).isEqualTo(dir.resolve("F0.txt"));
+    }
+
+    @Test
+    void binaryFilesAreSkipped() throws IOException {
+        // GIVEN
+        var file = tmp.resolve("data.bin");
+        Files.write(file, new byte[] {'f', 'o', 'o', 0, 'f', 'o', 'o'});
+
+        // WHEN / THEN
+        assertThat(FileScanner.read(file)).isNull();
+    }
+
+    @Test
+    void readsFilesLargerThanOneChunk() throws IOException {
+        // GIVEN
+        var file = tmp.resolve("large.txt");
+        Files.writeString(file, "x".repeat(200_000) + "needle");
+
+        // WHEN
+        var content = FileScanner.read(file);
+
+        // THEN
+        assertThat(content.remaining()).isEqualTo(200_006);
+        assertThat(ContentMatcher.of("NEEDLE").count(content)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,79 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.AbstractMemoryFileTest;
+
+class IgnoreRulesTest extends AbstractMemoryFileTest {
+
+    @Test
+    void defaultsApplyInAnyDirectory() {
+        // GIVEN
+        var root = tmp.resolve("defaults");
+        var subject = new IgnoreRules(root, List.of("target/", "*.log"));
+
+        // WHEN / THEN
+        assertThat(subject.isIgnored(root.resolve("target"), true)).isTrue();
+        assertThat(subject.isIgnored(root.resolve("module/target"), true)).isTrue();
+        assertThat(subject.isIgnored(root.resolve("module/a.log"), false)).isTrue();
+        // AND directory patterns do not match files
+        assertThat(subject.isIgnored(root.resolve("target"), false)).isFalse();
+        assertThat(subject.isIgnored(root.resolve("src/Foo.java"), false)).isFalse();
+    }
+
+    @Test
+    void nestedIgnoreFilesAndNegation() throws IOException {
+        // GIVEN
+        var root = Files.createDirectories(tmp.resolve("nested"));
+        var module = Files.createDirectories(root.resolve("module"));
+        Files.writeString(root.resolve(IgnoreRules.GIT_IGNORE), "# comment\n*.gen\n/generated/\ndocs/**/*.pdf\n");
+        Files.writeString(module.resolve(IgnoreRules.PEON_IGNORE), "!keep.gen\n");
+        var subject = new IgnoreRules(root, List.of());
+
+        // WHEN / THEN
+        assertThat(subject.isIgnored(root.resolve("a.gen"), false)).isTrue();
+        assertThat(subject.isIgnored(module.resolve("b.gen"), false)).isTrue();
+        assertThat(subject.isIgnored(module.resolve("keep.gen"), false)).isFalse();
+        // anchored to the directory of the .gitignore
+        assertThat(subject.isIgnored(root.resolve("generated"), true)).isTrue();
+        assertThat(subject.isIgnored(module.resolve("generated"), true)).isFalse();
+        assertThat(subject.isIgnored(root.resolve("docs/a/b/c.pdf"), false)).isTrue();
+        assertThat(subject.isIgnored(root.resolve("docs/c.pdf"), false)).isTrue();
+        assertThat(subject.isIgnored(root.resolve("other/c.pdf"), false)).isFalse();
+    }
+
+    @Test
+    void walkSkipsIgnoredDirectories() throws IOException {
+        // GIVEN
+        var root = Files.createDirectories(tmp.resolve("walk"));
+        Files.createDirectories(root.resolve("src"));
+        Files.createDirectories(root.resolve("node_modules/lib"));
+        Files.writeString(root.resolve("src/App.js"), "app");
+        Files.writeString(root.resolve("node_modules/lib/index.js"), "lib");
+        var files = new ArrayList<Path>();
+
+        // WHEN
+        new IgnoreRules(root, IgnoreRules.DEFAULT_PATTERNS).walk(root, files::add);
+
+        // THEN
+        assertThat(files).containsExactly(root.resolve("src/App.js"));
+    }
+
+    @Test
+    void peonIgnoreInConfigDirReplacesTheDefaults() throws IOException {
+        // GIVEN
+        var configDir = Files.createDirectories(tmp.resolve("config"));
+
+        // WHEN / THEN
+        assertThat(IgnoreRules.loadDefaults(configDir)).isEqualTo(IgnoreRules.DEFAULT_PATTERNS);
+        Files.writeString(configDir.resolve(IgnoreRules.PEON_IGNORE), "out/\n");
+        assertThat(IgnoreRules.loadDefaults(configDir)).containsExactly("out/");
+    }
+}
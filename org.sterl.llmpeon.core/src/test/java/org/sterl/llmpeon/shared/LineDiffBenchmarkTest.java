@@ -0,0 +1,110 @@
+package org.sterl.llmpeon.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares {@link LineDiff} with the former LCS table diff on typical file updates — run with the
+ * integration profile, no assertions, just the numbers.
+ */
+@Tag("integration")
+class LineDiffBenchmarkTest {
+
+    private static final int WARM_UP = 3;
+    private static final int RUNS = 5;
+
+    @Test
+    void benchmark() {
+        for (int lines : new int[] { 500, 2_000, 5_000 }) {
+            var file = javaLikeFile(lines);
+            run("few edits      ", lines, file, edit(file, 5, 1));
+            run("many edits     ", lines, file, edit(file, lines / 20, 2));
+            run("block insert   ", lines, file, insertBlock(file, 200));
+            run("rewrite        ", lines, file, edit(file, lines, 1));
+        }
+    }
+
+    private static void run(String name, int lines, String[] a, String[] b) {
+        long myers = measure(() -> LineDiff.diff(a, b));
+        long lcs = measure(() -> lcsDiff(a, b));
+        System.out.printf("%s %5d lines: myers %6.2f ms, lcs %8.2f ms%n", name, lines, myers / 1e6, lcs / 1e6);
+    }
+
+    private static long measure(Supplier<List<String>> diff) {
+        for (int i = 0; i < WARM_UP; i++) diff.get();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            diff.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static String[] javaLikeFile(int lines) {
+        var result = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            result[i] = switch (i % 6) {
+                case 0 -> "";
+                case 1 -> "    @Override";
+                case 2 -> "    public void method" + i + "() {";
+                case 3 -> "        call(" + i + ");";
+                case 4 -> "    }";
+                default -> "    // comment " + i;
+            };
+        }
+        return result;
+    }
+
+    private static String[] edit(String[] file, int edits, long seed) {
+        var random = new Random(seed);
+        var result = file.clone();
+        for (int i = 0; i < edits; i++) {
+            int at = random.nextInt(result.length);
+            result[at] = result[at] + " // changed";
+        }
+        return result;
+    }
+
+    private static String[] insertBlock(String[] file, int size) {
+        var result = new ArrayList<>(List.of(file));
+        for (int i = 0; i < size; i++) result.add(file.length / 2, "    // inserted " + i);
+        return result.toArray(String[]::new);
+    }
+
+    /** The O(m·n) table diff {@link LineDiff} replaced, as it was. */
+    private static List<String> lcsDiff(String[] a, String[] b) {
+        int m = a.length, n = b.length;
+        int[][] dp = new int[m + 1][n + 1];
+        for (int i = 1; i <= m; i++) {
+            for (int j = 1; j <= n; j++) {
+                if (a[i - 1].equals(b[j - 1])) {
+                    dp[i][j] = dp[i - 1][j - 1] + 1;
+                } else {
+                    dp[i][j] = Math.max(dp[i - 1][j], dp[i][j - 1]);
+                }
+            }
+        }
+
+        var result = new ArrayList<String>();
+        int i = m, j = n;
+        while (i > 0 || j > 0) {
+            if (i > 0 && j > 0 && a[i - 1].equals(b[j - 1])) {
+                result.add(0, " " + a[i - 1]);
+                i--; j--;
+            } else if (j > 0 && (i == 0 || dp[i][j - 1] >= dp[i - 1][j])) {
+                result.add(0, "+" + b[j - 1]);
+                j--;
+            } else {
+                result.add(0, "-" + a[i - 1]);
+                i--;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LineDiffTest {
+
+    @Test
+    void marksChangedLines() {
+        // GIVEN
+        var a = new String[] { "a", "b", "c", "d" };
+        var b = new String[] { "a", "x", "c", "d", "e" };
+
+        // WHEN
+        var result = LineDiff.diff(a, b);
+
+        // THEN
+        assertThat(result).containsExactly(" a", "-b", "+x", " c", " d", "+e");
+    }
+
+    @Test
+    void equalAndEmptyTexts() {
+        assertThat(LineDiff.diff(new String[] { "a" }, new String[] { "a" })).containsExactly(" a");
+        assertThat(LineDiff.diff(new String[0], new String[] { "a" })).containsExactly("+a");
+        assertThat(LineDiff.diff(new String[] { "a" }, new String[0])).containsExactly("-a");
+        assertThat(LineDiff.diff(new String[0], new String[0])).isEmpty();
+    }
+
+    @Test
+    void editScriptIsMinimal() {
+        var random = new Random(42);
+        for (int run = 0; run < 2_000; run++) {
+            // GIVEN few distinct lines, so many of them match
+            var a = randomLines(random, random.nextInt(25), 1 + random.nextInt(5));
+            var b = randomLines(random, random.nextInt(25), 1 + random.nextInt(5));
+
+            // WHEN
+            var result = LineDiff.diff(a, b);
+
+            // THEN both texts are restored and as many lines are kept as in their LCS
+            var oldLines = new ArrayList<String>();
+            var newLines = new ArrayList<String>();
+            int kept = 0;
+            for (var line : result) {
+                if (line.charAt(0) != '+') oldLines.add(line.substring(1));
+                if (line.charAt(0) != '-') newLines.add(line.substring(1));
+                if (line.charAt(0) == ' ') ++kept;
+            }
+            assertThat(oldLines).containsExactly(a);
+            assertThat(newLines).containsExactly(b);
+            assertThat(kept).as("%s -> %s", Arrays.toString(a), Arrays.toString(b)).isEqualTo(lcsLength(a, b));
+        }
+    }
+
+    private static String[] randomLines(Random random, int count, int distinct) {
+        var result = new String[count];
+        for (int i = 0; i < count; i++) result[i] = "line " + random.nextInt(distinct);
+        return result;
+    }
+
+    private static int lcsLength(String[] a, String[] b) {
+        var dp = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                dp[i][j] = a[i - 1].equals(b[j - 1]) ? dp[i - 1][j - 1] + 1 : Math.max(dp[i - 1][j], dp[i][j - 1]);
+            }
+        }
+        return dp[a.length][b.length];
+    }
+}
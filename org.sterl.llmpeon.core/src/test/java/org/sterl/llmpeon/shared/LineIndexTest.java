@@ -0,0 +1,72 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.AbstractMemoryFileTest;
+
+class LineIndexTest extends AbstractMemoryFileTest {
+
+    @Test
+    void readsLineRange() throws IOException {
+        // GIVEN
+        var file = Files.writeString(tmp.resolve("lines.txt"), "alpha\nbeta\ngamma\ndelta\n");
+
+        // WHEN
+        var index = LineIndex.of(file);
+
+        // THEN
+        assertThat(index.lineCount()).isEqualTo(5);
+        assertThat(index.lineEnding()).isEqualTo("\n");
+        assertThat(index.read(2, 3)).containsExactly("beta", "gamma");
+        assertThat(index.read(4, 99)).containsExactly("delta", "");
+        assertThat(index.read(6, 7)).isEmpty();
+    }
+
+    @Test
+    void splitsByDominantLineEnding() throws IOException {
+        // GIVEN
+        var file = Files.writeString(tmp.resolve("crlf.txt"), "a\r\nb\nc\r\nd");
+
+        // WHEN
+        var index = LineIndex.of(file);
+
+        // THEN same lines as FileLines on the content
+        assertThat(index.lineEnding()).isEqualTo("\r\n");
+        assertThat(index.read(1, 3)).containsExactly("a", "b\nc", "d");
+    }
+
+    @Test
+    void indexesFilesLargerThanOneChunk() throws IOException {
+        // GIVEN
+        var sb = new StringBuilder();
+        for (int i = 1; i <= 20_000; i++) sb.append("line ").append(i).append("\r\n");
+        var file = Files.writeString(tmp.resolve("large.log"), sb);
+
+        // WHEN
+        var index = LineIndex.of(file);
+
+        // THEN
+        assertThat(index.lineCount()).isEqualTo(20_001);
+        assertThat(index.read(12_345, 12_346)).containsExactly("line 12345", "line 12346");
+        assertThat(FileLines.extract(index, 20_000, 0)).isEqualTo("20000: line 20000\r\n20001: \r\n");
+    }
+
+    @Test
+    void scansChangedFileAgain() throws IOException {
+        // GIVEN
+        var file = Files.writeString(tmp.resolve("changed.txt"), "a\nb");
+        assertThat(LineIndex.of(file).lineCount()).isEqualTo(2);
+
+        // WHEN
+        Files.writeString(file, "a\nb\nc");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+
+        // THEN
+        assertThat(LineIndex.of(file).read(3, 3)).containsExactly("c");
+    }
+}
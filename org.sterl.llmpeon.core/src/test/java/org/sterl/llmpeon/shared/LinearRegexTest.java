@@ -0,0 +1,115 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.jupiter.api.Test;
+
+class LinearRegexTest {
+
+    private static List<Integer> linear(String regex, String content) {
+        var result = new ArrayList<Integer>();
+        LinearRegex.compile(regex).forEach(content, start -> result.add(start));
+        return result;
+    }
+
+    private static List<Integer> java(String regex, String content) {
+        var result = new ArrayList<Integer>();
+        var m = Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(content);
+        while (m.find()) result.add(m.start());
+        return result;
+    }
+
+    @Test
+    void findsLikeJavaRegex() {
+        var content = "public class FooTool\npublic class BarService\nprivate class BazTool_2 {}";
+        for (var regex : List.of("class.*Tool", "FooTool|BazTool", "\\bclass\\s+\\w+", "Ba[r-z]+",
+                "[^a-z\\s]+", "o+?", "(?:ab|a)*c?", "\\d$", "^pub", "x{0,2}", "l{2,}|\\W")) {
+            assertThat(linear(regex, content)).as(regex).isEqualTo(java(regex, content));
+        }
+    }
+
+    @Test
+    void catastrophicRegexStaysLinear() {
+        // GIVEN
+        var content = "a".repeat(100_000);
+
+        // WHEN / THEN - backtracking would take 2^100000 steps
+        assertThat(linear("(a+)+b", content)).isEmpty();
+        assertThat(linear("(a|aa)+$", content)).containsExactly(0);
+    }
+
+    @Test
+    void surrogatePairIsOneChar() {
+        assertThat(linear(".x", "😀x")).containsExactly(0);
+        assertThat(linear("a.{2}b", "a😀😀b")).containsExactly(0);
+    }
+
+    @Test
+    void unsupportedRegexIsLeftToJava() {
+        assertThat(LinearRegex.compile("(a+)\\1")).isNull();
+        assertThat(LinearRegex.compile("foo(?=bar)")).isNull();
+        assertThat(LinearRegex.compile("a*+")).isNull();
+        assertThat(LinearRegex.compile("(a*)*")).isNull();
+        assertThat(LinearRegex.compile("\\p{Alpha}+")).isNull();
+        assertThat(LinearRegex.compile("a{1000}")).isNull();
+    }
+
+    @Test
+    void randomRegexesMatchLikeJava() {
+        var random = new Random(21);
+        int compared = 0;
+        for (int i = 0; i < 3_000; i++) {
+            var regex = alternation(random, 0);
+            try {
+                Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            } catch (PatternSyntaxException e) {
+                continue;
+            }
+            if (LinearRegex.compile(regex) == null) continue;
+            ++compared;
+            for (int k = 0; k < 10; k++) {
+                var content = content(random);
+                assertThat(linear(regex, content)).as(regex + " on " + content).isEqualTo(java(regex, content));
+            }
+        }
+        assertThat(compared).isGreaterThan(1_000);
+    }
+
+    private static final String[] ATOMS = {"a", "b", "A", ".", "\\d", "\\w", "\\s", "\\W", "\\S", "\\b",
+            "\\B", "^", "$", "[ab]", "[^a]", "[a-c]", "[-a]", "[a-]", "[A-Z]", "[\\d_]", "x", " ", "\\n",
+            "\\.", "é", "[a-c-e]"};
+    private static final String[] QUANTIFIERS = {"", "", "", "*", "+", "?", "{2}", "{1,3}", "{0,2}", "{2,}"};
+    private static final String CHARS = "aAbB1 \n\r._xé-\u0301";
+
+    private static String alternation(Random random, int depth) {
+        var sb = new StringBuilder(sequence(random, depth));
+        while (random.nextInt(4) == 0) sb.append('|').append(sequence(random, depth));
+        return sb.toString();
+    }
+
+    private static String sequence(Random random, int depth) {
+        var sb = new StringBuilder();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            int kind = random.nextInt(10);
+            if (depth < 3 && kind == 0) sb.append('(').append(alternation(random, depth + 1)).append(')');
+            else if (depth < 3 && kind == 1) sb.append("(?:").append(alternation(random, depth + 1)).append(')');
+            else sb.append(ATOMS[random.nextInt(ATOMS.length)]);
+            var quantifier = QUANTIFIERS[random.nextInt(QUANTIFIERS.length)];
+            sb.append(quantifier);
+            if (!quantifier.isEmpty() && random.nextInt(3) == 0) sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    private static String content(Random random) {
+        var sb = new StringBuilder();
+        for (int i = random.nextInt(14); i > 0; i--) sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class OutputCaptureTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private static OutputCapture capture(int head, int tail, String output) throws Exception {
+        var result = new OutputCapture(head, tail, StandardCharsets.UTF_8);
+        result.read(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)));
+        return result;
+    }
+
+    private static String lines(int from, int to) {
+        var sb = new StringBuilder();
+        for (int i = from; i <= to; i++) sb.append("line ").append(i).append('\n');
+        return sb.toString();
+    }
+
+    @Test
+    void keepsAllLinesThatFit() throws Exception {
+        var subject = capture(2, 3, "a\r\nb\nc\nd");
+
+        assertThat(subject.toString()).isEqualTo("a" + NL + "b" + NL + "c" + NL + "d");
+        assertThat(subject.lineCount()).isEqualTo(4L);
+        assertThat(subject.lastLine()).isEqualTo("d");
+    }
+
+    @Test
+    void keepsHeadAndTail() throws Exception {
+        // WHEN
+        var subject = capture(2, 3, lines(1, 100_000));
+
+        // THEN
+        assertThat(subject.toString()).isEqualTo("line 1" + NL + "line 2" + NL + "... (99995 lines skipped)"
+                + NL + "line 99998" + NL + "line 99999" + NL + "line 100000");
+        assertThat(subject.lineCount()).isEqualTo(100_000L);
+        assertThat(subject.lastLine()).isEqualTo("line 100000");
+    }
+
+    @Test
+    void linesSplitAcrossWrites() {
+        // GIVEN
+        var subject = new OutputCapture(0, 2, StandardCharsets.UTF_8);
+        var bytes = "first\nsecond ünï\nthird".getBytes(StandardCharsets.UTF_8);
+
+        // WHEN - byte by byte, splits the multi byte chars too
+        for (int i = 0; i < bytes.length; i++) subject.write(bytes, i, 1);
+
+        // THEN the unfinished line is shown, but not counted yet
+        assertThat(subject.lineCount()).isEqualTo(2L);
+        assertThat(subject.toString()).isEqualTo("first" + NL + "second ünï" + NL + "third");
+        subject.finish();
+        assertThat(subject.toString()).isEqualTo("... (1 lines skipped)" + NL + "second ünï" + NL + "third");
+    }
+
+    @Test
+    void longLineIsCut() throws Exception {
+        var subject = capture(1, 1, "x".repeat(OutputCapture.MAX_LINE_BYTES * 3) + "\nend\n");
+
+        assertThat(subject.toString()).isEqualTo("x".repeat(OutputCapture.MAX_LINE_BYTES) + " ..." + NL + "end");
+    }
+
+    @Test
+    void emptyOutput() throws Exception {
+        var subject = capture(1, 1, "");
+
+        assertThat(subject.isEmpty()).isTrue();
+        assertThat(subject.lastLine()).isNull();
+        assertThat(subject.toString()).isEqualTo("");
+    }
+}
@@ -0,0 +1,67 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.tool.model.FileEdit;
+
+class TextEditsTest {
+
+    private static final String CONTENT = "a\nb\nc\nd\ne";
+
+    @Test
+    void lineNumbersReferToTheOriginal() {
+        // WHEN
+        var result = TextEdits.apply("f", CONTENT, List.of(
+                FileEdit.insert("f", 1, "x"),
+                FileEdit.replaceLines("f", 3, 3, "C"),
+                FileEdit.replace("f", "e", "E"),
+                FileEdit.insert("f", 0, "first")));
+
+        // THEN
+        assertThat(result).isEqualTo("first\na\nx\nb\nC\nd\nE");
+    }
+
+    @Test
+    void emptyReplacementRemovesTheLines() {
+        assertThat(TextEdits.apply("f", CONTENT, List.of(FileEdit.replaceLines("f", 2, 3, ""))))
+            .isEqualTo("a\nd\ne");
+        assertThat(TextEdits.apply("f", CONTENT, List.of(FileEdit.replaceLines("f", 5, 5, ""))))
+            .isEqualTo("a\nb\nc\nd");
+    }
+
+    @Test
+    void newTextGetsTheLineEndingOfTheFile() {
+        // WHEN
+        var result = TextEdits.apply("f", "a\r\nb\r\nc", List.of(
+                FileEdit.replace("f", "a\nb", "A\nB"),
+                FileEdit.insert("f", 99, "d\ne")));
+
+        // THEN
+        assertThat(result).isEqualTo("A\r\nB\r\nc\r\nd\r\ne");
+    }
+
+    @Test
+    void overlappingEditsFail() {
+        assertThatThrownBy(() -> TextEdits.apply("f", CONTENT, List.of(
+                FileEdit.replace("f", "b", "B"),
+                FileEdit.replaceLines("f", 1, 2, "x"))))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Edits 1 and 2 of f overlap");
+    }
+
+    @Test
+    void invalidEditIsNamed() {
+        assertThatThrownBy(() -> TextEdits.apply("f", CONTENT, List.of(
+                FileEdit.replace("f", "a", "A"),
+                FileEdit.replace("f", "missing", "x"))))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("Edit 2 of f: oldString not found");
+
+        assertThatThrownBy(() -> TextEdits.apply("f", CONTENT, List.of(FileEdit.replaceLines("f", 4, 6, "x"))))
+            .hasMessageContaining("out of range, the file has 5 lines");
+    }
+}
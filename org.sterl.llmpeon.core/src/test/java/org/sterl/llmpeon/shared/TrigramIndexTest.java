@@ -0,0 +1,115 @@
+package org.sterl.llmpeon.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.AbstractMemoryFileTest;
+
+class TrigramIndexTest extends AbstractMemoryFileTest {
+
+    final TrigramIndex subject = new TrigramIndex(null);
+
+    @Test
+    void skipsFilesWhichCannotContainTheQuery() {
+        // GIVEN
+        subject.add("/a/Foo.java", 1, "public class FooService {}");
+        subject.add("/a/Bar.java", 1, "public class BarRepository {}");
+
+        // WHEN
+        var trigrams = TrigramIndex.trigrams("fooservice");
+
+        // THEN
+        assertThat(subject.mayContain("/a/Foo.java", trigrams)).isTrue();
+        assertThat(subject.mayContain("/a/Bar.java", trigrams)).isFalse();
+        // AND not indexed files are always candidates
+        assertThat(subject.mayContain("/a/Other.java", trigrams)).isTrue();
+    }
+
+    @Test
+    void regexUsesOnlyItsLiteralRuns() {
+        // GIVEN
+        subject.add("/a/Foo.java", 1, "class FooTool extends AbstractTool");
+
+        // WHEN / THEN
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("class.*Tool"))).isTrue();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("interface.*Tool"))).isFalse();
+        assertThat(TrigramIndex.trigrams("foo|bar")).isEmpty();
+        assertThat(TrigramIndex.trigrams("(abc)?def+")).isEmpty();
+        assertThat(TrigramIndex.trigrams("ab*")).isEmpty();
+        // AND without a regex operator the query is a literal
+        assertThat(TrigramIndex.trigrams("(abc)?def")).hasSize(7);
+    }
+
+    @Test
+    void escapeSequencesAreNoLiterals() {
+        // GIVEN
+        subject.add("/a/Foo.java", 1, "Abcd Abcd Xyz");
+
+        // WHEN / THEN — the digits and names of an escape are not part of the match
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("\\x41bcd+"))).isTrue();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("\\u0041bcd+"))).isTrue();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("\\x{41}bcd+"))).isTrue();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("\\0101bcd+"))).isTrue();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("\\p{Lu}bcd+"))).isTrue();
+        assertThat(TrigramIndex.trigrams("\\x41+")).isEmpty();
+        // AND a quoted literal is used
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("\\QXyz\\E+"))).isTrue();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("\\QUvw\\E+"))).isFalse();
+    }
+
+    @Test
+    void nestedOrEscapedCharacterClassesAreNotNarrowed() {
+        // GIVEN
+        subject.add("/a/Foo.java", 1, "xabcd");
+
+        // WHEN / THEN — the rest of the class after its first ] is no literal
+        assertThat(TrigramIndex.trigrams("[a-z&&[^b]]abc+")).isEmpty();
+        assertThat(TrigramIndex.trigrams("[\\]x]abc+")).isEmpty();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("[\\]x]abc+"))).isTrue();
+        // AND a plain class still narrows
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("[xy]abcd+"))).isTrue();
+        assertThat(subject.mayContain("/a/Foo.java", TrigramIndex.trigrams("[xy]uvw+"))).isFalse();
+    }
+
+    @Test
+    void caseIsFoldedLikeTheUnicodeCaseMatcher() {
+        // GIVEN
+        subject.add("/a/road.txt", 1, "δρόμος");
+
+        // WHEN
+        var trigrams = TrigramIndex.trigrams("ΔΡΌΜΟΣ");
+
+        // THEN — the final sigma ς matches Σ
+        assertThat(subject.mayContain("/a/road.txt", trigrams)).isTrue();
+    }
+
+    @Test
+    void changedStampNeedsReindex() {
+        // GIVEN
+        subject.add("/a/Foo.java", 1, "old content");
+
+        // WHEN / THEN
+        assertThat(subject.isCurrent("/a/Foo.java", 1)).isTrue();
+        assertThat(subject.isCurrent("/a/Foo.java", 2)).isFalse();
+    }
+
+    @Test
+    void savedIndexIsLoadedAgain() throws IOException {
+        // GIVEN
+        var file = tmp.resolve("index/disk.trigrams");
+        var index = new TrigramIndex(file);
+        index.add("/a/Foo.java", 7, "public class FooService {}");
+
+        // WHEN
+        index.save();
+        var loaded = TrigramIndex.load(file);
+
+        // THEN
+        assertThat(loaded.size()).isEqualTo(1);
+        assertThat(loaded.isCurrent("/a/Foo.java", 7)).isTrue();
+        assertThat(loaded.mayContain("/a/Foo.java", TrigramIndex.trigrams("FooService"))).isTrue();
+        assertThat(loaded.mayContain("/a/Foo.java", TrigramIndex.trigrams("BarRepository"))).isFalse();
+    }
+}
@@ -0,0 +1,64 @@
+package org.sterl.llmpeon.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.shared.AiMonitor;
+import org.sterl.llmpeon.shared.OnPartialAiResponse;
+import org.sterl.llmpeon.shared.OnPartialAiResponse.Type;
+import org.sterl.llmpeon.tool.model.SimpleMessage;
+
+class ChunkCoalescerTest {
+
+    final List<OnPartialAiResponse> chunks = new ArrayList<>();
+    final AiMonitor monitor = new AiMonitor() {
+        @Override
+        public void onChatResponse(SimpleMessage m) {}
+
+        @Override
+        public void onStreamingChunk(OnPartialAiResponse r) {
+            chunks.add(r);
+        }
+    };
+
+    @Test
+    void merges_chunks_of_one_frame_and_keeps_token_count() {
+        // GIVEN
+        var subject = new ChunkCoalescer(monitor, Instant.now(), true);
+        subject.add(Type.THINK, "hm");
+        subject.add(Type.THINK, "m");
+        subject.add(Type.ANSWER, "Hel");
+        subject.add(Type.ANSWER, "lo");
+        subject.add(Type.ANSWER, "!");
+        subject.add(Type.TOOL, "read");
+        subject.add(Type.TOOL, "read");
+
+        // WHEN
+        subject.flush();
+
+        // THEN
+        assertThat(chunks).extracting(OnPartialAiResponse::type).containsExactly(Type.THINK, Type.ANSWER, Type.TOOL);
+        assertThat(chunks).extracting(OnPartialAiResponse::value).containsExactly("hmm", "Hello!", "read");
+        assertThat(chunks).extracting(OnPartialAiResponse::tokens).containsExactly(2, 3, 2);
+    }
+
+    @Test
+    void passes_chunks_on_directly_after_close() {
+        // GIVEN
+        var subject = new ChunkCoalescer(monitor, Instant.now(), true);
+        subject.add(Type.ANSWER, "a");
+
+        // WHEN
+        subject.close();
+        subject.add(Type.ANSWER, "b");
+        subject.add(Type.END, null);
+
+        // THEN
+        assertThat(chunks).extracting(OnPartialAiResponse::value).containsExactly("a", "b", null);
+        assertThat(chunks).extracting(OnPartialAiResponse::tokens).containsExactly(1, 1, 0);
+    }
+}
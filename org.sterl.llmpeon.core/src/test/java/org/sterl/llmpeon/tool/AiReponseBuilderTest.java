@@ -0,0 +1,45 @@
+package org.sterl.llmpeon.tool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class AiReponseBuilderTest {
+
+    @Test
+    void rankingPrefersTheProjectThenTheDensity() {
+        // GIVEN
+        var other = new GrepResult("/other/A.java", 10, 1024, null);
+        var sparse = new GrepResult("/project/src/B.java", 1, 4096, null);
+        var dense = new GrepResult("/project/src/C.java", 4, 1024, null);
+
+        // WHEN
+        var ranked = List.of(other, sparse, dense).stream()
+                .sorted(GrepResult.ranking("/project"))
+                .toList();
+
+        // THEN
+        assertThat(ranked).containsExactly(dense, sparse, other);
+    }
+
+    @Test
+    void linesAreDroppedBeforeFilesToFitTheBudget() {
+        // GIVEN
+        var lines = "   1: foo\n".repeat(50);
+        var results = List.of(
+                new GrepResult("/a/A.java", 1, 100, "   1: foo\n"),
+                new GrepResult("/a/B.java", 50, 100, lines),
+                new GrepResult("/a/C.java", 1, 100, null));
+
+        // WHEN
+        var result = AiReponseBuilder.searchComplete(results, 40, null);
+
+        // THEN
+        assertThat(result).contains("/a/A.java: 1 occurrence(s)" + System.lineSeparator() + "   1: foo");
+        assertThat(result).contains("/a/B.java: 50 occurrence(s) - lines omitted, token budget reached");
+        assertThat(result).doesNotContain("/a/C.java");
+        assertThat(result).contains("1 more file(s) omitted");
+    }
+}
@@ -200,4 +200,22 @@ class DiskFileReadToolsTest {
         // THEN
         assertThat(result).isEqualTo("äüß Ö ⚡");
     }
+
+    @Test
+    void searchDiskFiles_skipsIgnoredDirectories() throws IOException {
+        // GIVEN
+        Files.createDirectories(tempDir.resolve("src"));
+        Files.createDirectories(tempDir.resolve("target/classes"));
+        Files.createDirectories(tempDir.resolve("generated"));
+        Files.writeString(tempDir.resolve(".gitignore"), "generated/\n");
+        Files.writeString(tempDir.resolve("src/Foo.java"), "class Foo {}");
+        Files.writeString(tempDir.resolve("target/classes/Foo.java"), "class Foo {}");
+        Files.writeString(tempDir.resolve("generated/Foo.java"), "class Foo {}");
+        // WHEN
+        String result = tool.diskSearchFiles("Foo.java", 0);
+        // THEN
+        assertThat(result).contains("src");
+        assertThat(result).doesNotContain("target");
+        assertThat(result).doesNotContain("generated");
+    }
 }
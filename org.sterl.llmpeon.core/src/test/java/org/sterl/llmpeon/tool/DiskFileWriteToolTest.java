@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +16,7 @@ import org.junit.jupiter.api.io.TempDir;
 import org.sterl.llmpeon.ai.AiProvider;
 import org.sterl.llmpeon.ai.LlmConfig;
 import org.sterl.llmpeon.memory.ThreadSafeMemory;
+import org.sterl.llmpeon.tool.model.FileEdit;
 import org.sterl.llmpeon.tool.tools.DiskFileWriteTool;
 
 class DiskFileWriteToolTest {
@@ -56,6 +58,33 @@ class DiskFileWriteToolTest {
         assertEquals("", Files.readString(tempDir.resolve("truncate.txt")));
     }
 
+    @Test
+    void editFiles_appliesAllEditsPerFile() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "a\nb\nc");
+        Files.writeString(tempDir.resolve("b.txt"), "x\ny");
+
+        var result = tool.diskEditFiles(List.of(
+                FileEdit.replace("a.txt", "a", "A"),
+                FileEdit.insert("b.txt", 0, "first"),
+                FileEdit.replaceLines("a.txt", 3, 3, "C")));
+
+        assertEquals("Applied 3 edit(s) to 2 file(s).", result);
+        assertEquals("A\nb\nC", Files.readString(tempDir.resolve("a.txt")));
+        assertEquals("first\nx\ny", Files.readString(tempDir.resolve("b.txt")));
+    }
+
+    @Test
+    void editFiles_invalidEditChangesNothing() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "a\nb");
+        Files.writeString(tempDir.resolve("b.txt"), "x\ny");
+
+        assertThrows(IllegalArgumentException.class, () -> tool.diskEditFiles(List.of(
+                FileEdit.replace("a.txt", "a", "A"),
+                FileEdit.replace("b.txt", "missing", "z"))));
+        assertEquals("a\nb", Files.readString(tempDir.resolve("a.txt")));
+        assertEquals("x\ny", Files.readString(tempDir.resolve("b.txt")));
+    }
+
     @Test
     void deleteDiskFile_existingFile() throws IOException {
         Files.writeString(tempDir.resolve("del.txt"), "bye");
@@ -0,0 +1,83 @@
+package org.sterl.llmpeon.tool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.memory.ThreadSafeMemory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+class RequestMessagesTest {
+
+    final RequestMessages subject = new RequestMessages();
+    final ThreadSafeMemory memory = new ThreadSafeMemory();
+    final List<ChatMessage> staticMessages = List.of(SystemMessage.from("sys1"), SystemMessage.from("sys2"));
+
+    @Test
+    void merges_system_messages_and_appends_memory() {
+        // GIVEN
+        memory.add(UserMessage.from("Hello"));
+
+        // WHEN
+        var messages = subject.messages(staticMessages, memory);
+
+        // THEN
+        assertThat(messages).hasSize(2);
+        assertThat(((SystemMessage) messages.get(0)).text()).isEqualTo("sys1\nsys2\n");
+        assertThat(messages.get(1)).isEqualTo(UserMessage.from("Hello"));
+    }
+
+    @Test
+    void older_snapshots_are_not_changed_by_appends() {
+        // GIVEN
+        memory.add(UserMessage.from("Hello"));
+        var first = subject.messages(staticMessages, memory);
+
+        // WHEN
+        memory.add(AiMessage.from("Hi"));
+        var second = subject.messages(staticMessages, memory);
+
+        // THEN
+        assertThat(first).hasSize(2);
+        assertThat(second).hasSize(3);
+        assertThat(second.get(0)).isSameAs(first.get(0));
+        assertThat(second.get(2)).isEqualTo(AiMessage.from("Hi"));
+    }
+
+    @Test
+    void rebuilds_when_memory_is_rewritten() {
+        // GIVEN
+        memory.add(UserMessage.from("Hello"));
+        memory.add(AiMessage.from("Hi"));
+        var first = subject.messages(staticMessages, memory);
+
+        // WHEN
+        memory.replaceAll(List.of(UserMessage.from("compacted")));
+        var second = subject.messages(staticMessages, memory);
+
+        // THEN
+        assertThat(first).hasSize(3);
+        assertThat(second).hasSize(2);
+        assertThat(second.get(1)).isEqualTo(UserMessage.from("compacted"));
+    }
+
+    @Test
+    void rebuilds_when_user_messages_are_merged() {
+        // GIVEN
+        memory.add(UserMessage.from("Hello"));
+        subject.messages(staticMessages, memory);
+
+        // WHEN
+        memory.add(UserMessage.from("again"));
+        var messages = subject.messages(staticMessages, memory);
+
+        // THEN
+        assertThat(messages).hasSize(2);
+        assertThat(((UserMessage) messages.get(1)).contents()).hasSize(2);
+    }
+}
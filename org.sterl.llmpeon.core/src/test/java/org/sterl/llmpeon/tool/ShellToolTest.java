@@ -62,6 +62,21 @@ class ShellToolTest {
         assertTrue(result.contains("line 100"));
     }
 
+    @Test
+    void runOsCommand_keepsFirstAndLastLines() {
+        String os = System.getProperty("os.name").toLowerCase();
+        String command = os.contains("win")
+                ? "for /L %i in (1,1,1000) do @echo line %i"
+                : "for i in $(seq 1 1000); do echo line $i; done";
+
+        String result = tool.shellRunCommand(command, tempDir.toString(), null, 20);
+        assertTrue(result.startsWith("line 1" + System.lineSeparator() + "line 2" + System.lineSeparator()
+                + "line 3" + System.lineSeparator() + "line 4" + System.lineSeparator() + "... (980 lines skipped)"),
+                "Expected the first 4 lines, got: " + result);
+        assertTrue(result.endsWith("line 1000"), "Expected the last line, got: " + result);
+        assertFalse(result.contains("line 5" + System.lineSeparator()));
+    }
+
     @Test
     void runOsCommand_tailLinesAll() {
         String os = System.getProperty("os.name").toLowerCase();
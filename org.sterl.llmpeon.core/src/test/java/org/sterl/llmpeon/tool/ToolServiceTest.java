@@ -14,6 +14,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -28,10 +30,13 @@ import org.sterl.llmpeon.shared.AiMonitor;
 import org.sterl.llmpeon.tool.model.SimpleMessage;
 import org.sterl.llmpeon.tool.tools.WebFetchTool;
 
+import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
@@ -48,6 +53,37 @@ class ToolServiceTest {
         assertTrue(tool.get() instanceof WebFetchTool);
     }
 
+    @Test
+    void tool_specs_are_sorted_and_cached_until_registry_changes() {
+        // GIVEN
+        var req = ToolLoopRequest.builder()
+                .memory(new ThreadSafeMemory())
+                .chatModel(new ConfiguredChatModel(LlmConfig.newOpenAi("foo"), mock(StreamingChatModel.class)))
+                .build();
+
+        // WHEN
+        var first = subject.toolSpecifications(req);
+        var second = subject.toolSpecifications(req);
+
+        // THEN — same instance on every iteration, ordered by name
+        assertThat(second).isSameAs(first);
+        assertThat(first).extracting(ToolSpecification::name).isSorted();
+
+        // WHEN — the registry changes
+        subject.replaceTool(new BoomTool());
+
+        // THEN — rebuilt with the new tool
+        var third = subject.toolSpecifications(req);
+        assertThat(third).isNotSameAs(first);
+        assertThat(third).extracting(ToolSpecification::name).contains("boom").isSorted();
+
+        // WHEN — the tool is removed again
+        subject.removeTool(BoomTool.class);
+
+        // THEN
+        assertThat(subject.toolSpecifications(req)).isEqualTo(first);
+    }
+
     @Test
     void testLoopEndsWithTextMessageOnly() {
         // GIVEN
@@ -220,6 +256,103 @@ class ToolServiceTest {
         assertThat(round.get()).isEqualTo(1);
     }
 
+    /** A read-only tool which only returns once all expected calls run at the same time. */
+    static class BarrierTool implements SmartTool {
+        final CountDownLatch running;
+        BarrierTool(int calls) { running = new CountDownLatch(calls); }
+        @Tool("waits for all other calls")
+        public String barrier(@P(name = "id") String id) throws InterruptedException {
+            running.countDown();
+            if (!running.await(5, TimeUnit.SECONDS)) return "sequential-" + id;
+            return "parallel-" + id;
+        }
+        @Override public boolean isParallelSafe() { return true; }
+        @Override public void withToolRequest(ToolLoopRequest request) {}
+    }
+
+    /** A read-only tool which sleeps until it is interrupted. */
+    static class SleepTool implements SmartTool {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch interrupted = new CountDownLatch(2);
+        @Tool("sleeps")
+        public String sleep(@P(name = "id") String id) {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "slept";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new CancellationException("interrupted");
+            }
+        }
+        @Override public boolean isParallelSafe() { return true; }
+        @Override public void withToolRequest(ToolLoopRequest request) {}
+    }
+
+    private static ToolExecutionRequest call(String tool, String id) {
+        return ToolExecutionRequest.builder().id(id).name(tool).arguments("{\"id\":\"" + id + "\"}").build();
+    }
+
+    @Test
+    @Timeout(10)
+    void parallel_safe_tools_run_concurrently_and_keep_request_order() {
+        // GIVEN — round 1: three read-only calls; round 2: the answer
+        subject.replaceTool(new BarrierTool(3));
+        var round = new AtomicInteger();
+        var cm = mockWithHandler(req -> {
+            if (round.incrementAndGet() == 1) {
+                return ChatResponse.builder().aiMessage(AiMessage.builder()
+                        .toolExecutionRequests(List.of(call("barrier", "1"), call("barrier", "2"), call("barrier", "3")))
+                        .build()).build();
+            }
+            return ChatResponse.builder().aiMessage(AiMessage.from("done")).build();
+        });
+        var memory = new ThreadSafeMemory();
+        memory.add(UserMessage.from("go"));
+
+        // WHEN
+        subject.executeLoop(ToolLoopRequest.builder()
+                .memory(memory)
+                .chatModel(new ConfiguredChatModel(LlmConfig.newOpenAi("foo"), cm))
+                .build());
+
+        // THEN — all three ran at the same time, results in request order
+        var results = memory.getCopy().stream()
+                .filter(ToolExecutionResultMessage.class::isInstance)
+                .map(ToolExecutionResultMessage.class::cast)
+                .toList();
+        assertThat(results).extracting(ToolExecutionResultMessage::id).containsExactly("1", "2", "3");
+        assertThat(results).extracting(ToolExecutionResultMessage::text)
+            .containsExactly("parallel-1", "parallel-2", "parallel-3");
+    }
+
+    @Test
+    @Timeout(10)
+    void cancel_interrupts_all_parallel_tool_calls() throws InterruptedException {
+        // GIVEN — two sleeping read-only calls, canceled as soon as both are running
+        var sleep = new SleepTool();
+        subject.replaceTool(sleep);
+        var cm = mockWithHandler(req -> ChatResponse.builder().aiMessage(AiMessage.builder()
+                .toolExecutionRequests(List.of(call("sleep", "1"), call("sleep", "2")))
+                .build()).build());
+        var monitor = new AiMonitor() {
+            @Override public void onChatResponse(SimpleMessage m) {}
+            @Override public boolean isCanceled() { return sleep.started.getCount() == 0; }
+        };
+        var memory = new ThreadSafeMemory();
+        memory.add(UserMessage.from("go"));
+
+        // WHEN + THEN
+        assertThatThrownBy(() -> subject.executeLoop(ToolLoopRequest.builder()
+                .memory(memory)
+                .chatModel(new ConfiguredChatModel(LlmConfig.newOpenAi("foo"), cm))
+                .monitor(monitor)
+                .build()))
+                .isInstanceOf(CancellationException.class);
+        // AND — both in-flight calls got interrupted
+        assertThat(sleep.interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
     public StreamingChatModel mockWithHandler(Function<ChatRequest, ChatResponse> fn) {
         var cm = mock(StreamingChatModel.class);
         doAnswer(inv -> {
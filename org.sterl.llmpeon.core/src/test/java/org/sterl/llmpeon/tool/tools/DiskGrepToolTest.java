@@ -0,0 +1,54 @@
+package org.sterl.llmpeon.tool.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskGrepToolTest {
+
+    @TempDir
+    Path tempDir;
+
+    DiskGrepTool subject;
+
+    @BeforeEach
+    void setUp() {
+        subject = new DiskGrepTool(tempDir);
+    }
+
+    @Test
+    void indexSkipsFilesWhichCannotContainTheQuery() throws IOException {
+        // GIVEN both files are indexed by a first grep
+        var foo = Files.writeString(tempDir.resolve("Foo.java"), "class FooService {}");
+        Files.writeString(tempDir.resolve("Bar.java"), "class BarService {}");
+        assertThat(subject.diskGrepFiles("Service", null, null)).contains("Foo.java", "Bar.java");
+        // AND Foo.java changes but keeps its size and time, its index entry stays current
+        var modified = Files.getLastModifiedTime(foo);
+        Files.writeString(foo, "class BarService {}");
+        Files.setLastModifiedTime(foo, modified);
+
+        // WHEN
+        var result = subject.diskGrepFiles("BarService", null, null);
+
+        // THEN Foo.java was skipped by its index entry, without reading it
+        assertThat(result).contains("Bar.java").doesNotContain("Foo.java");
+    }
+
+    @Test
+    void indexDoesNotHideMatchesOfIndexedFiles() throws IOException {
+        // GIVEN
+        Files.writeString(tempDir.resolve("road.txt"), "δρόμος xabc");
+        subject.diskGrepFiles("anything", null, null);
+
+        // WHEN / THEN
+        assertThat(subject.diskGrepFiles("ΔΡΌΜΟΣ", null, null)).contains("road.txt");
+        assertThat(subject.diskGrepFiles("[a-z&&[^b]]abc+", null, null)).contains("road.txt");
+        assertThat(subject.diskGrepFiles("[\\]x]abc+", null, null)).contains("road.txt");
+    }
+}
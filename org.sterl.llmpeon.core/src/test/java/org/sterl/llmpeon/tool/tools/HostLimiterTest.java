@@ -0,0 +1,75 @@
+package org.sterl.llmpeon.tool.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+class HostLimiterTest {
+
+    HostLimiter subject = new HostLimiter(2);
+    List<String> started = new ArrayList<>();
+    List<CompletableFuture<String>> tasks = new ArrayList<>();
+
+    private CompletableFuture<String> submit(String host, String name) {
+        return subject.submit(host, () -> {
+            started.add(name);
+            var task = new CompletableFuture<String>();
+            tasks.add(task);
+            return task;
+        });
+    }
+
+    @Test
+    void limitsTasksPerHost() {
+        // GIVEN
+        var a1 = submit("a", "a1");
+        submit("a", "a2");
+        submit("a", "a3");
+        submit("b", "b1");
+
+        // THEN a3 waits
+        assertThat(started).containsExactly("a1", "a2", "b1");
+
+        // WHEN
+        tasks.get(0).complete("done");
+
+        // THEN
+        assertThat(a1.join()).isEqualTo("done");
+        assertThat(started).containsExactly("a1", "a2", "b1", "a3");
+    }
+
+    @Test
+    void failedTaskReleasesItsSlot() {
+        // GIVEN
+        var a1 = submit("a", "a1");
+        submit("a", "a2");
+        submit("a", "a3");
+
+        // WHEN
+        tasks.get(0).completeExceptionally(new IllegalStateException("boom"));
+
+        // THEN
+        assertThat(a1.isCompletedExceptionally()).isTrue();
+        assertThat(started).containsExactly("a1", "a2", "a3");
+    }
+
+    @Test
+    void cancelledWaitingTaskIsNotStarted() {
+        // GIVEN
+        submit("a", "a1");
+        submit("a", "a2");
+        var a3 = submit("a", "a3");
+        submit("a", "a4");
+
+        // WHEN
+        a3.cancel(true);
+        tasks.get(0).complete("done");
+
+        // THEN a3 is skipped, a4 gets the slot
+        assertThat(started).containsExactly("a1", "a2", "a4");
+    }
+}
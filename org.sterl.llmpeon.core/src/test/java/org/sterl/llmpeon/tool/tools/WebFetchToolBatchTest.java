@@ -0,0 +1,105 @@
+package org.sterl.llmpeon.tool.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+class WebFetchToolBatchTest {
+
+    HttpServer server;
+    String base;
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+
+    WebFetchTool subject = new WebFetchTool(new WebPageCache(null, Clock.systemUTC()));
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/page", exchange -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            var path = exchange.getRequestURI().getPath();
+            var body = path.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(path.endsWith("missing") ? 404 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void pagesAreReturnedInOrder() throws Exception {
+        // GIVEN
+        var urls = List.of(base + "/page/1", base + "/page/2", base + "/page/3");
+
+        // WHEN
+        var result = subject.webFetchAllAsMarkdown(urls);
+
+        // THEN
+        assertThat(result).startsWith("## 1. " + base + "/page/1\n\n/page/1\n\n## 2. ");
+        assertThat(result.indexOf("/page/2\n\n/page/2")).isGreaterThan(0);
+        assertThat(result).endsWith("## 3. " + base + "/page/3\n\n/page/3");
+    }
+
+    @Test
+    void requestsPerHostAreLimited() throws Exception {
+        // GIVEN
+        var urls = Collections.nCopies(WebFetchTool.MAX_URLS, base + "/page/same");
+
+        // WHEN
+        subject.webFetchAllAsMarkdown(urls);
+
+        // THEN concurrent, but not more than allowed
+        assertThat(maxActive.get()).isGreaterThan(1);
+        assertThat(maxActive.get()).isLessThanOrEqualTo(WebFetchTool.MAX_PER_HOST);
+    }
+
+    @Test
+    void failedUrlsDoNotFailTheBatch() throws Exception {
+        // WHEN
+        var result = subject.webFetchAllAsMarkdown(List.of(
+                base + "/page/missing", "not a url", base + "/page/ok"));
+
+        // THEN
+        assertThat(result).contains("## 1. " + base + "/page/missing\n\nFailed to fetch " + base
+                + "/page/missing. HTTP status code: 404");
+        assertThat(result).contains("## 2. not a url\n\nFailed to fetch not a url: ");
+        assertThat(result).endsWith("## 3. " + base + "/page/ok\n\n/page/ok");
+    }
+
+    @Test
+    void tooManyUrlsAreRejected() {
+        var urls = Collections.nCopies(WebFetchTool.MAX_URLS + 1, base + "/page/1");
+
+        assertThatThrownBy(() -> subject.webFetchAllAsMarkdown(urls))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("At most " + WebFetchTool.MAX_URLS + " URLs");
+    }
+}
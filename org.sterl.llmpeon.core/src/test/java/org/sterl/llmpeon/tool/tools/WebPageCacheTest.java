@@ -0,0 +1,192 @@
+package org.sterl.llmpeon.tool.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+class WebPageCacheTest {
+
+    @TempDir
+    Path dir;
+
+    HttpServer server;
+    String url;
+    /** Headers of the next 200 response. */
+    Map<String, String> headers = Map.of();
+    /** The If-None-Match header of each request, "" if absent. */
+    List<String> conditions = new ArrayList<>();
+    final AtomicInteger served = new AtomicInteger();
+    final MutableClock clock = new MutableClock();
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/page", exchange -> {
+            var condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+            conditions.add(condition == null ? "" : condition);
+            headers.forEach(exchange.getResponseHeaders()::add);
+            if ("\"v1\"".equals(condition)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                var body = ("<h1>Page " + served.incrementAndGet() + "</h1>").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/page";
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private WebFetchTool newTool() {
+        return new WebFetchTool(new WebPageCache(dir, clock));
+    }
+
+    @Test
+    void freshPageIsNotFetchedAgain() throws Exception {
+        // GIVEN
+        headers = Map.of("Cache-Control", "max-age=60");
+        var subject = newTool();
+        var first = subject.webFetchAsMarkdown(url);
+
+        // WHEN
+        clock.advance(59_000);
+        var second = subject.webFetchAsMarkdown(url);
+
+        // THEN
+        assertThat(first).contains("Page 1");
+        assertThat(second).isEqualTo(first);
+        assertThat(served.get()).isEqualTo(1);
+    }
+
+    @Test
+    void stalePageIsRevalidated() throws Exception {
+        // GIVEN
+        headers = Map.of("Cache-Control", "max-age=60", "ETag", "\"v1\"");
+        var subject = newTool();
+        var first = subject.webFetchAsMarkdown(url);
+
+        // WHEN
+        clock.advance(61_000);
+        var second = subject.webFetchAsMarkdown(url);
+        var third = subject.webFetchAsMarkdown(url);
+
+        // THEN 304, the cached page is fresh again
+        assertThat(second).isEqualTo(first);
+        assertThat(third).isEqualTo(first);
+        assertThat(conditions).containsExactly("", "\"v1\"");
+        assertThat(served.get()).isEqualTo(1);
+    }
+
+    @Test
+    void pageIsReadFromDisk() throws Exception {
+        // GIVEN
+        headers = Map.of("Cache-Control", "max-age=60");
+        var first = newTool().webFetchAsMarkdown(url);
+
+        // WHEN a new cache on the same directory
+        var second = newTool().webFetchAsMarkdown(url);
+
+        // THEN
+        assertThat(second).isEqualTo(first);
+        assertThat(served.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cacheOfConfigDirIsStoredBelowIt() throws Exception {
+        // GIVEN
+        headers = Map.of("Cache-Control", "max-age=60");
+        var cache = WebPageCache.of(dir);
+
+        // WHEN
+        new WebFetchTool(cache).webFetchAsMarkdown(url);
+
+        // THEN
+        try (var files = Files.list(dir.resolve("cache").resolve("web"))) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+        assertThat(WebPageCache.of(dir)).isSameAs(cache);
+        // AND without config dir only the memory-only cache is used
+        assertThat(WebPageCache.of(null)).isSameAs(WebPageCache.shared());
+    }
+
+    @Test
+    void noStoreIsNotCached() throws Exception {
+        // GIVEN
+        headers = Map.of("Cache-Control", "no-store", "ETag", "\"v1\"");
+        var subject = newTool();
+
+        // WHEN
+        subject.webFetchAsMarkdown(url);
+        var second = subject.webFetchAsMarkdown(url);
+
+        // THEN
+        assertThat(second).contains("Page 2");
+        assertThat(conditions).containsExactly("", "");
+    }
+
+    @Test
+    void pageWithoutFreshnessOrValidatorIsNotCached() throws Exception {
+        // GIVEN no cache headers at all
+        var subject = newTool();
+
+        // WHEN
+        subject.webFetchAsMarkdown(url);
+        subject.webFetchAsMarkdown(url);
+
+        // THEN
+        assertThat(served.get()).isEqualTo(2);
+    }
+
+    static class MutableClock extends Clock {
+        private long millis = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.sterl.llmpeon.tool.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.sterl.llmpeon.tool.tools.WebPageConverter.Kind;
+
+class WebPageConverterTest {
+
+    WebPageConverter subject = new WebPageConverter();
+
+    private String convert(String html) throws Exception {
+        var bytes = html.getBytes(StandardCharsets.UTF_8);
+        return subject.convert(bytes, bytes.length, Kind.HTML, StandardCharsets.UTF_8, "https://example.com/");
+    }
+
+    @Test
+    void kindByContentType() {
+        assertThat(WebPageConverter.kindOf("text/html; charset=utf-8")).isEqualTo(Kind.HTML);
+        assertThat(WebPageConverter.kindOf("application/xhtml+xml")).isEqualTo(Kind.HTML);
+        assertThat(WebPageConverter.kindOf("text/plain")).isEqualTo(Kind.TEXT);
+        assertThat(WebPageConverter.kindOf("application/json")).isEqualTo(Kind.TEXT);
+        assertThat(WebPageConverter.kindOf("application/vnd.api+json")).isEqualTo(Kind.TEXT);
+        assertThat(WebPageConverter.kindOf("application/pdf")).isEqualTo(Kind.BINARY);
+        assertThat(WebPageConverter.kindOf("image/png")).isEqualTo(Kind.BINARY);
+        assertThat(WebPageConverter.kindOf(null)).isNull();
+    }
+
+    @Test
+    void kindByContent() {
+        var html = "\n  <!DOCTYPE html><html>".getBytes(StandardCharsets.UTF_8);
+        var text = "{\"a\": 1}".getBytes(StandardCharsets.UTF_8);
+        var binary = new byte[] {'P', 'K', 3, 4, 0, 0};
+
+        assertThat(WebPageConverter.sniff(html, html.length)).isEqualTo(Kind.HTML);
+        assertThat(WebPageConverter.sniff(text, text.length)).isEqualTo(Kind.TEXT);
+        assertThat(WebPageConverter.sniff(binary, binary.length)).isEqualTo(Kind.BINARY);
+    }
+
+    @Test
+    void htmlIsReducedToMainContent() throws Exception {
+        // GIVEN
+        var html = """
+                <html><head><style>body { color: red }</style></head><body>
+                <header><nav><a href="/">Home</a></nav></header>
+                <main><h1>Title</h1><p>The content.</p><script>track()</script></main>
+                <footer>Imprint</footer>
+                </body></html>""";
+
+        // WHEN
+        var result = convert(html);
+
+        // THEN
+        assertThat(result).contains("Title").contains("The content.");
+        assertThat(result).doesNotContain("Home").doesNotContain("Imprint")
+            .doesNotContain("track()").doesNotContain("color");
+    }
+
+    @Test
+    void pageWithoutMainDropsHeaderAndFooter() throws Exception {
+        var result = convert("<body><header>Logo</header><p>Text</p><footer>Imprint</footer></body>");
+
+        assertThat(result).contains("Text").doesNotContain("Logo").doesNotContain("Imprint");
+    }
+
+    @Test
+    void textIsReturnedAsIs() throws Exception {
+        var json = "{\"name\": \"peon\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(subject.convert(json, json.length, Kind.TEXT, null, "https://example.com/a.json"))
+            .isEqualTo("{\"name\": \"peon\"}");
+    }
+
+    @Test
+    void truncatesToTokenBudget() {
+        // GIVEN 100 lines, about 430 tokens
+        var text = "line of text\n".repeat(100);
+
+        // WHEN
+        var result = WebPageConverter.truncate(text, 100);
+
+        // THEN cut at a line end
+        assertThat(result).startsWith("line of text\n".repeat(22) + "line of text\n\n... truncated");
+        assertThat(WebPageConverter.truncate("short", 100)).isEqualTo("short");
+    }
+}
@@ -0,0 +1,82 @@
+package org.sterl.llmpeon.parts.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.sterl.llmpeon.shared.AiMonitor.AiFileUpdate;
+
+/**
+ * The background diff of file updates: cache, cut after {@link DiffWorker#MAX_LINES} and the diff
+ * thread. No SWT — runs headless.
+ */
+public class DiffWorkerTest {
+
+    private static String lines(String prefix, int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> prefix + i).collect(Collectors.joining("\n"));
+    }
+
+    @Test
+    public void same_contents_return_the_cached_diff() throws Exception {
+        try (var subject = new DiffWorker()) {
+            // GIVEN
+            var first = subject.submit(new AiFileUpdate("Foo.java", "a\nb\nc", "a\nB\nc")).get(5, TimeUnit.SECONDS);
+
+            // WHEN equal contents, but other strings
+            var second = subject.submit(new AiFileUpdate("Foo.java", new String("a\nb\nc"), new String("a\nB\nc")))
+                    .get(5, TimeUnit.SECONDS);
+
+            // THEN
+            assertSame(first, second);
+            assertTrue(first.diff(), first.diff().contains("+B"));
+            assertEquals(0, first.omittedLines());
+        }
+    }
+
+    @Test
+    public void long_diff_is_cut_and_counts_the_omitted_lines() throws Exception {
+        try (var subject = new DiffWorker()) {
+            // WHEN every line of a file longer than MAX_LINES changes
+            var diff = subject.submit(new AiFileUpdate("Big.txt", lines("old ", DiffWorker.MAX_LINES),
+                    lines("new ", DiffWorker.MAX_LINES))).get(30, TimeUnit.SECONDS);
+
+            // THEN the view shows the omitted lines as marker below the diff
+            assertEquals(DiffWorker.MAX_LINES, diff.diff().split("\n").length);
+            var full = SimpleDiff.unifiedDiff("Big.txt", lines("old ", DiffWorker.MAX_LINES), lines("new ", DiffWorker.MAX_LINES));
+            assertEquals(full.split("\n").length - DiffWorker.MAX_LINES, diff.omittedLines());
+        }
+    }
+
+    @Test
+    public void diff_is_built_off_the_calling_thread() throws Exception {
+        // GIVEN the diff thread is busy
+        var busy = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-diff"));
+        executor.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try (var subject = new DiffWorker(executor)) {
+            // WHEN
+            var diff = subject.submit(new AiFileUpdate("Foo.java", "a", "b"));
+            var thread = diff.thenApply(d -> Thread.currentThread().getName());
+
+            // THEN submit returned without building the diff
+            assertFalse(diff.isDone());
+            busy.countDown();
+            assertEquals("test-diff", thread.get(5, TimeUnit.SECONDS));
+            assertTrue(diff.get().diff().contains("+b"));
+        }
+    }
+}
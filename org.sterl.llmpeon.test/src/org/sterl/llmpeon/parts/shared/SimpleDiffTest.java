@@ -0,0 +1,53 @@
+package org.sterl.llmpeon.parts.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Hunk numbering and cutting of the unified diff. No SWT — runs headless.
+ */
+public class SimpleDiffTest {
+
+    private static String lines(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> "l" + i).collect(Collectors.joining("\n"));
+    }
+
+    @Test
+    public void later_hunks_are_numbered_after_the_lines_added_before() {
+        // GIVEN a line added after l2 and l18 changed
+        var oldText = lines(20);
+        var newText = oldText.replace("l2\n", "l2\nadded\n").replace("l18\n", "changed\n");
+
+        // WHEN
+        var diff = SimpleDiff.unifiedDiff("Foo.txt", oldText, newText);
+
+        // THEN
+        assertTrue(diff, diff.startsWith("--- a/Foo.txt\n+++ b/Foo.txt\n@@ -1,5 +1,6 @@\n"));
+        assertTrue(diff, diff.contains("\n@@ -15,6 +16,6 @@\n"));
+    }
+
+    @Test
+    public void truncate_cuts_at_max_lines_and_recounts_the_cut_hunk() {
+        // GIVEN
+        var diff = SimpleDiff.unifiedDiff("Foo.txt", lines(20), lines(20).replace("l2\n", "l2\nadded\n"));
+
+        // WHEN
+        var cut = SimpleDiff.truncate(diff, 6);
+
+        // THEN header, hunk header and the first lines, counted anew
+        assertEquals("--- a/Foo.txt\n+++ b/Foo.txt\n@@ -1,2 +1,3 @@\n l1\n l2\n+added\n", cut);
+    }
+
+    @Test
+    public void short_diff_is_not_truncated() {
+        var diff = SimpleDiff.unifiedDiff("Foo.txt", "a", "b");
+
+        assertSame(diff, SimpleDiff.truncate(diff, 10));
+    }
+}
@@ -72,6 +72,17 @@ public class AiAgentStatusModelTest {
         assertTrue("the busy Da Mek glows", entries.get(2).working());
     }
 
+    @Test
+    public void member_with_history_still_loading_shows_no_token_count() {
+        // GIVEN Da Thinka's history is still read in the background
+        var entries = AiAgentStatusModel.build(List.of(
+                row("Da Boss", 12_000, false),
+                row("Da Thinka", AiAgentStatusModel.LOADING, false)));
+
+        assertEquals(label("Da Boss", 12_000), entries.get(0).text());
+        assertEquals("Da Thinka (…)", entries.get(1).text());
+    }
+
     @Test
     public void team_of_just_da_boss_glows_on_own_work() {
         // GIVEN a headless Jon without wired slaves — team is only himself
@@ -1,5 +1,6 @@
 package org.sterl.llmpeon.context;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.function.Supplier;
 
@@ -9,6 +10,7 @@ import org.jspecify.annotations.Nullable;
 import org.sterl.llmpeon.parts.shared.IoUtils;
 import org.sterl.llmpeon.parts.shared.JdtUtil;
 import org.sterl.llmpeon.shared.FileLines;
+import org.sterl.llmpeon.shared.FilePager;
 
 /**
  * Dynamically loads the first found file into the context.
@@ -46,6 +48,14 @@ public class EclipseFileContextItem implements ContextItem {
     public String render() {
         var file = exists();
         if (file == null) return null;
+        var location = file.getLocation();
+        if (location != null && FilePager.isLarge(location.toFile().toPath())) {
+            try {
+                return FilePager.summary(location.toFile().toPath(), IoUtils.getCharset(file));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read " + JdtUtil.pathOf(file), e);
+            }
+        }
         return FileLines.format(IoUtils.readString(file), 1);
     }
 
@@ -42,7 +42,7 @@ import org.sterl.llmpeon.parts.config.VoicePreferenceInitializer;
 import org.sterl.llmpeon.parts.log.EclipseSlf4jLogger;
 import org.sterl.llmpeon.parts.monitor.EclipseAiMonitor;
 import org.sterl.llmpeon.parts.shared.EclipseUtil;
-import org.sterl.llmpeon.parts.shared.SimpleDiff;
+import org.sterl.llmpeon.parts.shared.DiffWorker;
 import org.sterl.llmpeon.parts.tools.AskUserTool;
 import org.sterl.llmpeon.parts.widget.ActionsBarWidget;
 import org.sterl.llmpeon.parts.widget.ChatMarkdownWidget;
@@ -87,6 +87,7 @@ public class AIChatView implements EclipseAiMonitor {
 
     private final AtomicReference<IProgressMonitor> monitorRef = new AtomicReference<>(new NullProgressMonitor());
     private final VoiceInputService voiceService = new VoiceInputService();
+    private final DiffWorker diffWorker = new DiffWorker();
 
     private volatile boolean recording = false;
 
@@ -189,6 +190,7 @@ public class AIChatView implements EclipseAiMonitor {
 
     private void onClear() {
         aiService.clear();
+        diffWorker.cancel();
         chatHistory.clear();
         actionsBar.updateCompact(0, aiService.getConfig().getAutoCompactAfter());
     }
@@ -197,8 +199,9 @@ public class AIChatView implements EclipseAiMonitor {
     public void dispose() {
         if (questionWidget != null) questionWidget.cancelSilently();
         InstanceScope.INSTANCE.getNode(PeonConstants.PLUGIN_ID).removePreferenceChangeListener(prefListener);
-        aiService.disconnectMcp();
+        aiService.close();
         voiceService.close();
+        diffWorker.close();
     }
 
     @Focus
@@ -313,8 +316,20 @@ public class AIChatView implements EclipseAiMonitor {
     @Override
     public void onFileUpdate(AiFileUpdate update) {
         if (parent.isDisposed()) return;
-        var diff = SimpleDiff.unifiedDiff(update.file(), update.oldContent(), update.newContent());
-        EclipseUtil.runInUiThread(parent, () -> chatHistory.showDiff(diff));
+        diffWorker.submit(update).whenComplete((d, e) -> {
+            if (e != null) {
+                if (!(e instanceof CancellationException)) LOG.warn("Failed to diff " + update.file(), e);
+                return;
+            }
+            if (d.isEmpty()) return;
+            EclipseUtil.runInUiThread(parent, () -> {
+                chatHistory.showDiff(d.diff());
+                if (d.omittedLines() > 0) {
+                    chatHistory.appendMessage(new SimpleMessage(Type.TOOL,
+                            "Diff of " + d.file() + " cut, " + d.omittedLines() + " more lines not shown."));
+                }
+            });
+        });
     }
 
     @Override
@@ -342,14 +357,24 @@ public class AIChatView implements EclipseAiMonitor {
             aiService.getUserContext().getSelectedFile()
         );
 
-        var ai = aiService.getActiveAgent();
-        actionsBar.updateCompact(ai.getMemory().getTotalTokenUsed(), aiService.getConfig().getAutoCompactAfter());
+        var memory = aiService.getActiveAgent().getMemory();
+        var tokens = memory.isLoaded() ? memory.getTotalTokenUsed() : 0;
+        actionsBar.updateCompact(tokens, aiService.getConfig().getAutoCompactAfter());
     }
 
     private void refreshChat() {
         chatHistory.clear();
         refreshStatusLine();
-        aiService.getActiveAgent().getMemory().forEach(chatHistory::appendMessage);
+        var memory = aiService.getActiveAgent().getMemory();
+        if (!memory.isLoaded()) {
+            // the history is still read in the background, show it once it is there
+            memory.whenLoaded(() -> EclipseUtil.runInUiThread(parent, () -> {
+                refreshChat();
+                headerBar.refreshRoster();
+            }));
+            return;
+        }
+        memory.forEach(chatHistory::appendMessage);
     }
 
     // -------------------------------------------------------------------------
@@ -32,6 +32,7 @@ import org.sterl.llmpeon.parts.config.McpConnectionService;
 import org.sterl.llmpeon.parts.shared.EclipseUtil;
 import org.sterl.llmpeon.parts.shared.IoUtils;
 import org.sterl.llmpeon.parts.shared.JdtUtil;
+import org.sterl.llmpeon.parts.shared.WorkspaceFileIndex;
 import org.sterl.llmpeon.parts.tools.AskUserTool;
 import org.sterl.llmpeon.parts.tools.EclipseBuildTool;
 import org.sterl.llmpeon.parts.tools.EclipseCodeNavigationTool;
@@ -45,6 +46,7 @@ import org.sterl.llmpeon.parts.tools.memory.WorkspaceMemoryTool;
 import org.sterl.llmpeon.scaffold.AiScaffoldAgent;
 import org.sterl.llmpeon.scaffold.ReloadConfigTool;
 import org.sterl.llmpeon.shared.AiMonitor;
+import org.sterl.llmpeon.shared.IgnoreRules;
 import org.sterl.llmpeon.shared.StringUtil;
 import org.sterl.llmpeon.skill.SkillService;
 import org.sterl.llmpeon.tool.ToolService;
@@ -126,7 +128,7 @@ public class PeonAiService {
         var config              = configuredModel.getConfig();
         this.configuredModel    = configuredModel;
         var rootPath            = EclipseUtil.workspacePath();
-        sharedToolService       = new ToolService();
+        sharedToolService       = new ToolService(true, config.getConfigDir());
         skillService            = new SkillService();
         commandService          = new CommandService();
         
@@ -144,11 +146,16 @@ public class PeonAiService {
         diskFileWriteTool = new DiskFileWriteTool(rootPath);
         diskFileReadTool  = new DiskFileReadTool(rootPath);
         diskGrepTool      = new DiskGrepTool(rootPath);
+        var defaultIgnores = IgnoreRules.loadDefaults(config.getConfigDir());
+        diskFileReadTool.setDefaultIgnores(defaultIgnores);
+        diskGrepTool.setDefaultIgnores(defaultIgnores);
+        diskGrepTool.setIndexDir(config.getConfigDir().resolve(LlmConfig.INDEX_DIRECTORY));
 
 
         sharedToolService.addTool(workspaceMemoryTool);
         sharedToolService.addTool(new EclipseBuildTool());
         eclipseGrepTool = new EclipseGrepTool();
+        eclipseGrepTool.setIndexDir(config.getConfigDir().resolve(LlmConfig.INDEX_DIRECTORY));
         sharedToolService.addTool(eclipseGrepTool);
         sharedToolService.addTool(new EclipseRunTestTool());
         sharedToolService.addTool(new EclipseCodeNavigationTool());
@@ -281,6 +288,7 @@ public class PeonAiService {
         var projectPath = JdtUtil.pathOf(project);
 
         workspaceWriteFilesTool.setCurrentProject(project);
+        eclipseGrepTool.setCurrentProject(project);
 
         // disk tools work with the disk path not eclipse path
         projectPath = JdtUtil.diskPathOf(project);
@@ -345,6 +353,13 @@ public class PeonAiService {
         mcpConnectionService.disconnect();
     }
 
+    /** Disconnects MCP and stops the workspace listeners, the service is not used afterwards. */
+    public void close() {
+        eclipseGrepTool.close();
+        WorkspaceFileIndex.close();
+        disconnectMcp();
+    }
+
     // -------------------------------------------------------------------------
     // Accessors — all non-null after construction
     // -------------------------------------------------------------------------
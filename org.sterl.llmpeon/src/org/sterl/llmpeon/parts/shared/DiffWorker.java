@@ -0,0 +1,110 @@
+package org.sterl.llmpeon.parts.shared;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.sterl.llmpeon.shared.AiMonitor.AiFileUpdate;
+
+/**
+ * Builds the diffs of file updates on a background thread, in the order of the updates — a burst of
+ * edits neither blocks the tool loop nor the UI thread. Diffs are cached by file and content hashes
+ * and cut after {@value #MAX_LINES} lines.
+ */
+public class DiffWorker implements AutoCloseable {
+
+    public static final int MAX_LINES = 2_000;
+    private static final int MAX_CACHED = 64;
+
+    /**
+     * @param omittedLines diff lines cut off, 0 if complete
+     */
+    public record Diff(String file, String diff, int omittedLines) {
+        public boolean isEmpty() {
+            return diff.isEmpty();
+        }
+    }
+
+    private record Key(String file, long oldHash, long newHash) {}
+
+    private final ExecutorService executor;
+    private final Set<CompletableFuture<Diff>> pending = ConcurrentHashMap.newKeySet();
+    /** Guarded by itself, least recently used first. */
+    private final Map<Key, Diff> cache = new LinkedHashMap<>(MAX_CACHED, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Diff> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    public DiffWorker() {
+        this(Executors.newSingleThreadExecutor(Thread.ofVirtual().name("peon-diff").factory()));
+    }
+
+    /** @param executor runs one diff after the other, shut down by {@link #close()} */
+    DiffWorker(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the diff, completed on the diff thread; cancelled by {@link #cancel()}
+     */
+    public CompletableFuture<Diff> submit(AiFileUpdate update) {
+        var result = new CompletableFuture<Diff>();
+        pending.add(result);
+        result.whenComplete((d, e) -> pending.remove(result));
+        // cached ones too, to keep the order
+        executor.execute(() -> {
+            if (result.isDone()) return;
+            try {
+                result.complete(diff(update));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /** Cancels the diffs not built yet, e.g. because the chat was cleared. */
+    public void cancel() {
+        pending.forEach(f -> f.cancel(false));
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private Diff diff(AiFileUpdate update) {
+        var key = new Key(update.file(), hash(update.oldContent()), hash(update.newContent()));
+        synchronized (cache) {
+            var cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+        var full = SimpleDiff.unifiedDiff(update.file(), update.oldContent(), update.newContent());
+        var cut = SimpleDiff.truncate(full, MAX_LINES);
+        var result = new Diff(update.file(), cut, countLines(full) - countLines(cut));
+        synchronized (cache) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /** Length and hash code, the hash code is cached by the string. */
+    private static long hash(String content) {
+        if (content == null) return 0;
+        return (long) content.length() << 32 | (content.hashCode() & 0xffffffffL);
+    }
+
+    private static int countLines(String diff) {
+        int result = 0;
+        for (int i = 0; i < diff.length(); i++) if (diff.charAt(i) == '\n') ++result;
+        return result;
+    }
+}
@@ -5,7 +5,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -13,7 +12,6 @@ import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
@@ -382,42 +380,11 @@ public class EclipseUtil {
         return selection.getProject();
     }
 
-    /**
-     * Recursively searches all open projects for the first file matching the
-     * given name.
-     */
+    /** Finds the first file with exactly this name in the open projects, see {@link WorkspaceFileIndex}. */
     public static Optional<IFile> searchWorkspaceFiles(String fileName) {
         if (StringUtil.hasNoValue(fileName))
             return Optional.empty();
-        for (var p : openProjects()) {
-            Optional<IFile> hit = searchProject(p, fileName);
-            if (hit.isPresent())
-                return hit;
-        }
-        return Optional.empty();
-    }
-
-    private static Optional<IFile> searchProject(IProject project,
-            String fileName) {
-        try {
-            AtomicReference<IFile> result = new AtomicReference<>();
-            project.accept(new IResourceVisitor() {
-                @Override
-                public boolean visit(IResource resource) {
-                    if (result.get() != null)
-                        return false; // stop after first hit
-                    if (resource.getType() == IResource.FILE
-                            && resource.getName().equals(fileName)) {
-                        result.set((IFile) resource);
-                        return false;
-                    }
-                    return true;
-                }
-            });
-            return Optional.ofNullable(result.get());
-        } catch (CoreException e) {
-            return Optional.empty();
-        }
+        return WorkspaceFileIndex.get().findByName(fileName);
     }
 
 }
@@ -98,7 +98,8 @@ public class IoUtils {
         }
     }
 
-    private static Charset getCharset(IFile file) {
+    /** Charset of the file or its project, UTF-8 if none is set or it is unknown. */
+    public static Charset getCharset(IFile file) {
         try {
             var charset = file.getCharset(true);
             if (charset == null) charset = file.getProject().getDefaultCharset();
@@ -2,13 +2,17 @@ package org.sterl.llmpeon.parts.shared;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
+
+import org.sterl.llmpeon.shared.LineDiff;
 
 /**
- * Generates a unified diff string from two texts using LCS (longest common subsequence).
+ * Generates a unified diff string from two texts, see {@link LineDiff}.
  */
 public class SimpleDiff {
 
     private static final int CONTEXT = 3;
+    private static final Pattern HUNK = Pattern.compile("^@@ -(\\d+),\\d+ \\+(\\d+),\\d+ @@");
 
     /**
      * Produces a unified diff string with compact hunks (3 lines of contextFile) suitable for diff2html rendering.
@@ -18,7 +22,7 @@ public class SimpleDiff {
         String[] oldLines = (oldText == null ? "" : oldText).split("\n", -1);
         String[] newLines = (newText == null ? "" : newText).split("\n", -1);
 
-        List<String> diffLines = lcsDiff(oldLines, newLines);
+        List<String> diffLines = LineDiff.diff(oldLines, newLines);
         if (diffLines.stream().allMatch(l -> l.startsWith(" "))) return "";
 
         // Find indices of changed lines (non-contextFile)
@@ -51,11 +55,11 @@ public class SimpleDiff {
         sb.append("--- a/").append(fileName).append('\n');
         sb.append("+++ b/").append(fileName).append('\n');
 
+        // old/new line numbers at hunk start, counted on from the last hunk
+        int oldLineNo = 1, newLineNo = 1, counted = 0;
         for (int[] range : hunkRanges) {
-            // Count old/new line numbers at hunk start
-            int oldLineNo = 1, newLineNo = 1;
-            for (int i = 0; i < range[0]; i++) {
-                String l = diffLines.get(i);
+            for (; counted < range[0]; counted++) {
+                String l = diffLines.get(counted);
                 if (l.startsWith(" ") || l.startsWith("-")) oldLineNo++;
                 if (l.startsWith(" ") || l.startsWith("+")) newLineNo++;
             }
@@ -74,33 +78,47 @@ public class SimpleDiff {
         return sb.toString();
     }
 
-    private static List<String> lcsDiff(String[] a, String[] b) {
-        int m = a.length, n = b.length;
-        int[][] dp = new int[m + 1][n + 1];
-        for (int i = 1; i <= m; i++) {
-            for (int j = 1; j <= n; j++) {
-                if (a[i - 1].equals(b[j - 1])) {
-                    dp[i][j] = dp[i - 1][j - 1] + 1;
-                } else {
-                    dp[i][j] = Math.max(dp[i - 1][j], dp[i][j - 1]);
-                }
-            }
-        }
+    /**
+     * Cuts the diff after {@code maxLines} lines at a hunk; a hunk longer than the rest gets cut itself
+     * with its line counts adjusted, so the diff still renders.
+     * @return the diff as is if it is short enough
+     */
+    public static String truncate(String diff, int maxLines) {
+        var lines = diff.split("\n");
+        if (lines.length <= maxLines) return diff;
 
-        var result = new ArrayList<String>();
-        int i = m, j = n;
-        while (i > 0 || j > 0) {
-            if (i > 0 && j > 0 && a[i - 1].equals(b[j - 1])) {
-                result.add(0, " " + a[i - 1]);
-                i--; j--;
-            } else if (j > 0 && (i == 0 || dp[i][j - 1] >= dp[i - 1][j])) {
-                result.add(0, "+" + b[j - 1]);
-                j--;
+        var sb = new StringBuilder();
+        int i = 0;
+        // file header
+        for (; i < lines.length && !lines[i].startsWith("@@"); i++) sb.append(lines[i]).append('\n');
+        int kept = i;
+        while (i < lines.length) {
+            int end = i + 1;
+            while (end < lines.length && !lines[end].startsWith("@@")) end++;
+            if (kept + end - i <= maxLines) {
+                for (int l = i; l < end; l++) sb.append(lines[l]).append('\n');
+                kept += end - i;
             } else {
-                result.add(0, "-" + a[i - 1]);
-                i--;
+                if (maxLines - kept > 1) appendCutHunk(sb, lines, i, i + maxLines - kept);
+                break;
             }
+            i = end;
+        }
+        return sb.toString();
+    }
+
+    /** Appends the hunk lines [start, end) with a new header counting just them. */
+    private static void appendCutHunk(StringBuilder sb, String[] lines, int start, int end) {
+        var header = HUNK.matcher(lines[start]);
+        if (!header.find()) return;
+        int oldCount = 0, newCount = 0;
+        for (int l = start + 1; l < end; l++) {
+            if (!lines[l].startsWith("+")) oldCount++;
+            if (!lines[l].startsWith("-")) newCount++;
         }
-        return result;
+        if (oldCount == end - start - 1 && newCount == oldCount) return; // just context
+        sb.append("@@ -").append(header.group(1)).append(',').append(oldCount)
+          .append(" +").append(header.group(2)).append(',').append(newCount).append(" @@\n");
+        for (int l = start + 1; l < end; l++) sb.append(lines[l]).append('\n');
     }
 }
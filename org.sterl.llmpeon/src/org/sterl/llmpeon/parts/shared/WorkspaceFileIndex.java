@@ -0,0 +1,113 @@
+package org.sterl.llmpeon.parts.shared;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+import org.sterl.llmpeon.shared.FileNameIndex;
+
+/**
+ * Names of all files in the open projects, built on first use and kept current from the resource
+ * deltas — a file name lookup does not visit the workspace.
+ */
+public final class WorkspaceFileIndex {
+
+    private static final ILog LOG = Platform.getLog(WorkspaceFileIndex.class);
+    private static volatile WorkspaceFileIndex instance;
+
+    private final FileNameIndex names = new FileNameIndex();
+    private final IResourceChangeListener listener = this::resourceChanged;
+
+    private WorkspaceFileIndex() {}
+
+    public static WorkspaceFileIndex get() {
+        var result = instance;
+        if (result == null) {
+            synchronized (WorkspaceFileIndex.class) {
+                result = instance;
+                if (result == null) {
+                    result = new WorkspaceFileIndex();
+                    // listen first, a file added while indexing is added twice at worst
+                    ResourcesPlugin.getWorkspace().addResourceChangeListener(result.listener,
+                            IResourceChangeEvent.POST_CHANGE);
+                    for (var p : EclipseUtil.openProjects()) result.index(p);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Removes the resource listener and drops the index, the next {@link #get()} builds it again. */
+    public static void close() {
+        synchronized (WorkspaceFileIndex.class) {
+            var current = instance;
+            instance = null;
+            if (current != null) ResourcesPlugin.getWorkspace().removeResourceChangeListener(current.listener);
+        }
+    }
+
+    /** @return the first existing file with exactly this name */
+    public Optional<IFile> findByName(String fileName) {
+        var root = ResourcesPlugin.getWorkspace().getRoot();
+        for (var path : names.byName(fileName)) {
+            var file = root.getFile(IPath.fromPortableString(path));
+            if (file.exists()) return Optional.of(file);
+        }
+        return Optional.empty();
+    }
+
+    /** @see FileNameIndex#search(String, int) */
+    public List<String> search(String query, int limit) {
+        return names.search(query, limit);
+    }
+
+    private void index(IProject project) {
+        try {
+            project.accept(proxy -> {
+                if (proxy.getType() == IResource.FILE) names.add(proxy.requestFullPath().toString());
+                return true;
+            }, IResource.NONE);
+        } catch (CoreException e) {
+            // closed meanwhile
+        }
+    }
+
+    private void resourceChanged(IResourceChangeEvent event) {
+        if (event.getDelta() == null) return;
+        try {
+            event.getDelta().accept(d -> {
+                var resource = d.getResource();
+                if (resource instanceof IProject p) {
+                    if (d.getKind() == IResourceDelta.REMOVED || !p.isOpen()) {
+                        names.removeUnder(p.getFullPath().toString());
+                        return false;
+                    }
+                    if ((d.getFlags() & IResourceDelta.OPEN) != 0 || d.getKind() == IResourceDelta.ADDED) {
+                        index(p);
+                        return false;
+                    }
+                } else if (resource instanceof IFile f) {
+                    if (d.getKind() == IResourceDelta.ADDED) names.add(f.getFullPath().toString());
+                    else if (d.getKind() == IResourceDelta.REMOVED) names.remove(f.getFullPath().toString());
+                } else if (d.getKind() == IResourceDelta.REMOVED && resource.getType() == IResource.FOLDER) {
+                    // children are reported too, this is just to be sure
+                    names.removeUnder(resource.getFullPath().toString());
+                }
+                return true;
+            });
+        } catch (CoreException e) {
+            LOG.warn("Failed to update the workspace file index: " + e.getMessage());
+        }
+    }
+}
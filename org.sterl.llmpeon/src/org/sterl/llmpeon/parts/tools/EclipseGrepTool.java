@@ -1,38 +1,178 @@
 package org.sterl.llmpeon.parts.tools;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.Platform;
 import org.sterl.llmpeon.parts.shared.EclipseUtil;
 import org.sterl.llmpeon.parts.shared.JdtUtil;
 import org.sterl.llmpeon.shared.ArgsUtil;
-import org.sterl.llmpeon.shared.RegexUtils;
+import org.sterl.llmpeon.shared.ContentMatcher;
+import org.sterl.llmpeon.shared.FileLines;
+import org.sterl.llmpeon.shared.FileScanner;
 import org.sterl.llmpeon.shared.StringUtil;
+import org.sterl.llmpeon.shared.TrigramIndex;
 import org.sterl.llmpeon.tool.AiReponseBuilder;
+import org.sterl.llmpeon.tool.GrepResult;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 
 public class EclipseGrepTool extends AbstractEclipseTool {
 
+    private static final ILog LOG = Platform.getLog(EclipseGrepTool.class);
     private static final int MAX_FILES = 100;
+    /** Matching lines listed per file, further ones are only counted. */
+    private static final int MAX_LINES_PER_FILE = 20;
+    private static final int MAX_CONTEXT_LINES = 10;
+    private static final int TOKEN_BUDGET = 4_000;
+    public static final String INDEX_FILE = "workspace.trigrams";
 
-    @Tool("Search Eclipse workspace files for text. Scope to project path and file extension.")
+    /** Skips files which cannot contain the query; in memory until {@link #setIndexDir(Path)}. */
+    private volatile TrigramIndex index = new TrigramIndex(null);
+    private final IResourceChangeListener listener = this::resourceChanged;
+    private final AtomicBoolean listening = new AtomicBoolean();
+    private final AtomicBoolean warmingUp = new AtomicBoolean();
+    /** Files of the selected project are listed first. */
+    private volatile IProject currentProject;
+
+    public void setCurrentProject(IProject project) {
+        this.currentProject = project;
+    }
+
+    /**
+     * Persists the trigram index in the given directory, indexes the open projects in the background
+     * and keeps the index current from the resource deltas.
+     */
+    public void setIndexDir(Path indexDir) {
+        this.index = TrigramIndex.load(indexDir == null ? null : indexDir.resolve(INDEX_FILE));
+        if (listening.compareAndSet(false, true)) {
+            ResourcesPlugin.getWorkspace().addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE);
+        }
+        warmUp();
+    }
+
+    /** Stops listening to the resource deltas and a running background indexing. */
+    public void close() {
+        if (listening.compareAndSet(true, false)) {
+            ResourcesPlugin.getWorkspace().removeResourceChangeListener(listener);
+        }
+    }
+
+    /** Indexes the open projects in the background, only one run at a time. */
+    private void warmUp() {
+        if (!warmingUp.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("peon-workspace-index").start(() -> {
+            try {
+                for (var project : EclipseUtil.openProjects()) {
+                    try {
+                        project.accept(r -> {
+                            if (!listening.get()) return false;
+                            if (r.isDerived() || !isNotDerived(JdtUtil.pathOf(r))) return false;
+                            if (r instanceof IFile f && isTextFile(f, null)) indexed(f);
+                            return true;
+                        });
+                    } catch (CoreException e) {
+                        // project closed meanwhile
+                    }
+                }
+            } finally {
+                warmingUp.set(false);
+            }
+        });
+    }
+
+    /** Drops removed files, re-indexes changed ones in the background. */
+    private void resourceChanged(IResourceChangeEvent event) {
+        if (event.getDelta() == null) return;
+        var changed = new ArrayList<IFile>();
+        try {
+            event.getDelta().accept(d -> {
+                if (!(d.getResource() instanceof IFile f)) return true;
+                if (d.getKind() == IResourceDelta.REMOVED) {
+                    index.remove(JdtUtil.pathOf(f));
+                } else if (d.getKind() == IResourceDelta.ADDED || (d.getFlags() & IResourceDelta.CONTENT) != 0) {
+                    if (isTextFile(f, null)) changed.add(f);
+                }
+                return true;
+            });
+        } catch (CoreException e) {
+            LOG.warn("Failed to update the grep index: " + e.getMessage());
+        }
+        if (!changed.isEmpty()) {
+            Thread.ofVirtual().name("peon-workspace-index").start(() -> changed.forEach(this::indexed));
+        }
+    }
+
+    /** @return the content of the file if it was read to index it, otherwise {@code null} */
+    private String indexed(IFile file) {
+        var key = JdtUtil.pathOf(file);
+        var stamp = stampOf(file);
+        if (index.isCurrent(key, stamp) || !file.exists()) return null;
+        try {
+            var content = file.readString();
+            index.add(key, stamp, content);
+            return content;
+        } catch (CoreException e) {
+            return null;
+        }
+    }
+
+    /** The modification stamp alone restarts on a re-imported project, the local time stamp not. */
+    private static long stampOf(IFile file) {
+        return file.getModificationStamp() * 31 + file.getLocalTimeStamp();
+    }
+
+    @Override
+    public boolean isParallelSafe() {
+        return true;
+    }
+
+    public String eclipseGrepFiles(String query, String path, String extension) {
+        return eclipseGrepFiles(query, path, extension, null, null, null);
+    }
+
+    @Tool("Search Eclipse workspace files for text. Scope to project path and file extension. "
+            + "Lists files by relevance, optionally with the matching lines.")
     public String eclipseGrepFiles(
             @P(description = "text to match with contains in content of any file", name = "query") String query,
             @P(description = "project or folder path to search in", required = false, name = "path") String path,
-            @P(description = "file extension, e.g. .java", required = false, name = "extension") String extension) {
+            @P(description = "file extension, e.g. .java", required = false, name = "extension") String extension,
+            @P(description = "true to list the matching lines with line numbers", required = false, name = "showLines") Boolean showLines,
+            @P(description = "context lines before each matching line, like grep -B", required = false, name = "before") Integer before,
+            @P(description = "context lines after each matching line, like grep -A", required = false, name = "after") Integer after) {
 
         ArgsUtil.requireNonBlank(query, "query");
+        boolean lines = Boolean.TRUE.equals(showLines) || before != null || after != null;
+        int linesBefore = Math.clamp(ArgsUtil.getOrDefault(before, 0), 0, MAX_CONTEXT_LINES);
+        int linesAfter = Math.clamp(ArgsUtil.getOrDefault(after, 0), 0, MAX_CONTEXT_LINES);
 
+        ContentMatcher matcher;
+        try {
+            matcher = ContentMatcher.of(query);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid regex '" + query + "': " + e.getMessage());
+        }
+        var trigrams = TrigramIndex.trigrams(query);
         var allProjects = path == null || path.length() <= 1;
-        var matches = new LinkedHashMap<String, Integer>(); // file path -> count
+        var files = new ArrayList<IFile>();
 
         // Determine containers to search
         var containers = new ArrayList<IContainer>();
@@ -46,28 +186,24 @@ public class EclipseGrepTool extends AbstractEclipseTool {
             if (resource.get() instanceof IContainer c) {
                 containers.add(c);
             } else if (resource.get() instanceof IFile f) {
-                int count = countOccurrences(f, query);
-                if (count > 0) matches.put(JdtUtil.pathOf(resource.get()), count);
+                files.add(f);
             } else {
                 onProblem("Eclipse grep could not read " + JdtUtil.pathOf(resource.get()));
                 return "Couldn't read " + JdtUtil.pathOf(resource.get());
             }
         }
 
+        // the resource tree is in memory, only reading the files is worth to parallelize
         for (IContainer container : containers) {
             try {
                 container.accept(new IResourceVisitor() {
                     @Override
                     public boolean visit(IResource resource) {
-                        if (matches.size() >= MAX_FILES) return false;
                         if (resource.isDerived()) return false;
                         if (!isNotDerived(JdtUtil.pathOf(resource))) return false;
 
                         if (resource.getType() == IResource.FILE && resource instanceof IFile file) {
-                            if (isTextFile(file, extension)) {
-                                int count = countOccurrences(file, query);
-                                if (count > 0) matches.put(JdtUtil.pathOf(file), count);
-                            }
+                            if (isTextFile(file, extension)) files.add(file);
                         }
                         return true;
                     }
@@ -75,8 +211,14 @@ public class EclipseGrepTool extends AbstractEclipseTool {
             } catch (CoreException e) {
                 // skip container on error
             }
-            if (matches.size() >= MAX_FILES) break;
         }
+        var results = new ConcurrentHashMap<IFile, GrepResult>();
+        var matches = FileScanner.scan(files, f -> {
+            var result = grep(f, matcher, trigrams, lines, linesBefore, linesAfter);
+            if (result == null) return 0;
+            results.put(f, result);
+            return result.count();
+        }, MAX_FILES);
 
         onTool("Eclipse grep '" + query + "' type '" + StringUtil.getOrDefault(extension, "*")
                 + "' found " + matches.size() + " matches");
@@ -85,9 +227,11 @@ public class EclipseGrepTool extends AbstractEclipseTool {
         if (matches.size() >= MAX_FILES) {
             suffix = "... result capped at " + MAX_FILES + " files. Narrow your search path.";
         }
-        return AiReponseBuilder.searchComplete(matches.entrySet().stream()
-                .map(e -> e.getKey() + ": " + e.getValue() + " occurrence(s)").toList(), 
-                suffix);
+        var project = currentProject;
+        return AiReponseBuilder.searchComplete(matches.stream()
+                .map(m -> results.get(m.file()))
+                .sorted(GrepResult.ranking(project == null ? null : JdtUtil.pathOf(project)))
+                .toList(), TOKEN_BUDGET, suffix);
     }
 
     private static final Set<String> TEXT_EXTENSIONS = Set.of(
@@ -106,10 +250,38 @@ public class EclipseGrepTool extends AbstractEclipseTool {
         return TEXT_EXTENSIONS.contains(name.substring(dot + 1));
     }
 
-    private int countOccurrences(IFile file, String query) {
+    /**
+     * @param lines false to only count the matches
+     * @return {@code null} if the file does not match
+     */
+    private GrepResult grep(IFile file, ContentMatcher matcher, int[] trigrams, boolean lines, int before, int after) {
+        var key = JdtUtil.pathOf(file);
+        var stamp = stampOf(file);
+        boolean current = index.isCurrent(key, stamp);
+        if (current && !index.mayContain(key, trigrams)) return null;
         try {
-            String content = file.readString();
-            return RegexUtils.countOccurrences(content, query);
-        } catch (CoreException e) { return 0; }
+            var bytes = ByteBuffer.wrap(file.readAllBytes());
+            if (FileScanner.isBinary(bytes)) return null;
+            var charset = Charset.forName(file.getCharset());
+            String content = null;
+            int count;
+            if (current && StandardCharsets.UTF_8.equals(charset)) {
+                count = matcher.count(bytes);
+            } else {
+                content = new String(bytes.array(), charset);
+                if (!current) index.add(key, stamp, content);
+                count = matcher.count(content);
+            }
+            if (count == 0) return null;
+
+            String matchingLines = null;
+            if (lines) {
+                if (content == null) content = new String(bytes.array(), charset);
+                matchingLines = FileLines.matches(content, matcher, before, after, MAX_LINES_PER_FILE);
+            }
+            return new GrepResult(key, count, bytes.capacity(), matchingLines);
+        } catch (ContentMatcher.TooExpensiveException e) {
+            throw e; // the query, not the file
+        } catch (CoreException | IllegalArgumentException e) { return null; }
     }
 }
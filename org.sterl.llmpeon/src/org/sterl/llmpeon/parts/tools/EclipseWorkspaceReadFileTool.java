@@ -1,8 +1,8 @@
 
 package org.sterl.llmpeon.parts.tools;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -11,19 +11,20 @@ import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.texteditor.IDocumentProvider;
-import org.jspecify.annotations.NonNull;
 import org.sterl.llmpeon.parts.shared.EclipseUtil;
+import org.sterl.llmpeon.parts.shared.IoUtils;
 import org.sterl.llmpeon.parts.shared.JdtUtil;
+import org.sterl.llmpeon.parts.shared.WorkspaceFileIndex;
 import org.sterl.llmpeon.shared.ArgsUtil;
 import org.sterl.llmpeon.shared.FileLines;
+import org.sterl.llmpeon.shared.FilePager;
 import org.sterl.llmpeon.shared.FileUtils;
-import org.sterl.llmpeon.shared.StringMatcher;
 import org.sterl.llmpeon.shared.StringUtil;
 import org.sterl.llmpeon.tool.AiReponseBuilder;
 
@@ -37,6 +38,11 @@ public class EclipseWorkspaceReadFileTool extends AbstractEclipseTool {
         return false;
     }
 
+    @Override
+    public boolean isParallelSafe() {
+        return true;
+    }
+
     @Tool("Open a workspace file, not directory, in the Eclipse editor to show it to the user e.g. a plan or summary.")
     public String eclipseOpenFileInEditor(@P(description = "workspace-relative path", name = "filePath") String filePath) {
         ArgsUtil.requireNonBlank(filePath, "filePath");
@@ -80,7 +86,8 @@ public class EclipseWorkspaceReadFileTool extends AbstractEclipseTool {
     }
 
     public static final String READ_ECLIPSE_FILE_TOOL = "eclipseReadFile";
-    @Tool(name = READ_ECLIPSE_FILE_TOOL, value = "Read a file from the Eclipse workspace (not disk). startLine/endLine for partial reads.")
+    @Tool(name = READ_ECLIPSE_FILE_TOOL, value = "Read a file from the Eclipse workspace (not disk). startLine/endLine for partial reads. "
+            + "Large files return a summary first, then read them in pages.")
     public String eclipseReadFile(
             @P(description = "workspace-relative path", name = "filePath") String filePath,
             @P(description = "first line, 1-based; 0 = file start", required = false, name = "startLine") Integer startLine,
@@ -96,6 +103,14 @@ public class EclipseWorkspaceReadFileTool extends AbstractEclipseTool {
             var lines = "";
             if (startLine > 0 && endLine > 0) lines = " from " + startLine + " to " + endLine;
             onTool("Reading eclipse" + lines + " file " + filePath);
+            var location = f.getLocation();
+            if (location != null && FilePager.isLarge(location.toFile().toPath())) {
+                try {
+                    return FilePager.read(location.toFile().toPath(), IoUtils.getCharset(f), startLine, endLine);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Failed to read " + filePath + " " + e.getMessage(), e);
+                }
+            }
             String content;
             try {
                 content = f.readString();
@@ -123,18 +138,18 @@ public class EclipseWorkspaceReadFileTool extends AbstractEclipseTool {
         final int limit = Math.min(inLimit, 1000);
 
         query = FileUtils.normalizePath(query);
-        final var matcher = StringMatcher.wildCardMatcher(query);
-        final List<String> matches = new LinkedList<>();
-        
-        var project = EclipseUtil.findOpenProject(projectName);
-        if (project.isPresent() && project.get().isOpen()) {
-            matches.addAll(searchProjectFor(project.get(), matcher, limit));
-        } else {
-            for (IProject p : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
-                if (!p.isOpen()) continue;
-                matches.addAll(searchProjectFor(p, matcher, limit - matches.size()));
-                if (matches.size() >= limit) break;
-            }
+        final List<String> matches = new ArrayList<>();
+        var project = EclipseUtil.findOpenProject(projectName).filter(IProject::isOpen);
+        var projectPrefix = project.map(p -> JdtUtil.pathOf(p) + "/").orElse(null);
+        var root = ResourcesPlugin.getWorkspace().getRoot();
+
+        // all matches, the derived ones are filtered below
+        for (var file : WorkspaceFileIndex.get().search(query, 0)) {
+            if (projectPrefix != null && !file.startsWith(projectPrefix)) continue;
+            var resource = root.getFile(IPath.fromPortableString(file));
+            if (!resource.exists() || resource.isDerived(IResource.CHECK_ANCESTORS)) continue;
+            if (matches.isEmpty() || isNotDerived(file)) matches.add(file);
+            if (matches.size() >= limit) break;
         }
 
         onTool("Search workspace " + StringUtil.trimToEmpty(projectName) + " for " + query 
@@ -146,30 +161,6 @@ public class EclipseWorkspaceReadFileTool extends AbstractEclipseTool {
         return AiReponseBuilder.searchComplete(matches, suffix);
     }
 
-    private @NonNull List<String> searchProjectFor(IProject project, final StringMatcher matcher, final int limit) {
-        var results = new LinkedList<String>();
-        try {
-            project.accept(new IResourceVisitor() {
-                @Override
-                public boolean visit(IResource resource) {
-                    if (results.size() >= limit) return false;
-                    if (resource.isDerived()) return false;
-                    if (resource.getType() == IResource.FILE) {
-                        var file = JdtUtil.pathOf(resource);
-                        var match = matcher.match(file)
-                                || matcher.match(resource.getName());
-
-                        if (match && (results.isEmpty() || isNotDerived(file))) results.add(file);
-                    }
-                    return true;
-                }
-            });
-        } catch (CoreException e) {
-            throw new RuntimeException(e);
-        }
-        return results;
-    }
-
     public static final String LIST_WORKSPACE_NAME = "eclipseList";
     @Tool(name = LIST_WORKSPACE_NAME, value = "List workspace directory/projects (non-recursive). Empty path lists all projects.")
     public String eclipseList(
@@ -24,9 +24,12 @@ public final class AiAgentStatusModel {
     /** One rendered row: the label {@code uiName (Xk)} and whether it shows the 🟢 working dot. */
     public record Entry(String text, boolean working) {}
 
-    /** Snapshot of one team member for the pure builder (name, context size, momentary work). */
+    /** Snapshot of one team member for the pure builder (name, context size or {@link #LOADING}, momentary work). */
     record Row(String uiName, long tokens, boolean working) {}
 
+    /** Context size of a member whose history is still read in the background. */
+    static final long LOADING = -1;
+
     private AiAgentStatusModel() {}
 
     /** Live entry point for the widget: reads {@code uiName} + live {@code isWorking()}/context off
@@ -36,7 +39,10 @@ public final class AiAgentStatusModel {
         var snapshot = new ArrayList<Row>(team.size());
         for (var member : team) {
             var agent = member.agent();
-            snapshot.add(new Row(member.uiName(), agent.getMemory().getTotalTokenUsed(), agent.isWorking()));
+            var memory = agent.getMemory();
+            // never wait for a history still loading on the UI thread
+            var tokens = memory.isLoaded() ? memory.getTotalTokenUsed() : LOADING;
+            snapshot.add(new Row(member.uiName(), tokens, agent.isWorking()));
         }
         return build(snapshot);
     }
@@ -50,7 +56,8 @@ public final class AiAgentStatusModel {
         for (int i = 0; i < rows.size(); i++) {
             var r = rows.get(i);
             boolean working = i == 0 ? (r.working() && !anySlaveWorking) : r.working();
-            entries.add(new Entry(r.uiName() + " (" + StringUtil.toK(r.tokens()) + ")", working));
+            var tokens = r.tokens() == LOADING ? "…" : StringUtil.toK(r.tokens());
+            entries.add(new Entry(r.uiName() + " (" + tokens + ")", working));
         }
         return entries;
     }
@@ -195,7 +195,7 @@ public class ChatMarkdownWidget extends Composite {
         if (r.type() == Type.START || r.type() == Type.END) {
             streamingTokenCount.set(0);
         } else {
-            tokens = streamingTokenCount.incrementAndGet();
+            tokens = streamingTokenCount.addAndGet(r.tokens());
         }
 
         if (r.type() == Type.END) {
@@ -234,7 +234,8 @@ public class ChatMarkdownWidget extends Composite {
                         : tokens + " tokens";
                 default -> tokens + " tokens";
             };
-            if (tokens == 1 || (tokens > 0 && tokens % 20 == 0)) {
+            // chunks arrive already coalesced per frame by the StreamingBridge
+            if (tokens > 0) {
                 double tokPerSec = elapsed > 0 ? tokens / (double) elapsed : 0;
                 updateLiveResponseInUIThread(state, tokPerSec, accumulatedText);
             }